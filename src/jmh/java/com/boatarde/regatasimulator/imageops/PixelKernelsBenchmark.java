@@ -0,0 +1,194 @@
+package com.boatarde.regatasimulator.imageops;
+
+import com.boatarde.regatasimulator.render.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-pixel kernels on a square image of {@code resolution} pixels, against a naive loop with a division per channel
+ * and against the Java2D call the code used before. The template fixture, which has transparent areas, is composited
+ * over a source fixture. The kernels cost the same whatever the pixels, so the target is not reset between
+ * invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PixelKernelsBenchmark {
+
+    @Param({"720", "2160"})
+    private int resolution;
+
+    private int length;
+    private int[] template;
+    private int[] source;
+    private int[] target;
+    private byte[] mask;
+    private byte[] bgr;
+    private BufferedImage templateImage;
+    private BufferedImage sourceImage;
+    private BufferedImage targetImage;
+    private BufferedImage bgrImage;
+
+    @State(Scope.Benchmark)
+    public static class Kernels {
+
+        @Param({"scalar", "vector"})
+        private String kernels;
+
+        private PixelKernels pixelKernels;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pixelKernels = kernels.equals("vector") ? new VectorPixelKernels() : new ScalarPixelKernels();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        length = resolution * resolution;
+        ImageOps imageOps = new ImageOps(false);
+        templateImage = imageOps.toPremultiplied(BenchmarkFixtures.image("template.png", resolution, resolution));
+        sourceImage = imageOps.toPremultiplied(BenchmarkFixtures.image("source_1.jpg", resolution, resolution));
+        targetImage = new BufferedImage(resolution, resolution, BufferedImage.TYPE_INT_ARGB_PRE);
+        template = ((DataBufferInt) templateImage.getRaster().getDataBuffer()).getData();
+        source = ((DataBufferInt) sourceImage.getRaster().getDataBuffer()).getData();
+        target = ((DataBufferInt) targetImage.getRaster().getDataBuffer()).getData();
+        System.arraycopy(source, 0, target, 0, length);
+
+        BufferedImage gray = new BufferedImage(resolution, resolution, BufferedImage.TYPE_BYTE_GRAY);
+        gray.getGraphics().drawImage(sourceImage, 0, 0, null);
+        mask = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+
+        bgrImage = new BufferedImage(resolution, resolution, BufferedImage.TYPE_3BYTE_BGR);
+        bgrImage.getGraphics().drawImage(sourceImage, 0, 0, null);
+        bgr = ((DataBufferByte) bgrImage.getRaster().getDataBuffer()).getData();
+    }
+
+    @Benchmark
+    public int[] compositeOver(Kernels kernels) {
+        kernels.pixelKernels.compositeOver(template, 0, target, 0, length);
+        return target;
+    }
+
+    @Benchmark
+    public int[] compositeOverNaive() {
+        for (int i = 0; i < length; i++) {
+            int src = template[i];
+            int dst = target[i];
+            int inverse = 255 - (src >>> 24);
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int channel = ((src >>> shift) & 0xFF) + (((dst >>> shift) & 0xFF) * inverse + 127) / 255;
+                result |= channel << shift;
+            }
+            target[i] = result;
+        }
+        return target;
+    }
+
+    @Benchmark
+    public BufferedImage compositeOverGraphics2D() {
+        Graphics2D graphics = targetImage.createGraphics();
+        try {
+            graphics.drawImage(templateImage, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return targetImage;
+    }
+
+    @Benchmark
+    public int[] multiplyMask(Kernels kernels) {
+        kernels.pixelKernels.multiplyMask(target, 0, mask, 0, length);
+        return target;
+    }
+
+    @Benchmark
+    public int[] multiplyMaskNaive() {
+        for (int i = 0; i < length; i++) {
+            int coverage = mask[i] & 0xFF;
+            int pixel = target[i];
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                result |= ((((pixel >>> shift) & 0xFF) * coverage + 127) / 255) << shift;
+            }
+            target[i] = result;
+        }
+        return target;
+    }
+
+    @Benchmark
+    public int[] bgrToArgb(Kernels kernels) {
+        kernels.pixelKernels.bgrToArgb(bgr, target, length);
+        return target;
+    }
+
+    @Benchmark
+    public int[] bgrToArgbNaive() {
+        for (int i = 0; i < length; i++) {
+            int red = bgr[i * 3 + 2] & 0xFF;
+            int green = bgr[i * 3 + 1] & 0xFF;
+            int blue = bgr[i * 3] & 0xFF;
+            target[i] = new Color(red, green, blue).getRGB();
+        }
+        return target;
+    }
+
+    /**
+     * What {@code DecodedImageCache} did with decoded JPEGs before.
+     */
+    @Benchmark
+    public BufferedImage bgrToArgbGraphics2D() {
+        BufferedImage argb = new BufferedImage(resolution, resolution, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = argb.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawImage(bgrImage, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return argb;
+    }
+
+    @Benchmark
+    public byte[] argbToBgr(Kernels kernels) {
+        kernels.pixelKernels.argbToBgr(template, bgr, length, 0xFFFFFF);
+        return bgr;
+    }
+
+    /**
+     * The flattening {@code MemeEncoder} does before writing a JPEG.
+     */
+    @Benchmark
+    public BufferedImage argbToBgrGraphics2D() {
+        BufferedImage rgb = new BufferedImage(resolution, resolution, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.drawImage(templateImage, 0, 0, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+}
@@ -0,0 +1,127 @@
+package com.boatarde.regatasimulator.imageops;
+
+import com.boatarde.regatasimulator.render.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resizing a 1080x1080 source to {@code size x size}, against a naive per-pixel bilinear loop, which reads only the
+ * four nearest pixels and aliases when downscaling, and against a single Java2D {@code drawImage}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResampleBenchmark {
+
+    private static final int SOURCE_SIZE = 1080;
+
+    @Param({"360", "720", "1440"})
+    private int size;
+
+    private BufferedImage sourceImage;
+    private int[] source;
+    private int[] target;
+
+    @State(Scope.Benchmark)
+    public static class Kernels {
+
+        @Param({"scalar", "vector"})
+        private String kernels;
+
+        @Param({"BILINEAR", "BICUBIC"})
+        private ResampleFilter filter;
+
+        private PixelKernels pixelKernels;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pixelKernels = kernels.equals("vector") ? new VectorPixelKernels() : new ScalarPixelKernels();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sourceImage = new ImageOps(false).toPremultiplied(
+            BenchmarkFixtures.image("source_1.jpg", SOURCE_SIZE, SOURCE_SIZE));
+        source = ((DataBufferInt) sourceImage.getRaster().getDataBuffer()).getData();
+        target = new int[size * size];
+    }
+
+    @Benchmark
+    public int[] resample(Kernels kernels) {
+        kernels.pixelKernels.resample(source, SOURCE_SIZE, SOURCE_SIZE, target, size, size, kernels.filter);
+        return target;
+    }
+
+    @Benchmark
+    public int[] resampleNaive() {
+        double scale = (double) SOURCE_SIZE / size;
+        for (int y = 0; y < size; y++) {
+            double sourceY = Math.min(Math.max((y + 0.5) * scale - 0.5, 0), SOURCE_SIZE - 1);
+            int y0 = (int) sourceY;
+            int y1 = Math.min(y0 + 1, SOURCE_SIZE - 1);
+            double fy = sourceY - y0;
+            for (int x = 0; x < size; x++) {
+                double sourceX = Math.min(Math.max((x + 0.5) * scale - 0.5, 0), SOURCE_SIZE - 1);
+                int x0 = (int) sourceX;
+                int x1 = Math.min(x0 + 1, SOURCE_SIZE - 1);
+                double fx = sourceX - x0;
+                int result = 0;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    double top = channel(x0, y0, shift) * (1 - fx) + channel(x1, y0, shift) * fx;
+                    double bottom = channel(x0, y1, shift) * (1 - fx) + channel(x1, y1, shift) * fx;
+                    result |= (int) Math.round(top * (1 - fy) + bottom * fy) << shift;
+                }
+                target[y * size + x] = result;
+            }
+        }
+        return target;
+    }
+
+    @Benchmark
+    public BufferedImage resizeGraphics2DBilinear() {
+        return drawScaled(RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    }
+
+    @Benchmark
+    public BufferedImage resizeGraphics2DBicubic() {
+        return drawScaled(RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private int channel(int x, int y, int shift) {
+        return (source[y * SOURCE_SIZE + x] >>> shift) & 0xFF;
+    }
+
+    private BufferedImage drawScaled(Object interpolation) {
+        BufferedImage resized = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            graphics.drawImage(sourceImage, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+}
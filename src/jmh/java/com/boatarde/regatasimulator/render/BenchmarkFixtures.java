@@ -0,0 +1,194 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.imageops.ImageOps;
+import com.boatarde.regatasimulator.models.AreaCorner;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.magick.FusedMagickMemeRenderer;
+import com.boatarde.regatasimulator.render.magick.MagickCommand;
+import com.boatarde.regatasimulator.render.magick.MagickExecutor;
+import com.boatarde.regatasimulator.render.magick.MagickMemeRenderer;
+import com.boatarde.regatasimulator.render.magick.ProcessMagickExecutor;
+import com.boatarde.regatasimulator.service.TemplateAssetsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Synthetic templates built from the checked-in fixture images: the fixture template is scaled to a square of the
+ * requested resolution and covered by a grid of skewed areas that cycle through the three fixture sources, every
+ * other area in the background. Templates can be precompiled like approved templates are. Everything lives in a
+ * temporary directory that {@link #close()} removes.
+ */
+public class BenchmarkFixtures implements AutoCloseable {
+
+    public static final int SOURCES = 3;
+
+    private final Path directory;
+    private final Path templateFile;
+    private final List<Path> sourceFiles = new ArrayList<>();
+    private final Template template;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RenderWorkspaceManager workspaceManager;
+
+    public BenchmarkFixtures(int resolution, int areas, boolean precompiled) throws IOException {
+        this.directory = Files.createTempDirectory("regata-jmh");
+        this.templateFile = directory.resolve("template.png");
+        ImageIO.write(scale(read("template.png"), resolution, resolution), "png", templateFile.toFile());
+        for (int source = 1; source <= SOURCES; source++) {
+            Path sourceFile = directory.resolve("source_%d.jpg".formatted(source));
+            try (InputStream input = fixture("source_%d.jpg".formatted(source))) {
+                Files.copy(input, sourceFile);
+            }
+            sourceFiles.add(sourceFile);
+        }
+        this.template = template(resolution, areas);
+        if (precompiled) {
+            new TemplateAssetsService(directory.toString(), null).precompile(template, templateFile);
+        }
+        this.workspaceManager = new RenderWorkspaceManager(directory.resolve("workspaces").toString(),
+            Long.MAX_VALUE, meterRegistry);
+    }
+
+    public Path getTemplateFile() {
+        return templateFile;
+    }
+
+    public List<Path> getSourceFiles() {
+        return sourceFiles;
+    }
+
+    public Template getTemplate() {
+        return template;
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    public RenderWorkspace openWorkspace() throws IOException {
+        return workspaceManager.open();
+    }
+
+    public RenderRequest.RenderRequestBuilder request(RenderWorkspace workspace) {
+        return RenderRequest.builder()
+            .template(template)
+            .templateFile(templateFile)
+            .sourceFiles(sourceFiles)
+            .workspace(workspace);
+    }
+
+    /**
+     * Builds the renderer of an engine the way the application configures it, with both caches disabled so every
+     * invocation pays the full cost.
+     *
+     * @param engine value of {@code regata-simulator.render.engine}.
+     */
+    public MemeRenderer renderer(String engine, AreaRenderExecutor areaRenderExecutor) throws IOException {
+        LayerCache layerCache = new LayerCache(directory.resolve("layers").toString(), 0, meterRegistry);
+        return switch (engine) {
+            case "java" -> new Java2DMemeRenderer(areaRenderExecutor,
+                new DecodedImageCache(0, false, new ImageOps(true), meterRegistry));
+            case "magick" -> new MagickMemeRenderer(magickExecutor(), areaRenderExecutor, layerCache);
+            case "magick-fused" -> new FusedMagickMemeRenderer(magickExecutor(), layerCache);
+            default -> throw new IllegalArgumentException("Unknown render engine: " + engine);
+        };
+    }
+
+    /**
+     * Process executor for the {@code magick} binary in {@code MAGICK_PATH}, or on the {@code PATH}. Fails fast when
+     * ImageMagick is not installed, so JMH skips the benchmarks that need it.
+     */
+    public MagickExecutor magickExecutor() throws IOException {
+        String magickPath = System.getenv().getOrDefault("MAGICK_PATH", "magick");
+        MagickExecutor executor = new ProcessMagickExecutor(magickPath, Duration.ofMinutes(1), meterRegistry);
+        try {
+            executor.execute(MagickCommand.identify(templateFile, "%w"));
+        } catch (IOException e) {
+            throw new IOException("ImageMagick is not available at " + magickPath + ", set MAGICK_PATH", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return executor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        RenderWorkspace.delete(directory);
+    }
+
+    private static Template template(int resolution, int areas) {
+        int columns = Math.min(areas, 3);
+        int rows = (areas + columns - 1) / columns;
+        int cellWidth = resolution / columns;
+        int cellHeight = resolution / rows;
+        // corners are pulled in by different amounts, so every area needs a real perspective distortion
+        int inset = Math.max(1, Math.min(cellWidth, cellHeight) / 12);
+
+        List<TemplateArea> templateAreas = new ArrayList<>();
+        for (int i = 0; i < areas; i++) {
+            int x = (i % columns) * cellWidth;
+            int y = (i / columns) * cellHeight;
+            templateAreas.add(TemplateArea.builder()
+                .index(i + 1)
+                .source(i % SOURCES + 1)
+                .background(i % 2 == 0)
+                .topLeft(new AreaCorner(x + inset, y + inset * 2))
+                .topRight(new AreaCorner(x + cellWidth - inset * 2, y + inset))
+                .bottomRight(new AreaCorner(x + cellWidth - inset, y + cellHeight - inset * 2))
+                .bottomLeft(new AreaCorner(x + inset * 2, y + cellHeight - inset))
+                .build());
+        }
+        Template template = Template.builder().areas(templateAreas).build();
+        template.setId(UUID.randomUUID());
+        return template;
+    }
+
+    /**
+     * A fixture image scaled to {@code width x height}, as {@link BufferedImage#TYPE_INT_ARGB}.
+     */
+    public static BufferedImage image(String name, int width, int height) throws IOException {
+        return scale(read(name), width, height);
+    }
+
+    private static BufferedImage read(String name) throws IOException {
+        try (InputStream input = fixture(name)) {
+            return ImageIO.read(input);
+        }
+    }
+
+    private static InputStream fixture(String name) throws IOException {
+        InputStream input = BenchmarkFixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (input == null) {
+            throw new IOException("Missing benchmark fixture " + name);
+        }
+        return input;
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,127 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.util.ImageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each stage of the in-process renderer, run on a single thread. The per-area stages work on the first area
+ * of the template, so their cost shrinks as the areas get smaller; {@code composite} draws every layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Java2DStageBenchmark {
+
+    @Param({"1", "3", "6"})
+    private int areas;
+
+    @Param({"720", "1080", "2160"})
+    private int resolution;
+
+    private BenchmarkFixtures fixtures;
+    private AreaRenderExecutor areaRenderExecutor;
+    private Java2DMemeRenderer renderer;
+    private RenderLayout layout;
+    private TemplateArea area;
+    private AreaBounds bounds;
+    private BufferedImage templateImage;
+    private BufferedImage source;
+    private BufferedImage resizedSource;
+    private final Map<Integer, BufferedImage> layers = new HashMap<>();
+    private BufferedImage composite;
+    private RenderWorkspace workspace;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures(resolution, areas, true);
+        areaRenderExecutor = new AreaRenderExecutor(1);
+        renderer = (Java2DMemeRenderer) fixtures.renderer("java", areaRenderExecutor);
+        templateImage = ImageIO.read(fixtures.getTemplateFile().toFile());
+        layout = RenderLayout.of(fixtures.getTemplate(), resolution, resolution, 0);
+        area = layout.getAreas().get(0);
+        bounds = layout.getBounds(area);
+        source = decode();
+        resizedSource = resize();
+        for (TemplateArea templateArea : layout.getAreas()) {
+            AreaBounds areaBounds = layout.getBounds(templateArea);
+            layers.put(templateArea.getIndex(), renderer.buildAreaLayer(
+                renderer.resize(source, areaBounds.getWidth(), areaBounds.getHeight(), false),
+                templateArea, areaBounds, layout.isPrecompiled()));
+        }
+        composite = composite();
+        workspace = fixtures.openWorkspace();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workspace.close();
+        areaRenderExecutor.shutdown();
+        fixtures.close();
+    }
+
+    @Benchmark
+    public Dimension probe() throws IOException {
+        return ImageUtils.readDimensions(fixtures.getTemplateFile());
+    }
+
+    @Benchmark
+    public BufferedImage decode() throws IOException {
+        return ImageIO.read(fixtures.getSourceFiles().get(area.getSource() - 1).toFile());
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        return renderer.resize(source, bounds.getWidth(), bounds.getHeight(), false);
+    }
+
+    @Benchmark
+    public BufferedImage mask() {
+        return TemplateGeometry.mask(area, bounds);
+    }
+
+    /**
+     * Perspective warp of the resized source, including the mask it takes its alpha from.
+     */
+    @Benchmark
+    public BufferedImage distort() {
+        return renderer.buildAreaLayer(resizedSource, area, bounds, layout.isPrecompiled());
+    }
+
+    @Benchmark
+    public BufferedImage composite() {
+        return renderer.composite(templateImage, layout, layers);
+    }
+
+    @Benchmark
+    public Path writeOutput() throws IOException {
+        Path output = workspace.resolve("final_output.png");
+        ImageIO.write(composite, "png", output.toFile());
+        return output;
+    }
+}
@@ -0,0 +1,94 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.render.output.EncodedMeme;
+import com.boatarde.regatasimulator.render.output.MemeEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of the render in {@code BuildMemeStep}: one {@link MemeRenderer#render} per invocation, alone and
+ * followed by the encoding of the uploaded file. Magick engines are skipped when ImageMagick is not installed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemeRendererBenchmark {
+
+    /**
+     * Default of {@code regata-simulator.render.preview.max-side}.
+     */
+    static final int PREVIEW_MAX_SIDE = 720;
+
+    @Param({"java", "magick", "magick-fused"})
+    private String engine;
+
+    @Param({"1", "3", "6"})
+    private int areas;
+
+    @Param({"720", "1080", "2160"})
+    private int resolution;
+
+    @Param({"FULL", "PREVIEW"})
+    private RenderQuality quality;
+
+    /**
+     * Approved templates are precompiled; pass {@code -p precompiled=false} to measure the probing path.
+     */
+    @Param("true")
+    private boolean precompiled;
+
+    private BenchmarkFixtures fixtures;
+    private AreaRenderExecutor areaRenderExecutor;
+    private MemeRenderer renderer;
+    private MemeEncoder encoder;
+    private RenderWorkspace workspace;
+    private RenderRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures(resolution, areas, precompiled);
+        areaRenderExecutor = new AreaRenderExecutor(4);
+        renderer = fixtures.renderer(engine, areaRenderExecutor);
+        encoder = new MemeEncoder("jpeg", 92, 50, 0, 75, null, fixtures.getMeterRegistry());
+        // renderers overwrite the same files, so a single workspace serves every invocation
+        workspace = fixtures.openWorkspace();
+        request = fixtures.request(workspace)
+            .quality(quality)
+            .maxSide(quality == RenderQuality.PREVIEW ? PREVIEW_MAX_SIDE : 0)
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workspace.close();
+        areaRenderExecutor.shutdown();
+        fixtures.close();
+    }
+
+    @Benchmark
+    public Path render() throws Exception {
+        return renderer.render(request);
+    }
+
+    @Benchmark
+    public EncodedMeme renderAndEncode() throws Exception {
+        return encoder.encode(renderer.render(request), workspace, quality);
+    }
+}
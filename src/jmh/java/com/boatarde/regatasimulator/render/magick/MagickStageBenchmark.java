@@ -0,0 +1,157 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.BenchmarkFixtures;
+import com.boatarde.regatasimulator.render.RenderLayout;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
+import com.boatarde.regatasimulator.render.TemplateGeometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each command issued by {@link MagickMemeRenderer}, process start included. The commands are built with
+ * the same {@link MagickGeometry} arguments as the renderer; the per-area stages work on the first area of the
+ * template and {@code composite} stacks every layer. Skipped when ImageMagick is not installed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MagickStageBenchmark {
+
+    @Param({"1", "3", "6"})
+    private int areas;
+
+    @Param({"720", "1080", "2160"})
+    private int resolution;
+
+    private BenchmarkFixtures fixtures;
+    private MagickExecutor magickExecutor;
+    private RenderWorkspace workspace;
+    private RenderLayout layout;
+    private TemplateArea area;
+    private AreaBounds bounds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures(resolution, areas, true);
+        magickExecutor = fixtures.magickExecutor();
+        workspace = fixtures.openWorkspace();
+        layout = RenderLayout.of(fixtures.getTemplate(), resolution, resolution, 0);
+        area = layout.getAreas().get(0);
+        bounds = layout.getBounds(area);
+        for (TemplateArea templateArea : layout.getAreas()) {
+            buildLayer(templateArea);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workspace.close();
+        fixtures.close();
+    }
+
+    @Benchmark
+    public String probe() throws Exception {
+        return magickExecutor.execute(MagickCommand.identify(fixtures.getTemplateFile(), "%w %h"));
+    }
+
+    @Benchmark
+    public String resize() throws Exception {
+        return resize(area);
+    }
+
+    @Benchmark
+    public String distort() throws Exception {
+        return distort(area);
+    }
+
+    @Benchmark
+    public String mask() throws Exception {
+        return magickExecutor.execute(MagickCommand.convert("mask",
+            List.of("-size", MagickGeometry.size(bounds), "xc:black", "-fill", "white", "-draw",
+                MagickGeometry.polygon(area, bounds)),
+            workspace.resolve("mask_%d.png".formatted(area.getIndex()))));
+    }
+
+    @Benchmark
+    public String copyOpacity() throws Exception {
+        return copyOpacity(area);
+    }
+
+    @Benchmark
+    public String composite() throws Exception {
+        List<String> operations = new ArrayList<>(List.of("-size", layout.getWidth() + "x" + layout.getHeight(),
+            "xc:none"));
+        layout.getAreas().stream().filter(TemplateArea::isBackground).forEach(templateArea ->
+            operations.addAll(List.of(layer(templateArea).toString(),
+                "-geometry", MagickGeometry.offset(layout.getBounds(templateArea)), "-composite")));
+        operations.addAll(MagickGeometry.template(fixtures.getTemplateFile(), layout));
+        operations.addAll(List.of("-geometry", "+0+0", "-composite"));
+        layout.getAreas().stream().filter(templateArea -> !templateArea.isBackground()).forEach(templateArea ->
+            operations.addAll(List.of(layer(templateArea).toString(),
+                "-geometry", MagickGeometry.offset(layout.getBounds(templateArea)), "-composite")));
+        return magickExecutor.execute(MagickCommand.convert("composite", operations,
+            workspace.resolve("final_output.png")));
+    }
+
+    private void buildLayer(TemplateArea templateArea) throws Exception {
+        resize(templateArea);
+        distort(templateArea);
+        copyOpacity(templateArea);
+    }
+
+    private String resize(TemplateArea templateArea) throws Exception {
+        Path sourceFile = fixtures.getSourceFiles().get(templateArea.getSource() - 1);
+        return magickExecutor.execute(MagickCommand.convert("resize",
+            List.of(sourceFile.toString(), "-resize", MagickGeometry.size(layout.getBounds(templateArea)) + "!"),
+            resized(templateArea)));
+    }
+
+    private String distort(TemplateArea templateArea) throws Exception {
+        List<String> operations = new ArrayList<>(List.of(resized(templateArea).toString(), "-alpha", "set",
+            "-virtual-pixel", "transparent"));
+        operations.addAll(MagickGeometry.distort(templateArea, layout.getBounds(templateArea),
+            layout.isPrecompiled()));
+        return magickExecutor.execute(MagickCommand.convert("distort", operations, distorted(templateArea)));
+    }
+
+    private String copyOpacity(TemplateArea templateArea) throws Exception {
+        Path mask = TemplateGeometry.maskFile(fixtures.getTemplateFile().getParent(), templateArea);
+        return magickExecutor.execute(MagickCommand.convert("copy-opacity",
+            List.of(distorted(templateArea).toString(), mask.toString(), "-alpha", "off",
+                "-compose", "CopyOpacity", "-composite"),
+            layer(templateArea)));
+    }
+
+    private Path resized(TemplateArea templateArea) {
+        return workspace.resolve("resized_source_%d.png".formatted(templateArea.getIndex()));
+    }
+
+    private Path distorted(TemplateArea templateArea) {
+        return workspace.resolve("distorted_source_temp_%d.png".formatted(templateArea.getIndex()));
+    }
+
+    private Path layer(TemplateArea templateArea) {
+        return workspace.resolve("distorted_source_%d.png".formatted(templateArea.getIndex()));
+    }
+}
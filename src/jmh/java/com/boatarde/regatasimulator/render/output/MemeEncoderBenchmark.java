@@ -0,0 +1,84 @@
+package com.boatarde.regatasimulator.render.output;
+
+import com.boatarde.regatasimulator.render.AreaRenderExecutor;
+import com.boatarde.regatasimulator.render.BenchmarkFixtures;
+import com.boatarde.regatasimulator.render.RenderQuality;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding a rendered meme for upload, without a byte budget so only the configured quality is encoded.
+ * WebP is skipped when ImageMagick is not installed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemeEncoderBenchmark {
+
+    @Param({"png", "jpeg", "webp"})
+    private String format;
+
+    @Param({"720", "1080", "2160"})
+    private int resolution;
+
+    private BenchmarkFixtures fixtures;
+    private MemeEncoder encoder;
+    private RenderWorkspace workspace;
+    private Path rendered;
+    private EncodedMeme encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixtures = new BenchmarkFixtures(resolution, 3, true);
+        encoder = new MemeEncoder(format, 92, 50, 0, 75,
+            format.equals("webp") ? fixtures.magickExecutor() : null, fixtures.getMeterRegistry());
+        workspace = fixtures.openWorkspace();
+        AreaRenderExecutor areaRenderExecutor = new AreaRenderExecutor(4);
+        try {
+            rendered = fixtures.renderer("java", areaRenderExecutor).render(fixtures.request(workspace).build());
+        } finally {
+            areaRenderExecutor.shutdown();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workspace.close();
+        fixtures.close();
+    }
+
+    /**
+     * The encoder reuses candidates already on disk, so every invocation starts without them.
+     */
+    @TearDown(Level.Invocation)
+    public void deleteEncoded() throws Exception {
+        if (encoded != null && !encoded.getFile().equals(rendered)) {
+            Files.deleteIfExists(encoded.getFile());
+        }
+    }
+
+    @Benchmark
+    public EncodedMeme encode() throws Exception {
+        encoded = encoder.encode(rendered, workspace, RenderQuality.FULL);
+        return encoded;
+    }
+}
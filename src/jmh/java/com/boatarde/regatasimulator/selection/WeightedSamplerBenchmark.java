@@ -0,0 +1,85 @@
+package com.boatarde.regatasimulator.selection;
+
+import com.boatarde.regatasimulator.models.Source;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drawing three sources out of {@code poolSize}, against the copy and cumulative scan per draw that selection used
+ * before the pools.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeightedSamplerBenchmark {
+
+    private static final int AMOUNT = 3;
+
+    @Param({"1000", "10000"})
+    private int poolSize;
+
+    private final Random random = new Random(42);
+    private List<Source> sources;
+    private WeightedSampler sampler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sources = new ArrayList<>();
+        for (int i = 0; i < poolSize; i++) {
+            Source source = new Source();
+            source.setId(UUID.randomUUID());
+            source.setWeight(1 + random.nextInt(100));
+            sources.add(source);
+        }
+        sampler = WeightedSampler.of(sources);
+    }
+
+    @Benchmark
+    public List<UUID> sample() {
+        return sampler.sample(AMOUNT, random, null);
+    }
+
+    @Benchmark
+    public void updateWeight() {
+        sampler.put(sources.get(random.nextInt(poolSize)).getId(), 1 + random.nextInt(100));
+    }
+
+    @Benchmark
+    public List<UUID> cumulativeScan() {
+        List<Source> candidates = new ArrayList<>(sources);
+        List<UUID> selected = new ArrayList<>(AMOUNT);
+        for (int j = 0; j < AMOUNT; j++) {
+            int[] cumulativeWeights = new int[candidates.size()];
+            cumulativeWeights[0] = candidates.getFirst().getWeight();
+            for (int i = 1; i < candidates.size(); i++) {
+                cumulativeWeights[i] = cumulativeWeights[i - 1] + candidates.get(i).getWeight();
+            }
+            int target = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int index = 0;
+            while (cumulativeWeights[index] <= target) {
+                index++;
+            }
+            selected.add(candidates.remove(index).getId());
+        }
+        return selected;
+    }
+}
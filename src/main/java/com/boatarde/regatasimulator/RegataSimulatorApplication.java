@@ -1,7 +1,7 @@
 package com.boatarde.regatasimulator;
 
 import com.boatarde.regatasimulator.bots.RegataSimulatorBot;
-import io.jsondb.JsonDBTemplate;
+import com.boatarde.regatasimulator.store.DocumentStore;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
@@ -15,11 +15,11 @@ import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 public class RegataSimulatorApplication {
 
     private final RegataSimulatorBot regataSimulatorBot;
-    private final JsonDBTemplate jsonDBTemplate;
+    private final DocumentStore documentStore;
 
-    public RegataSimulatorApplication(RegataSimulatorBot regataSimulatorBot, JsonDBTemplate jsonDBTemplate) {
+    public RegataSimulatorApplication(RegataSimulatorBot regataSimulatorBot, DocumentStore documentStore) {
         this.regataSimulatorBot = regataSimulatorBot;
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.documentStore = documentStore;
     }
 
     public static void main(String[] args) {
@@ -36,11 +36,11 @@ public class RegataSimulatorApplication {
     }
 
     private void createCollectionIfAbsent(String collectionName) {
-        if (jsonDBTemplate.collectionExists(collectionName)) {
+        if (documentStore.collectionExists(collectionName)) {
             log.info("{} collection already exists", collectionName);
         } else {
             log.info("Creating {} collection", collectionName);
-            jsonDBTemplate.createCollection(collectionName);
+            documentStore.createCollection(collectionName);
         }
     }
 
@@ -0,0 +1,12 @@
+package com.boatarde.regatasimulator.catalog;
+
+import java.util.List;
+
+/**
+ * One page of a catalogue query.
+ *
+ * @param next  where the following page starts, {@code null} on the last page.
+ * @param total the number of entities matching the query.
+ */
+public record CatalogPage<T>(List<T> items, PageCursor next, int total) {
+}
@@ -0,0 +1,359 @@
+package com.boatarde.regatasimulator.catalog;
+
+import com.boatarde.regatasimulator.models.CommonEntity;
+import com.boatarde.regatasimulator.models.GalleryResponse;
+import com.boatarde.regatasimulator.models.Status;
+import com.boatarde.regatasimulator.service.WriteBehindService;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import com.boatarde.regatasimulator.util.JxQueryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Every entity of a collection kept in memory, indexed by status, author and lower-cased description. Queries start
+ * from the smallest matching index bucket and check the remaining conditions in Java, so they cost the number of
+ * matches instead of a JXPath evaluation over the whole collection. Buckets are kept in {@link PageCursor} order, so
+ * results come out in gallery order and {@link #page} reads only from its cursor on. Writes go to the
+ * {@link DocumentStore} first and then to memory, except for {@link #update}, which leaves the file to the
+ * {@link WriteBehindService}.
+ * <p>
+ * Entities go in and out as copies, like they did from JsonDB, so changing one never changes the catalogue: a change is
+ * seen once it is written, and a failed write leaves memory as it was. Changes to a single entity that must not undo
+ * concurrent ones, such as a weight decrease racing a precompilation, go through {@link #save(UUID, Consumer)} and
+ * {@link #update(UUID, Consumer)}, which apply them to the current entity. Copies share the Telegram message, which is
+ * never changed.
+ */
+@Slf4j
+public abstract class EntityCatalog<T extends CommonEntity> {
+
+    private final DocumentStore documentStore;
+    private final WriteBehindService writeBehindService;
+    private final Class<T> type;
+    private final Map<UUID, T> entities = new LinkedHashMap<>();
+    private final List<SecondaryIndex<T, ?>> indexes = new ArrayList<>();
+    private final SecondaryIndex<T, Boolean> byDate = addIndex(entity -> Boolean.TRUE);
+    private final SecondaryIndex<T, Status> byStatus = addIndex(CommonEntity::getStatus);
+    private final SecondaryIndex<T, Long> byAuthor = addIndex(EntityCatalog::authorId);
+    private final SecondaryIndex<T, String> byDescription = addIndex(entity -> lowerCase(description(entity)));
+    private boolean loaded;
+
+    protected EntityCatalog(DocumentStore documentStore, WriteBehindService writeBehindService, Class<T> type) {
+        this.documentStore = documentStore;
+        this.writeBehindService = writeBehindService;
+        this.type = type;
+    }
+
+    /**
+     * Loads the collection once it exists, instead of on the first request.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        load();
+    }
+
+    public synchronized Optional<T> findById(UUID id) {
+        load();
+        return Optional.ofNullable(entities.get(id)).map(this::copy);
+    }
+
+    public synchronized List<T> findAll() {
+        load();
+        return entities.values().stream()
+            .map(this::copy)
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * @return the entities matching {@code query}, in gallery order.
+     */
+    public synchronized List<T> find(JxQueryBuilder query) {
+        load();
+        return candidates(query).stream()
+            .map(position -> entities.get(position.id()))
+            .filter(entity -> matches(query, entity))
+            .map(this::copy)
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Reads up to {@code limit} entities matching {@code query}, in gallery order, starting right after {@code after}
+     * or from the first one when it is {@code null}, and then skipping {@code skip} matches. The cost is the number of
+     * index entries walked, not the size of the collection, except that the total of a query the index buckets cannot
+     * answer alone, such as a description search, is counted over the whole bucket.
+     */
+    public synchronized CatalogPage<T> page(JxQueryBuilder query, PageCursor after, long skip, int limit) {
+        load();
+        NavigableSet<PageCursor> candidates = candidates(query);
+        Iterator<PageCursor> positions = (after == null ? candidates : candidates.tailSet(after, false)).iterator();
+        List<T> items = new ArrayList<>();
+        long skipped = 0;
+        boolean more = false;
+        while (positions.hasNext()) {
+            T entity = entities.get(positions.next().id());
+            if (!matches(query, entity)) {
+                continue;
+            }
+            if (skipped < skip) {
+                skipped++;
+            } else if (items.size() < limit) {
+                items.add(copy(entity));
+            } else {
+                more = true;
+                break;
+            }
+        }
+        PageCursor next = more && !items.isEmpty() ? position(items.getLast()) : null;
+        return new CatalogPage<>(items, next, count(query, candidates));
+    }
+
+    /**
+     * A gallery page, read after {@code cursor} when given and by page number otherwise.
+     *
+     * @throws IllegalArgumentException when {@code cursor} is not a {@link PageCursor#encode() PageCursor}.
+     */
+    public GalleryResponse<T> gallery(JxQueryBuilder query, int page, int perPage, String cursor) {
+        CatalogPage<T> result = cursor == null || cursor.isBlank()
+            ? page(query, null, Math.max(page - 1, 0) * (long) perPage, perPage)
+            : page(query, PageCursor.decode(cursor), 0, perPage);
+        String nextCursor = result.next() == null ? null : result.next().encode();
+        return new GalleryResponse<>(result.items(), result.total(), nextCursor);
+    }
+
+    /**
+     * @return the entities whose description equals {@code description}, ignoring case.
+     */
+    public synchronized List<T> findByDescription(String description) {
+        load();
+        return byDescription.get(lowerCase(description)).stream()
+            .map(position -> copy(entities.get(position.id())))
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    public synchronized int count() {
+        load();
+        return entities.size();
+    }
+
+    public synchronized void insert(T entity) {
+        load();
+        writeBehindService.discard(type, entity.getId());
+        documentStore.insert(entity);
+        put(copy(entity));
+    }
+
+    public synchronized void insert(Collection<T> batch) {
+        load();
+        batch.forEach(entity -> writeBehindService.discard(type, entity.getId()));
+        documentStore.insert(batch, type);
+        batch.forEach(entity -> put(copy(entity)));
+    }
+
+    public synchronized void save(T entity) {
+        load();
+        writeBehindService.discard(type, entity.getId());
+        documentStore.save(entity, type);
+        put(copy(entity));
+    }
+
+    /**
+     * Applies {@code change} to a copy of the current entity and saves it, unless the entity is gone.
+     *
+     * @return a copy of the saved entity.
+     */
+    public synchronized Optional<T> save(UUID id, Consumer<T> change) {
+        load();
+        T current = entities.get(id);
+        if (current == null) {
+            return Optional.empty();
+        }
+        T changed = copy(current);
+        change.accept(changed);
+        save(changed);
+        return Optional.of(copy(changed));
+    }
+
+    public synchronized void upsert(T entity) {
+        load();
+        writeBehindService.discard(type, entity.getId());
+        documentStore.upsert(entity);
+        put(copy(entity));
+    }
+
+    /**
+     * Applies {@code entity} to the catalogue now and to the store on the next write-behind flush, for changes that can
+     * be lost in a crash, such as weights.
+     */
+    public synchronized void update(T entity) {
+        load();
+        T copy = copy(entity);
+        put(copy);
+        writeBehindService.upsert(type, copy.getId(), copy);
+    }
+
+    /**
+     * Like {@link #save(UUID, Consumer)}, but leaves the file to the write-behind flush like
+     * {@link #update(CommonEntity)}.
+     *
+     * @return a copy of the updated entity.
+     */
+    public synchronized Optional<T> update(UUID id, Consumer<T> change) {
+        load();
+        T current = entities.get(id);
+        if (current == null) {
+            return Optional.empty();
+        }
+        T changed = copy(current);
+        change.accept(changed);
+        update(changed);
+        return Optional.of(copy(changed));
+    }
+
+    public synchronized void upsert(Collection<T> batch) {
+        load();
+        batch.forEach(entity -> writeBehindService.discard(type, entity.getId()));
+        documentStore.upsert(batch, type);
+        batch.forEach(entity -> put(copy(entity)));
+    }
+
+    public synchronized T remove(T entity) {
+        load();
+        writeBehindService.discard(type, entity.getId());
+        T removed = documentStore.remove(entity, type);
+        entities.remove(entity.getId());
+        indexes.forEach(index -> index.remove(entity.getId()));
+        return removed;
+    }
+
+    /**
+     * @return a copy that can be changed without changing {@code entity}.
+     */
+    protected abstract T copy(T entity);
+
+    /**
+     * @return the description used by the description index and queries, {@code null} when the entity has none.
+     */
+    protected String description(T entity) {
+        return null;
+    }
+
+    protected final <K> SecondaryIndex<T, K> addIndex(Function<T, K> keyFunction) {
+        SecondaryIndex<T, K> index = new SecondaryIndex<>(keyFunction, this::position);
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * The loaded entities by id, to read along with an index added by a subclass while holding the catalogue's lock.
+     * They are the catalogue's own instances: hand out {@link #copy copies}.
+     */
+    protected final Map<UUID, T> entities() {
+        load();
+        return entities;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        documentStore.findAll(type).forEach(this::put);
+        log.info("{} catalogue loaded with {} entries", type.getSimpleName(), entities.size());
+    }
+
+    private void put(T entity) {
+        entities.put(entity.getId(), entity);
+        indexes.forEach(index -> index.update(entity));
+    }
+
+    private PageCursor position(T entity) {
+        return PageCursor.of(entity, description(entity));
+    }
+
+    private boolean matches(JxQueryBuilder query, T entity) {
+        if (!query.getStatusGroups().stream().allMatch(statuses -> statuses.contains(entity.getStatus()))) {
+            return false;
+        }
+        Long authorId = authorId(entity);
+        if (!query.getUserIdGroups().stream().allMatch(userIds -> userIds.contains(authorId))) {
+            return false;
+        }
+        if (query.getDescriptionGroups().isEmpty()) {
+            return true;
+        }
+        String description = lowerCase(description(entity));
+        return description != null && query.getDescriptionGroups().stream()
+            .allMatch(descriptions -> descriptions.stream().anyMatch(description::contains));
+    }
+
+    /**
+     * @return the smallest index bucket holding every match of {@code query}.
+     */
+    private NavigableSet<PageCursor> candidates(JxQueryBuilder query) {
+        NavigableSet<PageCursor> candidates = byDate.get(Boolean.TRUE);
+        for (Set<Status> statuses : query.getStatusGroups()) {
+            candidates = smaller(candidates, lookup(byStatus, statuses));
+        }
+        for (Set<Long> userIds : query.getUserIdGroups()) {
+            candidates = smaller(candidates, lookup(byAuthor, userIds));
+        }
+        return candidates;
+    }
+
+    /**
+     * The candidates are the matches themselves when the query has a single status or author condition and no
+     * description; otherwise they are checked one by one.
+     */
+    private int count(JxQueryBuilder query, NavigableSet<PageCursor> candidates) {
+        if (query.getDescriptionGroups().isEmpty()
+            && query.getStatusGroups().size() + query.getUserIdGroups().size() <= 1) {
+            return candidates.size();
+        }
+        return (int) candidates.stream()
+            .filter(position -> matches(query, entities.get(position.id())))
+            .count();
+    }
+
+    private static <K> NavigableSet<PageCursor> lookup(SecondaryIndex<?, K> index, Set<K> keys) {
+        if (keys.size() == 1) {
+            return index.get(keys.iterator().next());
+        }
+        NavigableSet<PageCursor> union = new TreeSet<>();
+        keys.forEach(key -> union.addAll(index.get(key)));
+        return union;
+    }
+
+    private static NavigableSet<PageCursor> smaller(NavigableSet<PageCursor> current,
+                                                    NavigableSet<PageCursor> candidate) {
+        return candidate.size() < current.size() ? candidate : current;
+    }
+
+    private static Long authorId(CommonEntity entity) {
+        return Optional.ofNullable(entity.getMessage())
+            .map(Message::getFrom)
+            .map(User::getId)
+            .orElse(null);
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
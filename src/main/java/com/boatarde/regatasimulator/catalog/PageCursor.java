@@ -0,0 +1,58 @@
+package com.boatarde.regatasimulator.catalog;
+
+import com.boatarde.regatasimulator.models.CommonEntity;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Position of an entity in the gallery order: newest message first, ties broken by lower-cased description and then by
+ * id. Sent to clients as an opaque string, so the next page starts right after the last entity shown instead of
+ * skipping over the previous pages.
+ *
+ * @param description the lower-cased description, empty when the entity has none.
+ */
+public record PageCursor(int date, String description, UUID id) implements Comparable<PageCursor> {
+
+    /**
+     * @param description the description the entity is ordered by, {@code null} when it has none.
+     */
+    public static PageCursor of(CommonEntity entity, String description) {
+        int date = Optional.ofNullable(entity.getMessage()).map(Message::getDate).orElse(0);
+        return new PageCursor(date, description == null ? "" : description.toLowerCase(Locale.ROOT), entity.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code value} was not produced by {@link #encode()}.
+     */
+    public static PageCursor decode(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            // the description goes last, since it may contain the separator; cursors without one predate it
+            String[] parts = decoded.split(":", 3);
+            return new PageCursor(Integer.parseInt(parts[0]), parts.length > 2 ? parts[2] : "",
+                UUID.fromString(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((date + ":" + id + ":" + description).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int compareTo(PageCursor other) {
+        int byDate = Integer.compare(other.date, date);
+        if (byDate != 0) {
+            return byDate;
+        }
+        int byDescription = description.compareTo(other.description);
+        return byDescription != 0 ? byDescription : other.id.compareTo(id);
+    }
+}
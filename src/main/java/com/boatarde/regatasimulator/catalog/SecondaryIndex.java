@@ -0,0 +1,70 @@
+package com.boatarde.regatasimulator.catalog;
+
+import com.boatarde.regatasimulator.models.CommonEntity;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Entities grouped by a key derived from them, each group kept in {@link PageCursor} order so it can be paged without
+ * sorting. The key and position each id was filed under are remembered, so an entity changed in place is moved on its
+ * next update. Entities with a {@code null} key are not indexed. Not thread-safe.
+ */
+final class SecondaryIndex<T extends CommonEntity, K> {
+
+    private static final NavigableSet<PageCursor> EMPTY = Collections.emptyNavigableSet();
+
+    private final Function<T, K> keyFunction;
+    private final Function<T, PageCursor> positionFunction;
+    private final Map<K, NavigableSet<PageCursor>> buckets = new HashMap<>();
+    private final Map<UUID, Filed<K>> filed = new HashMap<>();
+
+    SecondaryIndex(Function<T, K> keyFunction, Function<T, PageCursor> positionFunction) {
+        this.keyFunction = keyFunction;
+        this.positionFunction = positionFunction;
+    }
+
+    void update(T entity) {
+        K key = keyFunction.apply(entity);
+        PageCursor position = positionFunction.apply(entity);
+        Filed<K> previous = filed.get(entity.getId());
+        if (previous != null && Objects.equals(previous.key(), key) && previous.position().equals(position)) {
+            return;
+        }
+        remove(entity.getId());
+        if (key != null) {
+            filed.put(entity.getId(), new Filed<>(key, position));
+            buckets.computeIfAbsent(key, k -> new TreeSet<>()).add(position);
+        }
+    }
+
+    void remove(UUID id) {
+        Filed<K> previous = filed.remove(id);
+        if (previous == null) {
+            return;
+        }
+        NavigableSet<PageCursor> bucket = buckets.get(previous.key());
+        bucket.remove(previous.position());
+        if (bucket.isEmpty()) {
+            buckets.remove(previous.key());
+        }
+    }
+
+    NavigableSet<PageCursor> get(K key) {
+        return buckets.getOrDefault(key, EMPTY);
+    }
+
+    void clear() {
+        buckets.clear();
+        filed.clear();
+    }
+
+    private record Filed<K>(K key, PageCursor position) {
+    }
+}
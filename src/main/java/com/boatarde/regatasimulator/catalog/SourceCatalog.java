@@ -0,0 +1,30 @@
+package com.boatarde.regatasimulator.catalog;
+
+import com.boatarde.regatasimulator.models.Source;
+import com.boatarde.regatasimulator.service.WriteBehindService;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SourceCatalog extends EntityCatalog<Source> {
+
+    public SourceCatalog(DocumentStore documentStore, WriteBehindService writeBehindService) {
+        super(documentStore, writeBehindService, Source.class);
+    }
+
+    @Override
+    protected Source copy(Source source) {
+        Source copy = new Source();
+        copy.setId(source.getId());
+        copy.setWeight(source.getWeight());
+        copy.setMessage(source.getMessage());
+        copy.setStatus(source.getStatus());
+        copy.setDescription(source.getDescription());
+        return copy;
+    }
+
+    @Override
+    protected String description(Source source) {
+        return source.getDescription();
+    }
+}
@@ -0,0 +1,75 @@
+package com.boatarde.regatasimulator.catalog;
+
+import com.boatarde.regatasimulator.models.Status;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.service.WriteBehindService;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Component
+public class TemplateCatalog extends EntityCatalog<Template> {
+
+    private final SecondaryIndex<Template, Boolean> singleArea = addIndex(
+        template -> template.getAreas() != null && template.getAreas().size() == 1 ? Boolean.TRUE : null);
+
+    public TemplateCatalog(DocumentStore documentStore, WriteBehindService writeBehindService) {
+        super(documentStore, writeBehindService, Template.class);
+    }
+
+    /**
+     * @return the templates with a single area and the given status, used to preview a new source.
+     */
+    public synchronized List<Template> findSingleArea(Status status) {
+        Map<UUID, Template> entities = entities();
+        List<Template> templates = new ArrayList<>();
+        for (PageCursor position : singleArea.get(Boolean.TRUE)) {
+            Template template = entities.get(position.id());
+            if (template.getStatus() == status) {
+                templates.add(copy(template));
+            }
+        }
+        return templates;
+    }
+
+    @Override
+    protected Template copy(Template template) {
+        return copyOf(template);
+    }
+
+    /**
+     * @return a copy of the template with copies of its areas, which precompilation and source id changes modify.
+     * Corners, bounds and perspective coefficients are shared: they are replaced, never changed in place.
+     */
+    public static Template copyOf(Template template) {
+        Template copy = Template.builder()
+            .areas(template.getAreas() == null ? null : template.getAreas().stream()
+                .map(area -> TemplateArea.builder()
+                    .index(area.getIndex())
+                    .source(area.getSource())
+                    .topLeft(area.getTopLeft())
+                    .topRight(area.getTopRight())
+                    .bottomRight(area.getBottomRight())
+                    .bottomLeft(area.getBottomLeft())
+                    .background(area.isBackground())
+                    .bounds(area.getBounds())
+                    .perspective(area.getPerspective())
+                    .build())
+                .collect(Collectors.toCollection(ArrayList::new)))
+            .width(template.getWidth())
+            .height(template.getHeight())
+            .assetsVersion(template.getAssetsVersion())
+            .build();
+        copy.setId(template.getId());
+        copy.setWeight(template.getWeight());
+        copy.setMessage(template.getMessage());
+        copy.setStatus(template.getStatus());
+        return copy;
+    }
+}
@@ -2,6 +2,7 @@ package com.boatarde.regatasimulator.configuration;
 
 import io.jsondb.JsonDBTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,6 +16,7 @@ public class JsonDBConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(name = "regata-simulator.database.engine", havingValue = "jsondb", matchIfMissing = true)
     public JsonDBTemplate jsonDBTemplate() {
         String baseScanPackage = "com.boatarde.regatasimulator.models";
 
@@ -0,0 +1,39 @@
+package com.boatarde.regatasimulator.configuration;
+
+import com.boatarde.regatasimulator.service.WarmUpService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Progress of the startup warm-up. Always up: a cold cache only makes the first memes slower.
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final WarmUpService warmUpService;
+
+    public WarmUpHealthIndicator(WarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up()
+            .withDetail("state", warmUpService.getState())
+            .withDetail("completed", warmUpService.getCompleted())
+            .withDetail("total", warmUpService.getTotal())
+            .withDetail("failed", warmUpService.getFailed());
+        Instant startedAt = warmUpService.getStartedAt();
+        if (startedAt != null) {
+            Instant finishedAt = warmUpService.getFinishedAt();
+            builder.withDetail("startedAt", startedAt.toString())
+                .withDetail("elapsedMillis", Duration.between(startedAt,
+                    finishedAt != null ? finishedAt : Instant.now()).toMillis());
+        }
+        return builder.build();
+    }
+}
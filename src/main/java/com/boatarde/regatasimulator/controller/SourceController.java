@@ -50,9 +50,14 @@ public class SourceController {
     public ResponseEntity<GalleryResponse<Source>> getAllSources(@RequestParam(defaultValue = "1") int page,
                                                                  @RequestParam(defaultValue = "12") int perPage,
                                                                  @RequestParam(required = false) Status status,
-                                                                 @RequestParam(required = false) Long userId) {
-        GalleryResponse<Source> response = sourceService.getSources(page, perPage, status, userId);
-        return ResponseEntity.ok(response);
+                                                                 @RequestParam(required = false) Long userId,
+                                                                 @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(sourceService.getSources(page, perPage, cursor, status, userId));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected gallery request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}.png")
@@ -126,8 +131,12 @@ public class SourceController {
 
     @PostMapping("/search")
     public ResponseEntity<GalleryResponse<Source>> searchSources(@RequestBody SearchCriteria criteria) {
-        GalleryResponse<Source> response = sourceService.search(criteria);
-        return ResponseEntity.ok(response);
+        try {
+            return ResponseEntity.ok(sourceService.search(criteria));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     private Source getSource(UUID id) {
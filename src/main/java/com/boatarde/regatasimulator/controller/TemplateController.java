@@ -8,6 +8,7 @@ import com.boatarde.regatasimulator.models.Status;
 import com.boatarde.regatasimulator.models.Template;
 import com.boatarde.regatasimulator.service.RouterService;
 import com.boatarde.regatasimulator.service.TemplateService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +25,7 @@ import org.telegram.telegrambots.meta.api.objects.Update;
 
 import java.util.UUID;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/templates")
 public class TemplateController {
@@ -42,9 +44,14 @@ public class TemplateController {
     public ResponseEntity<GalleryResponse<Template>> getTemplates(@RequestParam(defaultValue = "1") int page,
                                                                   @RequestParam(defaultValue = "12") int perPage,
                                                                   @RequestParam(required = false) Status status,
-                                                                  @RequestParam(required = false) Long userId) {
-        GalleryResponse<Template> response = templateService.getTemplates(page, perPage, status, userId);
-        return ResponseEntity.ok(response);
+                                                                  @RequestParam(required = false) Long userId,
+                                                                  @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(templateService.getTemplates(page, perPage, cursor, status, userId));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected gallery request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}.png")
@@ -109,6 +116,11 @@ public class TemplateController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/precompile")
+    public ResponseEntity<Integer> precompileTemplates() {
+        return ResponseEntity.ok(templateService.precompileAllTemplates());
+    }
+
     private Template getTemplate(UUID id) {
         return templateService.getTemplate(id)
             .orElseThrow(() -> new RuntimeException("Template not found: " + id));
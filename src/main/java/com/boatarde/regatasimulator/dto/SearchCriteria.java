@@ -9,4 +9,8 @@ public class SearchCriteria {
     private Status status;
     private int page;
     private int perPage;
+    /**
+     * The {@code nextCursor} of the previous page; when set, {@code page} is ignored.
+     */
+    private String cursor;
 }
@@ -2,6 +2,7 @@ package com.boatarde.regatasimulator.flows;
 
 public enum WorkflowDataKey {
     MEME_FILE, REGATA_SIMULATOR_BOT, SEND_MESSAGE, SOURCE_FILES, TELEGRAM_UPDATE, TEMPLATE_FILE, TEMPLATE_AREAS,
-    TEMPLATE, SOURCES, MEMES_HISTORY, MESSAGE_TO_REPLY, CREATING_SOURCE_MESSAGE,
-    SEND_PHOTO, CREATING_TEMPLATE_MESSAGE
+    TEMPLATE, SOURCES, MESSAGE_TO_REPLY, CREATING_SOURCE_MESSAGE,
+    SEND_PHOTO, CREATING_TEMPLATE_MESSAGE, RENDER_WORKSPACE,
+    ENCODED_MEME, EXCLUDED_IDS, RENDER_PRIORITY
 }
@@ -7,6 +7,7 @@ import com.boatarde.regatasimulator.flows.WorkflowDataKey;
 import com.boatarde.regatasimulator.flows.WorkflowStep;
 import com.boatarde.regatasimulator.flows.WorkflowStepRegistration;
 import com.boatarde.regatasimulator.service.BackupService;
+import com.boatarde.regatasimulator.service.WriteBehindService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
@@ -19,16 +20,19 @@ public class BackupJsonDBStep implements WorkflowStep {
 
     private final String jsonDbPath;
     private final BackupService backupService;
+    private final WriteBehindService writeBehindService;
 
     public BackupJsonDBStep(@Value("${regata-simulator.database.path}") String jsonDbPath,
-                            BackupService backupService) {
+                            BackupService backupService, WriteBehindService writeBehindService) {
         this.jsonDbPath = jsonDbPath;
         this.backupService = backupService;
+        this.writeBehindService = writeBehindService;
     }
 
     @Override
     public WorkflowAction run(WorkflowDataBag bag) {
         RegataSimulatorBot regataSimulatorBot = bag.get(WorkflowDataKey.REGATA_SIMULATOR_BOT, RegataSimulatorBot.class);
+        writeBehindService.flush();
         try {
             backupService.zipToTelegram(regataSimulatorBot, jsonDbPath, "jsondb");
         } catch (IOException | TelegramApiException e) {
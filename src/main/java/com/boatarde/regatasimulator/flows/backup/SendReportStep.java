@@ -1,5 +1,7 @@
 package com.boatarde.regatasimulator.flows.backup;
 
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
 import com.boatarde.regatasimulator.flows.WorkflowAction;
 import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
@@ -8,8 +10,8 @@ import com.boatarde.regatasimulator.flows.WorkflowStepRegistration;
 import com.boatarde.regatasimulator.models.Author;
 import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.store.DocumentStore;
 import com.boatarde.regatasimulator.util.JsonDBUtils;
-import io.jsondb.JsonDBTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
@@ -22,11 +24,16 @@ import java.util.Map;
 @WorkflowStepRegistration(WorkflowAction.SEND_REPORT_STEP)
 public class SendReportStep implements WorkflowStep {
 
-    private final JsonDBTemplate jsonDBTemplate;
+    private final DocumentStore documentStore;
+    private final SourceCatalog sourceCatalog;
+    private final TemplateCatalog templateCatalog;
 
 
-    public SendReportStep(JsonDBTemplate jsonDBTemplate) {
-        this.jsonDBTemplate = jsonDBTemplate;
+    public SendReportStep(DocumentStore documentStore, SourceCatalog sourceCatalog,
+                          TemplateCatalog templateCatalog) {
+        this.documentStore = documentStore;
+        this.sourceCatalog = sourceCatalog;
+        this.templateCatalog = templateCatalog;
     }
 
     @Override
@@ -57,9 +64,9 @@ public class SendReportStep implements WorkflowStep {
 
     private String getReportText() {
         // Retrieve the data from the database
-        List<Template> templates = jsonDBTemplate.findAll(Template.class);
-        List<Source> sources = jsonDBTemplate.findAll(Source.class);
-        List<Author> authors = jsonDBTemplate.findAll(Author.class);
+        List<Template> templates = templateCatalog.findAll();
+        List<Source> sources = sourceCatalog.findAll();
+        List<Author> authors = documentStore.findAll(Author.class);
 
         StringBuilder builder = new StringBuilder();
 
@@ -6,66 +6,108 @@ import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
 import com.boatarde.regatasimulator.flows.WorkflowStep;
 import com.boatarde.regatasimulator.flows.WorkflowStepRegistration;
+import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Template;
-import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.MemeRenderer;
+import com.boatarde.regatasimulator.render.RenderGovernor;
+import com.boatarde.regatasimulator.render.RenderPriority;
+import com.boatarde.regatasimulator.render.RenderQuality;
+import com.boatarde.regatasimulator.render.RenderRequest;
+import com.boatarde.regatasimulator.render.RenderWatchdog;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
+import com.boatarde.regatasimulator.render.RenderWorkspaceManager;
+import com.boatarde.regatasimulator.render.output.EncodedMeme;
+import com.boatarde.regatasimulator.render.output.MemeEncoder;
+import com.boatarde.regatasimulator.service.ProgressReporterService;
+import com.boatarde.regatasimulator.util.ProgressReporter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @WorkflowStepRegistration(WorkflowAction.BUILD_MEME_STEP)
 public class BuildMemeStep implements WorkflowStep {
 
-    private final String magickPath;
-
-    public BuildMemeStep(@Value("${magick.path}") String magickPath) {
-        this.magickPath = magickPath;
+    private final MemeRenderer memeRenderer;
+    private final RenderWorkspaceManager renderWorkspaceManager;
+    private final MemeEncoder memeEncoder;
+    private final ProgressReporterService progressReporterService;
+    private final RenderGovernor renderGovernor;
+    private final RenderWatchdog renderWatchdog;
+    private final int previewMaxSide;
+
+    public BuildMemeStep(MemeRenderer memeRenderer, RenderWorkspaceManager renderWorkspaceManager,
+                         MemeEncoder memeEncoder, ProgressReporterService progressReporterService,
+                         RenderGovernor renderGovernor, RenderWatchdog renderWatchdog,
+                         @Value("${regata-simulator.render.preview.max-side}") int previewMaxSide) {
+        this.memeRenderer = memeRenderer;
+        this.renderWorkspaceManager = renderWorkspaceManager;
+        this.memeEncoder = memeEncoder;
+        this.progressReporterService = progressReporterService;
+        this.renderGovernor = renderGovernor;
+        this.renderWatchdog = renderWatchdog;
+        this.previewMaxSide = previewMaxSide;
     }
 
     @Override
     public WorkflowAction run(WorkflowDataBag bag) {
-        editCreatingTemplateMessage(bag, 0);
-
         List<Path> sourceFiles = bag.getGeneric(WorkflowDataKey.SOURCE_FILES, List.class, Path.class);
 
         Path templateFile = bag.get(WorkflowDataKey.TEMPLATE_FILE, Path.class);
         Template template = bag.get(WorkflowDataKey.TEMPLATE, Template.class);
-
-        var distortedSources = new ArrayList<Path>();
-        try {
-            int templateAreasCount = template.getAreas().size();
-            for (int i = 0; i < templateAreasCount; i++) {
-                TemplateArea templateArea = template.getAreas().get(i);
-                distortedSources.add(i,
-                    buildDistortedSource(templateFile, sourceFiles.get(templateArea.getSource() - 1), templateArea));
-                int progress = (i + 1) * 100 / (templateAreasCount + 2);
-                editCreatingTemplateMessage(bag, progress);
-            }
-            int progress = (templateAreasCount + 1) * 100 / (templateAreasCount + 2);
-            editCreatingTemplateMessage(bag, progress);
-            Path result =
-                compositeFinalImage(templateFile, templateFile.getParent(), distortedSources, template.getAreas());
-            bag.put(WorkflowDataKey.MEME_FILE, result);
+        List<Source> sources = bag.getGeneric(WorkflowDataKey.SOURCES, List.class, Source.class);
+        // test memes for a new template or source only have to show the alignment
+        RenderQuality quality = bag.get(WorkflowDataKey.CREATING_TEMPLATE_MESSAGE, Message.class) != null
+            || bag.get(WorkflowDataKey.CREATING_SOURCE_MESSAGE, Message.class) != null
+            ? RenderQuality.PREVIEW
+            : RenderQuality.FULL;
+        RenderPriority priority = Optional.ofNullable(bag.get(WorkflowDataKey.RENDER_PRIORITY, RenderPriority.class))
+            .orElse(RenderPriority.INTERACTIVE);
+
+        try (ProgressReporter progressReporter = progressReporterService.create(progress ->
+            editCreatingTemplateMessage(bag, progressText(progress)))) {
+            progressReporter.report(0);
+            // the deadline covers the wait for a render slot too; an expired wait leaves the queue
+            EncodedMeme encodedMeme = renderWatchdog.run(() -> renderGovernor.run(priority, () -> {
+                // the workspace outlives this step because the meme is sent from it; the router closes it
+                RenderWorkspace workspace = renderWorkspaceManager.open();
+                bag.put(WorkflowDataKey.RENDER_WORKSPACE, workspace);
+                RenderRequest request = RenderRequest.builder()
+                    .template(template)
+                    .templateFile(templateFile)
+                    .sourceFiles(sourceFiles)
+                    .sourceIds(sources == null ? null : sources.stream().map(Source::getId).toList())
+                    .workspace(workspace)
+                    .quality(quality)
+                    .maxSide(quality == RenderQuality.PREVIEW ? previewMaxSide : 0)
+                    .progressListener((completedStages, totalStages) ->
+                        progressReporter.report(completedStages * 100 / (totalStages + 1)))
+                    .build();
+                Path result = memeRenderer.render(request);
+                return memeEncoder.encode(result, workspace, quality);
+            }));
+            bag.put(WorkflowDataKey.MEME_FILE, encodedMeme.getFile());
+            bag.put(WorkflowDataKey.ENCODED_MEME, encodedMeme);
+        } catch (RejectedExecutionException e) {
+            log.warn("Meme not rendered: {}", e.getMessage());
+            editCreatingTemplateMessage(bag, "Muitos memes sendo gerados agora, tente novamente mais tarde.");
+            return WorkflowAction.NONE;
         } catch (Exception e) {
             log.error(e.getLocalizedMessage(), e);
             return WorkflowAction.NONE;
-        } finally {
-            distortedSources.forEach(p -> p.toFile().delete());
         }
 
         return WorkflowAction.SEND_MEME_STEP;
     }
 
-    private void editCreatingTemplateMessage(WorkflowDataBag bag, int progress) {
+    private void editCreatingTemplateMessage(WorkflowDataBag bag, String text) {
         Message creatingTemplateMessage = bag.get(WorkflowDataKey.CREATING_TEMPLATE_MESSAGE, Message.class);
         if (creatingTemplateMessage != null) {
             try {
@@ -73,7 +115,7 @@ public class BuildMemeStep implements WorkflowStep {
                     .execute(EditMessageText.builder()
                         .chatId(creatingTemplateMessage.getChatId())
                         .messageId(creatingTemplateMessage.getMessageId())
-                        .text("Gerando meme de teste...\n<code>%s</code>".formatted(generateProgressBar(progress)))
+                        .text(text)
                         .parseMode("HTML")
                         .build());
             } catch (TelegramApiException e) {
@@ -82,118 +124,14 @@ public class BuildMemeStep implements WorkflowStep {
         }
     }
 
+    private String progressText(int progress) {
+        return "Gerando meme de teste...\n<code>%s</code>".formatted(generateProgressBar(progress));
+    }
+
     private String generateProgressBar(int progress) {
         int totalBars = 20;
         int filledBars = (progress * totalBars) / 100;
         int emptyBars = totalBars - filledBars;
         return "[" + "=".repeat(filledBars) + " ".repeat(emptyBars) + "] " + progress + "%";
     }
-
-    private Path buildDistortedSource(Path templateFile, Path sourceFile, TemplateArea templateArea) throws Exception {
-        Path templateDir = templateFile.getParent();
-        Path resizedSource = templateDir.resolve("resized_source.png");
-        Path distortedSourceTemp = templateDir.resolve("distorted_source_temp.png");
-        Path distortedSource = templateDir.resolve("distorted_source_%d.png".formatted(templateArea.getIndex()));
-
-        try {
-            log.info("running command: {} identify -format %w %h {}", magickPath, templateFile);
-            ProcessBuilder pb = new ProcessBuilder(magickPath, "identify", "-format", "%w %h", templateFile.toString());
-            Process process = pb.start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String[] dimensions = reader.readLine().split(" ");
-            int width = Integer.parseInt(dimensions[0]);
-            int height = Integer.parseInt(dimensions[1]);
-            process.waitFor();
-
-            // Resize source image
-            log.info("running command: {} {} -resize {}x{}! {}", magickPath, sourceFile.toString(), width, height,
-                resizedSource);
-            pb = new ProcessBuilder(magickPath, sourceFile.toString(), "-resize", width + "x" + height + "!",
-                resizedSource.toString());
-            pb.start().waitFor();
-
-            // Distort source image
-            String coordinates = String.format("0,0 %d,%d 0,%d %d,%d %d,0 %d,%d %d,%d %d,%d",
-                templateArea.getTopLeft().getX(), templateArea.getTopLeft().getY(),
-                height, templateArea.getBottomLeft().getX(), templateArea.getBottomLeft().getY(),
-                width, templateArea.getTopRight().getX(), templateArea.getTopRight().getY(),
-                width, height, templateArea.getBottomRight().getX(), templateArea.getBottomRight().getY());
-            log.info("running command: {} {} -alpha set -virtual-pixel transparent -distort Perspective {} {}",
-                magickPath, resizedSource, coordinates, distortedSourceTemp);
-            pb = new ProcessBuilder(magickPath, resizedSource.toString(), "-alpha", "set", "-virtual-pixel",
-                "transparent",
-                "-distort", "Perspective", coordinates, distortedSourceTemp.toString());
-            pb.start().waitFor();
-
-            // Create mask
-            Path mask = templateDir.resolve(String.format("mask_%d.png", templateArea.getIndex()));
-            if (!mask.toFile().exists()) {
-                String drawCommand = String.format("polygon %d,%d %d,%d %d,%d %d,%d",
-                    templateArea.getTopLeft().getX(), templateArea.getTopLeft().getY(),
-                    templateArea.getTopRight().getX(), templateArea.getTopRight().getY(),
-                    templateArea.getBottomRight().getX(), templateArea.getBottomRight().getY(),
-                    templateArea.getBottomLeft().getX(), templateArea.getBottomLeft().getY());
-                log.info("Mask not found: running command: {} -size {}x{} xc:black -fill white -draw {} {}", magickPath,
-                    width, height,
-                    drawCommand, mask);
-                pb = new ProcessBuilder(magickPath, "-size", width + "x" + height, "xc:black", "-fill", "white",
-                    "-draw", drawCommand, mask.toString());
-                pb.start().waitFor();
-            }
-
-            // Apply mask to distorted source
-            log.info("running command: {} {} {} -alpha off -compose CopyOpacity -composite {}", magickPath,
-                distortedSourceTemp, mask, distortedSource);
-            pb = new ProcessBuilder(magickPath, distortedSourceTemp.toString(), mask.toString(), "-alpha", "off",
-                "-compose", "CopyOpacity", "-composite", distortedSource.toString());
-            pb.start().waitFor();
-
-            return distortedSource;
-        } finally {
-            resizedSource.toFile().delete();
-            distortedSourceTemp.toFile().delete();
-        }
-    }
-
-    private Path compositeFinalImage(Path templateFile, Path templateDir, List<Path> distortedSources,
-                                     List<TemplateArea> templateAreaList)
-        throws InterruptedException, IOException {
-        ProcessBuilder pb;
-        // Composite final image
-        Path finalOutput = templateDir.resolve("final_output.png");
-
-        List<String> command = new ArrayList<>();
-        command.add(magickPath);
-
-        templateAreaList.stream().filter(TemplateArea::isBackground).forEach(templateArea -> {
-            if (command.size() > 2) {
-                command.add("-composite");
-            }
-            command.add(distortedSources.get(templateArea.getIndex() - 1).toString());
-        });
-
-        if (command.size() > 2) {
-            command.add("-composite");
-        }
-        command.add(templateFile.toString());
-
-        templateAreaList.stream().filter(area -> !area.isBackground()).forEach(templateArea -> {
-            if (command.size() > 2) {
-                command.add("-composite");
-            }
-            command.add(distortedSources.get(templateArea.getIndex() - 1).toString());
-        });
-
-        if (command.size() > 2) {
-            command.add("-composite");
-        }
-        command.add(finalOutput.toString());
-
-        log.info("running command: {}", String.join(" ", command));
-        pb = new ProcessBuilder(command.toArray(new String[0]));
-        pb.start().waitFor();
-
-        return finalOutput;
-    }
-
 }
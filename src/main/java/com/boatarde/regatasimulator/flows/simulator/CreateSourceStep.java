@@ -1,6 +1,7 @@
 package com.boatarde.regatasimulator.flows.simulator;
 
 import com.boatarde.regatasimulator.bots.RegataSimulatorBot;
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
 import com.boatarde.regatasimulator.flows.WorkflowAction;
 import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
@@ -10,9 +11,9 @@ import com.boatarde.regatasimulator.models.Author;
 import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Status;
 import com.boatarde.regatasimulator.service.SourceService;
+import com.boatarde.regatasimulator.store.DocumentStore;
 import com.boatarde.regatasimulator.util.FileUtils;
 import com.boatarde.regatasimulator.util.TelegramUtils;
-import io.jsondb.JsonDBTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
@@ -35,18 +36,20 @@ import java.util.UUID;
 public class CreateSourceStep implements WorkflowStep {
 
     private final String sourcesPathString;
-    private final JsonDBTemplate jsonDBTemplate;
+    private final DocumentStore documentStore;
     private final int initialWeight;
     private final SourceService sourceService;
+    private final SourceCatalog sourceCatalog;
 
     public CreateSourceStep(@Value("${regata-simulator.sources.path}") String sourcesPathString,
-                            JsonDBTemplate jsonDBTemplate,
+                            DocumentStore documentStore,
                             @Value("${regata-simulator.sources.initial-weight}") int initialWeight,
-                            SourceService sourceService) {
+                            SourceService sourceService, SourceCatalog sourceCatalog) {
         this.sourcesPathString = sourcesPathString;
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.documentStore = documentStore;
         this.initialWeight = initialWeight;
         this.sourceService = sourceService;
+        this.sourceCatalog = sourceCatalog;
     }
 
     @Override
@@ -153,12 +156,12 @@ public class CreateSourceStep implements WorkflowStep {
 
     private void saveAuthor(Author author) {
         log.info("Inserting or updating author {} into collection.", author.getId());
-        jsonDBTemplate.upsert(author);
+        documentStore.upsert(author);
     }
 
     private void saveSource(Source source) {
         log.info("Inserting source {} into collection.", source.getId());
-        jsonDBTemplate.insert(source);
+        sourceCatalog.insert(source);
     }
 
     private String extractDescription(String caption) {
@@ -177,12 +180,7 @@ public class CreateSourceStep implements WorkflowStep {
             return null;
         }
 
-        String lowerCaseDescription = description.toLowerCase();
-        List<Source> existingSources = jsonDBTemplate.findAll(Source.class);
-
-        return existingSources.stream()
-            .filter(s -> s.getDescription() != null &&
-                s.getDescription().toLowerCase().equals(lowerCaseDescription))
+        return sourceCatalog.findByDescription(description).stream()
             .findFirst()
             .orElse(null);
     }
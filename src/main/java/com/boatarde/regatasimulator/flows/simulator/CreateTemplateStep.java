@@ -1,6 +1,7 @@
 package com.boatarde.regatasimulator.flows.simulator;
 
 import com.boatarde.regatasimulator.bots.RegataSimulatorBot;
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
 import com.boatarde.regatasimulator.flows.WorkflowAction;
 import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
@@ -9,10 +10,11 @@ import com.boatarde.regatasimulator.flows.WorkflowStepRegistration;
 import com.boatarde.regatasimulator.models.Author;
 import com.boatarde.regatasimulator.models.Status;
 import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.service.TemplateAssetsService;
+import com.boatarde.regatasimulator.store.DocumentStore;
 import com.boatarde.regatasimulator.util.FileUtils;
 import com.boatarde.regatasimulator.util.JsonDBUtils;
 import com.boatarde.regatasimulator.util.TelegramUtils;
-import io.jsondb.JsonDBTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
@@ -30,15 +32,20 @@ import java.util.UUID;
 public class CreateTemplateStep implements WorkflowStep {
 
     private final String templatesPathString;
-    private final JsonDBTemplate jsonDBTemplate;
+    private final DocumentStore documentStore;
     private final int initialWeight;
+    private final TemplateAssetsService templateAssetsService;
+    private final TemplateCatalog templateCatalog;
 
     public CreateTemplateStep(@Value("${regata-simulator.templates.path}") String templatesPathString,
-                              JsonDBTemplate jsonDBTemplate,
-                              @Value("${regata-simulator.templates.initial-weight}") int initialWeight) {
+                              DocumentStore documentStore,
+                              @Value("${regata-simulator.templates.initial-weight}") int initialWeight,
+                              TemplateAssetsService templateAssetsService, TemplateCatalog templateCatalog) {
         this.templatesPathString = templatesPathString;
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.documentStore = documentStore;
         this.initialWeight = initialWeight;
+        this.templateAssetsService = templateAssetsService;
+        this.templateCatalog = templateCatalog;
     }
 
     @Override
@@ -61,12 +68,13 @@ public class CreateTemplateStep implements WorkflowStep {
 
             String csvContent = update.getMessage().getCaption();
 
-            Template template = new Template();
-            template.setId(uuid);
-            template.setStatus(Status.REVIEW);
-            template.setWeight(initialWeight);
-            template.setMessage(update.getMessage());
-            template.setAreas(JsonDBUtils.parseTemplateCsv(csvContent));
+            Template draft = new Template();
+            draft.setId(uuid);
+            draft.setStatus(Status.REVIEW);
+            draft.setWeight(initialWeight);
+            draft.setMessage(update.getMessage());
+            draft.setAreas(JsonDBUtils.parseTemplateCsv(csvContent));
+            Template template = templateAssetsService.precompile(draft, templateFile);
 
             Message response = bot.execute(SendMessage.builder()
                 .chatId(update.getMessage().getChatId().toString())
@@ -103,11 +111,11 @@ public class CreateTemplateStep implements WorkflowStep {
 
     private void saveAuthor(Author author) {
         log.info("Inserting or updating author {} into collection.", author.getId());
-        jsonDBTemplate.upsert(author);
+        documentStore.upsert(author);
     }
 
     private void saveTemplate(Template template) {
         log.info("Inserting template {} into collection.", template.getId());
-        jsonDBTemplate.insert(template);
+        templateCatalog.insert(template);
     }
 }
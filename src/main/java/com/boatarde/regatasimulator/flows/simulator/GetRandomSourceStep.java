@@ -1,19 +1,22 @@
 package com.boatarde.regatasimulator.flows.simulator;
 
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
 import com.boatarde.regatasimulator.flows.WorkflowAction;
 import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
 import com.boatarde.regatasimulator.flows.WorkflowStep;
 import com.boatarde.regatasimulator.flows.WorkflowStepRegistration;
-import com.boatarde.regatasimulator.models.Meme;
 import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Status;
 import com.boatarde.regatasimulator.models.Template;
 import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.selection.MemeFingerprintIndex;
+import com.boatarde.regatasimulator.selection.MemeHistoryIndex;
+import com.boatarde.regatasimulator.selection.WeightedPoolService;
+import com.boatarde.regatasimulator.selection.WeightedSampler;
 import com.boatarde.regatasimulator.util.FileUtils;
 import com.boatarde.regatasimulator.util.JsonDBUtils;
 import com.boatarde.regatasimulator.util.JxQueryBuilder;
-import io.jsondb.JsonDBTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -23,20 +26,33 @@ import java.time.Month;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @WorkflowStepRegistration(WorkflowAction.GET_RANDOM_SOURCE)
 public class GetRandomSourceStep implements WorkflowStep {
 
+    private static final int MAX_SELECTION_ATTEMPTS = 10;
+
     private final String sourcesPathString;
-    private final JsonDBTemplate jsonDBTemplate;
+    private final SourceCatalog sourceCatalog;
+    private final MemeFingerprintIndex memeFingerprintIndex;
+    private final WeightedPoolService weightedPoolService;
+    private final MemeHistoryIndex memeHistoryIndex;
 
     public GetRandomSourceStep(@Value("${regata-simulator.sources.path}") String sourcesPathString,
-                               JsonDBTemplate jsonDBTemplate) {
+                               SourceCatalog sourceCatalog, MemeFingerprintIndex memeFingerprintIndex,
+                               WeightedPoolService weightedPoolService, MemeHistoryIndex memeHistoryIndex) {
         this.sourcesPathString = sourcesPathString;
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.sourceCatalog = sourceCatalog;
+        this.memeFingerprintIndex = memeFingerprintIndex;
+        this.weightedPoolService = weightedPoolService;
+        this.memeHistoryIndex = memeHistoryIndex;
     }
 
     @Override
@@ -44,38 +60,37 @@ public class GetRandomSourceStep implements WorkflowStep {
         Template template = bag.getGeneric(WorkflowDataKey.TEMPLATE, Template.class);
         Path sourcesDirectory = Paths.get(sourcesPathString);
 
-        JxQueryBuilder jxQueryBuilder = JsonDBUtils.jxQuery()
-            .withStatus(Status.APPROVED);
-
-        addBirthdayFilter(jxQueryBuilder);
+        int sourceCount = (int) template.getAreas().stream()
+            .map(TemplateArea::getSource)
+            .distinct()
+            .count();
+        Set<UUID> excludedIds = bag.getGeneric(WorkflowDataKey.EXCLUDED_IDS, Set.class, UUID.class);
 
-        List<Source> approvedSources = jsonDBTemplate.find(jxQueryBuilder.build(), Source.class);
-        if (approvedSources.isEmpty()) {
+        String[] birthdayDescriptions = getBirthdayDescriptions();
+        List<UUID> sourceIds;
+        if (birthdayDescriptions.length > 0) {
+            JxQueryBuilder jxQuery = JsonDBUtils.jxQuery()
+                .withStatus(Status.APPROVED)
+                .withDescription(birthdayDescriptions);
+            WeightedSampler birthdaySources = WeightedSampler.of(sourceCatalog.find(jxQuery));
+            sourceIds = selectUnposted(birthdaySources, template, excludedIds, sourceCount);
+        } else {
+            sourceIds = weightedPoolService.withSources(
+                approvedSources -> selectUnposted(approvedSources, template, excludedIds, sourceCount));
+        }
+        if (sourceIds.isEmpty()) {
             log.error("No sources found.");
             return WorkflowAction.NONE;
         }
 
-        // remove sources that have already been used from pool
-        List<Meme> memesHistory = bag.getGeneric(WorkflowDataKey.MEMES_HISTORY, List.class, Meme.class);
-        if (memesHistory == null) {
-            memesHistory = jsonDBTemplate.findAll(Meme.class).stream()
-                .sorted(JsonDBUtils.getMemeComparator().reversed())
-                .toList();
-            bag.put(WorkflowDataKey.MEMES_HISTORY, memesHistory);
-        }
-        memesHistory.stream()
-            .flatMap(meme -> meme.getSourceIds().stream())
-            .distinct()
-            .limit((long) Math.ceil(approvedSources.size() * 0.75))
-            .forEach(sourceId -> approvedSources.removeIf(source -> source.getId().equals(sourceId)));
-
-        List<Source> sources = JsonDBUtils.selectSourcesWithWeight(approvedSources, (int) template.getAreas().stream()
-            .map(TemplateArea::getSource)
-            .distinct()
-            .count());
+        List<Source> sources = new ArrayList<>();
         List<Path> sourceFiles = new ArrayList<>();
-        for (int i = 0; i < sources.size(); i++) {
-            Source source = sources.get(i);
+        for (int i = 0; i < sourceIds.size(); i++) {
+            Source source = sourceCatalog.findById(sourceIds.get(i)).orElse(null);
+            if (source == null) {
+                log.error("Source not found: {}", sourceIds.get(i));
+                return WorkflowAction.NONE;
+            }
             Path selectedDirectory = sourcesDirectory.resolve(source.getId().toString());
             Optional<Path> fileOpt = FileUtils.getFirstExistingFile(selectedDirectory, "source.jpg",
                 "source.jpeg", "source.png");
@@ -84,6 +99,7 @@ public class GetRandomSourceStep implements WorkflowStep {
                 return WorkflowAction.NONE;
             }
             Path sourceFile = fileOpt.get();
+            sources.add(source);
             sourceFiles.add(i, sourceFile);
             log.info("Source {} - {}", i + 1, source.getId());
         }
@@ -93,26 +109,62 @@ public class GetRandomSourceStep implements WorkflowStep {
         return WorkflowAction.BUILD_MEME_STEP;
     }
 
-    private void addBirthdayFilter(JxQueryBuilder jxQueryBuilder) {
+    /**
+     * Draws sources until the combination with the template was never posted. Gives up after a few attempts and keeps
+     * the last draw, a repeated meme is better than no meme.
+     *
+     * @return the drawn source ids, empty when there are no sources at all.
+     */
+    private List<UUID> selectUnposted(WeightedSampler approvedSources, Template template, Set<UUID> excludedIds,
+                                      int sourceCount) {
+        if (approvedSources.size() == 0) {
+            return List.of();
+        }
+        // sources that have already been used are left out of the draw
+        Set<UUID> excluded = memeHistoryIndex.recentSources((long) Math.ceil(approvedSources.size() * 0.75));
+        // sources held by pre-rendered memes are skipped while enough others remain
+        if (excludedIds != null) {
+            Set<UUID> withHeld = new HashSet<>(excluded);
+            withHeld.addAll(excludedIds);
+            if (approvedSources.size(withHeld) >= sourceCount) {
+                excluded = withHeld;
+            }
+        }
+
+        List<UUID> sourceIds = null;
+        for (int attempt = 1; attempt <= MAX_SELECTION_ATTEMPTS; attempt++) {
+            sourceIds = approvedSources.sample(sourceCount, ThreadLocalRandom.current(), excluded);
+            if (!memeFingerprintIndex.isPosted(template.getId(), sourceIds)) {
+                return sourceIds;
+            }
+            log.info("Combination already posted for template {}, drawing again ({}/{})", template.getId(),
+                attempt, MAX_SELECTION_ATTEMPTS);
+        }
+        log.warn("Every draw for template {} was already posted, repeating a meme", template.getId());
+        return sourceIds;
+    }
+
+    private String[] getBirthdayDescriptions() {
         ZonedDateTime today = ZonedDateTime.now(ZoneId.of("America/Sao_Paulo"));
         if (today.getMonth().equals(Month.JANUARY) && today.getDayOfMonth() == 22) {
-            jxQueryBuilder.withDescription("brenda");
+            return new String[] {"brenda"};
         } else if (today.getMonth().equals(Month.APRIL)) {
             if (today.getDayOfMonth() == 3) {
-                jxQueryBuilder.withDescription("ander");
+                return new String[] {"ander"};
             } else if (today.getDayOfMonth() == 14) {
-                jxQueryBuilder.withDescription("gab");
+                return new String[] {"gab"};
             } else if (today.getDayOfMonth() == 30) {
-                jxQueryBuilder.withDescription("gui");
+                return new String[] {"gui"};
             }
         } else if (today.getMonth().equals(Month.MAY) && today.getDayOfMonth() == 27) {
-            jxQueryBuilder.withDescription("xxk", "gayzito");
+            return new String[] {"xxk", "gayzito"};
         } else if (today.getMonth().equals(Month.JUNE) && today.getDayOfMonth() == 10) {
-            jxQueryBuilder.withDescription("lucas", "c4", "celta");
+            return new String[] {"lucas", "c4", "celta"};
         } else if (today.getMonth().equals(Month.AUGUST) && today.getDayOfMonth() == 12) {
-            jxQueryBuilder.withDescription("valb", "punhet");
+            return new String[] {"valb", "punhet"};
         } else if (today.getMonth().equals(Month.OCTOBER) && today.getDayOfMonth() == 25) {
-            jxQueryBuilder.withDescription("dedey");
+            return new String[] {"dedey"};
         }
+        return new String[0];
     }
 }
@@ -1,52 +1,58 @@
 package com.boatarde.regatasimulator.flows.simulator;
 
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
 import com.boatarde.regatasimulator.flows.WorkflowAction;
 import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
 import com.boatarde.regatasimulator.flows.WorkflowStep;
 import com.boatarde.regatasimulator.flows.WorkflowStepRegistration;
-import com.boatarde.regatasimulator.models.Meme;
 import com.boatarde.regatasimulator.models.Status;
 import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.selection.MemeHistoryIndex;
+import com.boatarde.regatasimulator.selection.WeightedPoolService;
 import com.boatarde.regatasimulator.util.FileUtils;
 import com.boatarde.regatasimulator.util.JsonDBUtils;
-import io.jsondb.JsonDBTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.telegram.telegrambots.meta.api.objects.Message;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @WorkflowStepRegistration(WorkflowAction.GET_RANDOM_TEMPLATE)
 public class GetRandomTemplateStep implements WorkflowStep {
 
     private final String templatesPathString;
-    private final JsonDBTemplate jsonDBTemplate;
+    private final TemplateCatalog templateCatalog;
+    private final WeightedPoolService weightedPoolService;
+    private final MemeHistoryIndex memeHistoryIndex;
 
     public GetRandomTemplateStep(@Value("${regata-simulator.templates.path}") String templatesPathString,
-                                 JsonDBTemplate jsonDBTemplate) {
+                                 TemplateCatalog templateCatalog, WeightedPoolService weightedPoolService,
+                                 MemeHistoryIndex memeHistoryIndex) {
         this.templatesPathString = templatesPathString;
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.templateCatalog = templateCatalog;
+        this.weightedPoolService = weightedPoolService;
+        this.memeHistoryIndex = memeHistoryIndex;
     }
 
     @Override
     public WorkflowAction run(WorkflowDataBag bag) {
-        String jxQuery = JsonDBUtils.jxQuery()
-            .withStatus(Status.APPROVED)
-            .build();
-        List<Template> approvedTemplates = jsonDBTemplate.find(jxQuery, Template.class);
-        if (approvedTemplates.isEmpty()) {
-            log.error("No templates found.");
-            return WorkflowAction.NONE;
-        }
-
         Message creatingSourceMessage = bag.get(WorkflowDataKey.CREATING_SOURCE_MESSAGE, Message.class);
         if (creatingSourceMessage != null) {
-            Template template = JsonDBUtils.selectRandomSingleAreaTemplate(approvedTemplates);
+            List<Template> singleAreaTemplates = templateCatalog.findSingleArea(Status.APPROVED);
+            if (singleAreaTemplates.isEmpty()) {
+                log.error("No templates found.");
+                return WorkflowAction.NONE;
+            }
+            Template template = JsonDBUtils.selectRandomSingleAreaTemplate(singleAreaTemplates);
             Path templateFile = getTemplateFile(template);
             if (templateFile == null) {
                 return WorkflowAction.NONE;
@@ -56,20 +62,35 @@ public class GetRandomTemplateStep implements WorkflowStep {
             return WorkflowAction.BUILD_MEME_STEP;
         }
 
-        List<Meme> memesHistory = bag.getGeneric(WorkflowDataKey.MEMES_HISTORY, List.class, Meme.class);
-        if (memesHistory == null) {
-            memesHistory = jsonDBTemplate.findAll(Meme.class).stream()
-                .sorted(JsonDBUtils.getMemeComparator().reversed())
-                .toList();
-            bag.put(WorkflowDataKey.MEMES_HISTORY, memesHistory);
+        Set<UUID> excludedIds = bag.getGeneric(WorkflowDataKey.EXCLUDED_IDS, Set.class, UUID.class);
+
+        Optional<UUID> templateId = weightedPoolService.withTemplates(approvedTemplates -> {
+            if (approvedTemplates.size() == 0) {
+                return Optional.<UUID>empty();
+            }
+            // templates that have already been used are left out of the draw
+            Set<UUID> excluded = memeHistoryIndex.recentTemplates(
+                (long) Math.ceil(approvedTemplates.size() * 0.75));
+            // templates held by pre-rendered memes are skipped while any other remains
+            if (excludedIds != null) {
+                Set<UUID> withHeld = new HashSet<>(excluded);
+                withHeld.addAll(excludedIds);
+                if (approvedTemplates.size(withHeld) > 0) {
+                    excluded = withHeld;
+                }
+            }
+            return Optional.of(approvedTemplates.sample(1, ThreadLocalRandom.current(), excluded).getFirst());
+        });
+        if (templateId.isEmpty()) {
+            log.error("No templates found.");
+            return WorkflowAction.NONE;
         }
-        memesHistory.stream()
-            .map(Meme::getTemplateId)
-            .distinct()
-            .limit((long) Math.ceil(approvedTemplates.size() * 0.75))
-            .forEach(templateId -> approvedTemplates.removeIf(template -> template.getId().equals(templateId)));
 
-        Template template = JsonDBUtils.selectTemplatesWithWeight(approvedTemplates, 1).getFirst();
+        Template template = templateCatalog.findById(templateId.get()).orElse(null);
+        if (template == null) {
+            log.error("Template not found: {}", templateId.get());
+            return WorkflowAction.NONE;
+        }
         Path templateFile = getTemplateFile(template);
         if (templateFile == null) {
             return WorkflowAction.NONE;
@@ -1,18 +1,27 @@
 package com.boatarde.regatasimulator.flows.simulator;
 
 import com.boatarde.regatasimulator.bots.RegataSimulatorBot;
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
 import com.boatarde.regatasimulator.flows.WorkflowAction;
 import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
 import com.boatarde.regatasimulator.flows.WorkflowStep;
 import com.boatarde.regatasimulator.flows.WorkflowStepRegistration;
+import com.boatarde.regatasimulator.models.CommonEntity;
 import com.boatarde.regatasimulator.models.Meme;
 import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.render.output.EncodedMeme;
+import com.boatarde.regatasimulator.selection.MemeFingerprintIndex;
+import com.boatarde.regatasimulator.selection.MemeHistoryIndex;
+import com.boatarde.regatasimulator.selection.WeightedPoolService;
+import com.boatarde.regatasimulator.service.WriteBehindService;
 import com.boatarde.regatasimulator.util.TelegramUtils;
-import io.jsondb.JsonDBTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.send.SendMediaBotMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
@@ -33,12 +42,24 @@ public class SendMemeStep implements WorkflowStep {
 
     public static final String CALLBACK_DATA_FORMAT = "%s:%s:%s";
     private final Long channelId;
-    private final JsonDBTemplate jsonDBTemplate;
+    private final WriteBehindService writeBehindService;
+    private final MemeFingerprintIndex memeFingerprintIndex;
+    private final WeightedPoolService weightedPoolService;
+    private final MemeHistoryIndex memeHistoryIndex;
+    private final SourceCatalog sourceCatalog;
+    private final TemplateCatalog templateCatalog;
 
     public SendMemeStep(@Value("${telegram.bots.regata-simulator.channel}") Long channelId,
-                        JsonDBTemplate jsonDBTemplate) {
+                        WriteBehindService writeBehindService, MemeFingerprintIndex memeFingerprintIndex,
+                        WeightedPoolService weightedPoolService, MemeHistoryIndex memeHistoryIndex,
+                        SourceCatalog sourceCatalog, TemplateCatalog templateCatalog) {
         this.channelId = channelId;
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.writeBehindService = writeBehindService;
+        this.memeFingerprintIndex = memeFingerprintIndex;
+        this.weightedPoolService = weightedPoolService;
+        this.memeHistoryIndex = memeHistoryIndex;
+        this.sourceCatalog = sourceCatalog;
+        this.templateCatalog = templateCatalog;
     }
 
     @Override
@@ -48,18 +69,23 @@ public class SendMemeStep implements WorkflowStep {
         Path memePath = bag.get(WorkflowDataKey.MEME_FILE, Path.class);
         Message creatingTemplateMessage = bag.get(WorkflowDataKey.CREATING_TEMPLATE_MESSAGE, Message.class);
         Message creatingSourceMessage = bag.get(WorkflowDataKey.CREATING_SOURCE_MESSAGE, Message.class);
-        List<Meme> pastMemes = bag.getGeneric(WorkflowDataKey.MEMES_HISTORY, List.class, Meme.class);
 
         File file = memePath.toFile();
 
+        EncodedMeme encodedMeme = bag.get(WorkflowDataKey.ENCODED_MEME, EncodedMeme.class);
+
         try {
-            SendPhoto sendPhoto = getSendPhoto(update, file);
+            InlineKeyboardMarkup keyboard = null;
             if (creatingTemplateMessage != null) {
-                addConfirmKeyboard(bag, regataSimulatorBot, "template", sendPhoto, creatingTemplateMessage);
+                keyboard = getConfirmKeyboard(bag, regataSimulatorBot, "template", creatingTemplateMessage);
             } else if (creatingSourceMessage != null) {
-                addConfirmKeyboard(bag, regataSimulatorBot, "source", sendPhoto, creatingSourceMessage);
+                keyboard = getConfirmKeyboard(bag, regataSimulatorBot, "source", creatingSourceMessage);
             }
-            Message response = TelegramUtils.executeSendMediaBotMethod(regataSimulatorBot, sendPhoto);
+            // Telegram refuses photos with some shapes, those memes go out as documents
+            SendMediaBotMethod<Message> sendMeme = encodedMeme != null && encodedMeme.isDocument()
+                ? getSendDocument(update, file, keyboard)
+                : getSendPhoto(update, file, keyboard);
+            Message response = TelegramUtils.executeSendMediaBotMethod(regataSimulatorBot, sendMeme);
 
             log.info("Response: {}", TelegramUtils.toJson(response));
 
@@ -67,7 +93,7 @@ public class SendMemeStep implements WorkflowStep {
                 Template template = bag.get(WorkflowDataKey.TEMPLATE, Template.class);
                 List<Source> sources = bag.getGeneric(WorkflowDataKey.SOURCES, List.class, Source.class);
                 updateWeights(template, sources);
-                updateMemesDB(pastMemes, template, sources, response);
+                updateMemesDB(template, sources, response, encodedMeme);
             }
         } catch (TelegramApiException e) {
             log.error(String.format("TelegramApiException when sending media: %s", e.getMessage()), e);
@@ -84,51 +110,54 @@ public class SendMemeStep implements WorkflowStep {
         return WorkflowAction.NONE;
     }
 
-    private void updateMemesDB(List<Meme> memes, Template template, List<Source> sources, Message response) {
-        if (memes.size() >= 1000) {
-            Meme removed = jsonDBTemplate.remove(memes.getLast(), Meme.class);
-            if (removed == null) {
-                log.error("Failed to delete meme: {}", memes.getLast());
-            } else {
-                log.info("Meme deleted from history: {}", removed);
-            }
-        }
+    private void updateMemesDB(Template template, List<Source> sources, Message response, EncodedMeme encodedMeme) {
         Meme meme = Meme.builder()
             .id(UUID.randomUUID())
             .templateId(template.getId())
             .sourceIds(sources.stream().map(Source::getId).toList())
             .message(response)
             .build();
-        jsonDBTemplate.insert(meme);
+        if (encodedMeme != null) {
+            meme.setFormat(encodedMeme.getFormat().name());
+            meme.setFileSize(encodedMeme.getBytes());
+            meme.setEncodeMillis(encodedMeme.getEncodeMillis());
+        }
+        memeHistoryIndex.record(meme).ifPresent(this::deleteFromHistory);
+        writeBehindService.upsert(Meme.class, meme.getId(), meme);
+        memeFingerprintIndex.add(meme);
         log.info("Meme {} saved.", meme.getId());
     }
 
+    private void deleteFromHistory(UUID memeId) {
+        writeBehindService.remove(Meme.class, memeId, Meme.builder().id(memeId).build());
+        log.info("Meme {} deleted from history.", memeId);
+    }
+
     private void updateWeights(Template template, List<Source> sources) {
-        sources.forEach(source -> {
-            if (source.getWeight() == 1) {
-                log.info("Source {} weight is already at minimum.", source.getId());
-                return;
-            }
-            source.setWeight(source.getWeight() - 1);
-            jsonDBTemplate.upsert(source);
-            log.info("Source {} weight updated from {} to {}", source.getId(), source.getWeight() + 1,
-                source.getWeight());
-        });
-        if (template.getWeight() == 1) {
-            log.info("Template {} weight is already at minimum.", template.getId());
+        // applied to the catalogue's current entities, so a stale copy never undoes a concurrent change
+        sources.forEach(source -> sourceCatalog.update(source.getId(), this::decreaseWeight)
+            .ifPresent(weightedPoolService::update));
+        templateCatalog.update(template.getId(), this::decreaseWeight)
+            .ifPresent(weightedPoolService::update);
+    }
+
+    private void decreaseWeight(CommonEntity entity) {
+        String type = entity.getClass().getSimpleName();
+        if (entity.getWeight() == 1) {
+            log.info("{} {} weight is already at minimum.", type, entity.getId());
             return;
         }
-        template.setWeight(template.getWeight() - 1);
-        jsonDBTemplate.upsert(template);
-        log.info("Template {} weight updated from {} to {}", template.getId(), template.getWeight() + 1,
-            template.getWeight());
+        entity.setWeight(entity.getWeight() - 1);
+        log.info("{} {} weight updated from {} to {}", type, entity.getId(), entity.getWeight() + 1,
+            entity.getWeight());
     }
 
-    private SendPhoto getSendPhoto(Update update, File file) {
+    private SendPhoto getSendPhoto(Update update, File file, InlineKeyboardMarkup keyboard) {
         if (update == null) {
             return SendPhoto.builder()
                 .chatId(channelId)
                 .photo(new InputFile(file))
+                .replyMarkup(keyboard)
                 .build();
         }
         return SendPhoto.builder()
@@ -137,11 +166,30 @@ public class SendMemeStep implements WorkflowStep {
             .allowSendingWithoutReply(true)
             .replyToMessageId(update.getMessage().getMessageId())
             .messageThreadId(update.getMessage().getMessageThreadId())
+            .replyMarkup(keyboard)
             .build();
     }
 
-    private void addConfirmKeyboard(WorkflowDataBag bag, RegataSimulatorBot regataSimulatorBot,
-                                    String type, SendPhoto sendPhoto, Message creatingTemplateMessage)
+    private SendDocument getSendDocument(Update update, File file, InlineKeyboardMarkup keyboard) {
+        if (update == null) {
+            return SendDocument.builder()
+                .chatId(channelId)
+                .document(new InputFile(file))
+                .replyMarkup(keyboard)
+                .build();
+        }
+        return SendDocument.builder()
+            .chatId(update.getMessage().getChatId())
+            .document(new InputFile(file))
+            .allowSendingWithoutReply(true)
+            .replyToMessageId(update.getMessage().getMessageId())
+            .messageThreadId(update.getMessage().getMessageThreadId())
+            .replyMarkup(keyboard)
+            .build();
+    }
+
+    private InlineKeyboardMarkup getConfirmKeyboard(WorkflowDataBag bag, RegataSimulatorBot regataSimulatorBot,
+                                                    String type, Message creatingTemplateMessage)
         throws TelegramApiException {
         regataSimulatorBot.execute(DeleteMessage.builder()
             .chatId(creatingTemplateMessage.getChatId())
@@ -156,7 +204,7 @@ public class SendMemeStep implements WorkflowStep {
         }
 
         String itemId = path.getParent().getFileName().toString();
-        sendPhoto.setReplyMarkup(InlineKeyboardMarkup.builder()
+        return InlineKeyboardMarkup.builder()
             .keyboard(List.of(List.of(InlineKeyboardButton.builder()
                     .text("✅ Confirmar")
                     .callbackData(CALLBACK_DATA_FORMAT.formatted(itemId, type, "confirm"))
@@ -165,6 +213,6 @@ public class SendMemeStep implements WorkflowStep {
                     .text("❌ Cancelar")
                     .callbackData(CALLBACK_DATA_FORMAT.formatted(itemId, type, "cancel"))
                     .build())))
-            .build());
+            .build();
     }
 }
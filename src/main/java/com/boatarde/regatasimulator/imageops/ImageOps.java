@@ -0,0 +1,190 @@
+package com.boatarde.regatasimulator.imageops;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+
+/**
+ * {@link BufferedImage} operations on top of {@link PixelKernels}. The kernels come from
+ * {@code jdk.incubator.vector} when {@code regata-simulator.image-ops.vector} is enabled and the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} (the Gradle tasks add it); otherwise they are plain loops with the same
+ * results. Compositing, masking and resampling work on {@link BufferedImage#TYPE_INT_ARGB_PRE} images.
+ */
+@Slf4j
+@Component
+public class ImageOps {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    @Getter
+    private final PixelKernels kernels;
+
+    public ImageOps(@Value("${regata-simulator.image-ops.vector}") boolean vector) {
+        this.kernels = select(vector);
+        log.info("Using {} pixel kernels", kernels instanceof VectorPixelKernels ? "vector" : "scalar");
+    }
+
+    static PixelKernels select(boolean vector) {
+        if (!vector) {
+            return new ScalarPixelKernels();
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.warn("{} is not available, start the JVM with --add-modules {} to use vector pixel kernels",
+                VECTOR_MODULE, VECTOR_MODULE);
+            return new ScalarPixelKernels();
+        }
+        if (!VectorPixelKernels.isSupported()) {
+            log.info("The CPU has no 256-bit vectors, vector pixel kernels disabled");
+            return new ScalarPixelKernels();
+        }
+        return new VectorPixelKernels();
+    }
+
+    /**
+     * Returns {@code image} as {@link BufferedImage#TYPE_INT_ARGB}, the image itself when it already is.
+     */
+    public BufferedImage toArgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && isPacked(image)) {
+            return image;
+        }
+        BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        int length = image.getWidth() * image.getHeight();
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && isPacked(image)) {
+            kernels.bgrToArgb(bytes(image), ints(argb), length);
+        } else if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE && isPacked(image)) {
+            kernels.unpremultiply(ints(image), ints(argb), length);
+        } else {
+            draw(image, argb);
+        }
+        return argb;
+    }
+
+    /**
+     * Returns {@code image} as {@link BufferedImage#TYPE_INT_ARGB_PRE}, the image itself when it already is.
+     */
+    public BufferedImage toPremultiplied(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE && isPacked(image)) {
+            return image;
+        }
+        BufferedImage premultiplied = new BufferedImage(image.getWidth(), image.getHeight(),
+            BufferedImage.TYPE_INT_ARGB_PRE);
+        int length = image.getWidth() * image.getHeight();
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && isPacked(image)) {
+            // opaque pixels are the same premultiplied or not
+            kernels.bgrToArgb(bytes(image), ints(premultiplied), length);
+        } else if (image.getType() == BufferedImage.TYPE_INT_ARGB && isPacked(image)) {
+            kernels.premultiply(ints(image), ints(premultiplied), length);
+        } else {
+            draw(image, premultiplied);
+        }
+        return premultiplied;
+    }
+
+    /**
+     * Equivalent of {@code -resize WxH!} with the given filter, returned premultiplied.
+     */
+    public BufferedImage resize(BufferedImage image, int width, int height, ResampleFilter filter) {
+        BufferedImage source = toPremultiplied(image);
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        kernels.resample(ints(source), source.getWidth(), source.getHeight(), ints(resized), width, height, filter);
+        return resized;
+    }
+
+    /**
+     * Draws {@code source} over {@code destination} with its top-left corner at {@code x, y}, clipped to the
+     * destination.
+     *
+     * @param destination a premultiplied image, modified in place.
+     */
+    public void compositeOver(BufferedImage destination, BufferedImage source, int x, int y) {
+        int[] target = requirePremultiplied(destination);
+        BufferedImage layer = toPremultiplied(source);
+        Rectangle area = new Rectangle(x, y, layer.getWidth(), layer.getHeight())
+            .intersection(new Rectangle(destination.getWidth(), destination.getHeight()));
+        if (area.isEmpty()) {
+            return;
+        }
+        int[] pixels = ints(layer);
+        for (int row = area.y; row < area.y + area.height; row++) {
+            kernels.compositeOver(pixels, (row - y) * layer.getWidth() + area.x - x,
+                target, row * destination.getWidth() + area.x, area.width);
+        }
+    }
+
+    /**
+     * Multiplies {@code image} by a {@link BufferedImage#TYPE_BYTE_GRAY} coverage mask of the same size, like
+     * {@code -compose CopyOpacity} does with an opaque image.
+     *
+     * @param image a premultiplied image, modified in place.
+     */
+    public void applyMask(BufferedImage image, BufferedImage mask) {
+        int[] pixels = requirePremultiplied(image);
+        if (mask.getType() != BufferedImage.TYPE_BYTE_GRAY || !isPacked(mask)
+            || mask.getWidth() != image.getWidth() || mask.getHeight() != image.getHeight()) {
+            throw new IllegalArgumentException("Mask must be a gray image of %dx%d"
+                .formatted(image.getWidth(), image.getHeight()));
+        }
+        kernels.multiplyMask(pixels, 0, bytes(mask), 0, pixels.length);
+    }
+
+    /**
+     * Flattens {@code image} onto {@code background} as an opaque {@link BufferedImage#TYPE_3BYTE_BGR} image, the
+     * layout the JPEG writer takes without converting.
+     */
+    public BufferedImage flatten(BufferedImage image, Color background) {
+        BufferedImage source = toPremultiplied(image);
+        BufferedImage bgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        kernels.argbToBgr(ints(source), bytes(bgr), image.getWidth() * image.getHeight(),
+            background.getRGB() & 0xFFFFFF);
+        return bgr;
+    }
+
+    private static int[] requirePremultiplied(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB_PRE || !isPacked(image)) {
+            throw new IllegalArgumentException("Expected a premultiplied ARGB image, got type " + image.getType());
+        }
+        return ints(image);
+    }
+
+    /**
+     * Whether the raster covers its whole data buffer, row after row, which is how new and decoded images are laid
+     * out. Sub-images are not, and go through Java2D instead.
+     */
+    private static boolean isPacked(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        return raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+            && raster.getParent() == null
+            && raster.getDataBuffer().getNumBanks() == 1
+            && raster.getDataBuffer().getOffset() == 0
+            && raster.getDataBuffer().getSize() == image.getWidth() * image.getHeight()
+            * (raster.getDataBuffer() instanceof DataBufferByte ? raster.getNumDataElements() : 1);
+    }
+
+    private static int[] ints(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private static byte[] bytes(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private static void draw(BufferedImage image, BufferedImage target) {
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.boatarde.regatasimulator.imageops;
+
+/**
+ * Pixel loops over packed {@code int} rasters in the layout of {@link java.awt.image.BufferedImage#TYPE_INT_ARGB}
+ * and {@link java.awt.image.BufferedImage#TYPE_INT_ARGB_PRE}, and over interleaved bytes in the layout of
+ * {@link java.awt.image.BufferedImage#TYPE_3BYTE_BGR}. Every implementation produces the same pixels, bit for bit.
+ */
+public interface PixelKernels {
+
+    /**
+     * Converts {@code length} straight ARGB pixels to premultiplied ARGB. {@code src} and {@code dst} may be the same
+     * array.
+     */
+    void premultiply(int[] src, int[] dst, int length);
+
+    /**
+     * Converts {@code length} premultiplied ARGB pixels to straight ARGB. {@code src} and {@code dst} may be the same
+     * array.
+     */
+    void unpremultiply(int[] src, int[] dst, int length);
+
+    /**
+     * Porter-Duff source over destination on premultiplied pixels, written back to {@code dst}.
+     */
+    void compositeOver(int[] src, int srcOffset, int[] dst, int dstOffset, int length);
+
+    /**
+     * Scales every channel of premultiplied pixels by the mask coverage, {@code 0} clearing the pixel and {@code 255}
+     * keeping it.
+     */
+    void multiplyMask(int[] pixels, int offset, byte[] mask, int maskOffset, int length);
+
+    /**
+     * Expands interleaved BGR bytes to opaque ARGB pixels.
+     */
+    void bgrToArgb(byte[] bgr, int[] argb, int length);
+
+    /**
+     * Flattens premultiplied pixels onto the opaque {@code background} RGB colour and writes them as interleaved BGR
+     * bytes.
+     */
+    void argbToBgr(int[] argb, byte[] bgr, int length, int background);
+
+    /**
+     * Resamples each of the {@code rows} rows of premultiplied {@code src} to the width of {@code table}.
+     */
+    void resampleRows(int[] src, int srcWidth, int[] dst, int rows, ResampleTable table);
+
+    /**
+     * Resamples the columns of premultiplied {@code src}, {@code width} pixels wide, to the height of {@code table}.
+     */
+    void resampleColumns(int[] src, int width, int[] dst, ResampleTable table);
+
+    /**
+     * Resizes premultiplied pixels into {@code dst} in two separable passes, starting with the one that leaves the
+     * smaller intermediate raster.
+     */
+    default void resample(int[] src, int srcWidth, int srcHeight, int[] dst, int dstWidth, int dstHeight,
+                          ResampleFilter filter) {
+        ResampleTable horizontal = ResampleTable.of(srcWidth, dstWidth, filter);
+        ResampleTable vertical = ResampleTable.of(srcHeight, dstHeight, filter);
+        if ((long) dstWidth * srcHeight <= (long) srcWidth * dstHeight) {
+            int[] rows = new int[dstWidth * srcHeight];
+            resampleRows(src, srcWidth, rows, srcHeight, horizontal);
+            resampleColumns(rows, dstWidth, dst, vertical);
+        } else {
+            int[] columns = new int[srcWidth * dstHeight];
+            resampleColumns(src, srcWidth, columns, vertical);
+            resampleRows(columns, srcWidth, dst, dstHeight, horizontal);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.boatarde.regatasimulator.imageops;
+
+import lombok.Getter;
+
+/**
+ * Reconstruction filters for {@link PixelKernels#resample}. When downscaling, the support is stretched by the scale
+ * factor, so every source pixel contributes and large reductions do not alias.
+ */
+@Getter
+public enum ResampleFilter {
+    /**
+     * Triangle filter, ImageMagick's {@code -filter Triangle}.
+     */
+    BILINEAR(1) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            return x < 1 ? 1 - x : 0;
+        }
+    },
+    /**
+     * Catmull-Rom cubic, ImageMagick's {@code -filter Catrom}. Sharper than bilinear and may ring slightly on hard
+     * edges; results are clamped to valid premultiplied pixels.
+     */
+    BICUBIC(2) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x < 1) {
+                return (1.5 * x - 2.5) * x * x + 1;
+            }
+            if (x < 2) {
+                return ((-0.5 * x + 2.5) * x - 4) * x + 2;
+            }
+            return 0;
+        }
+    };
+
+    private final double support;
+
+    ResampleFilter(double support) {
+        this.support = support;
+    }
+
+    abstract double weight(double x);
+}
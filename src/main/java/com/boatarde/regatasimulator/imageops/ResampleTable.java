@@ -0,0 +1,56 @@
+package com.boatarde.regatasimulator.imageops;
+
+import lombok.Getter;
+
+/**
+ * Precomputed contributions of a one-dimensional resample from {@code inSize} to {@code outSize} pixels. Every output
+ * pixel reads the same number of {@code taps}, so the table is stored tap-major: the source index and weight of tap
+ * {@code t} of output pixel {@code i} are at {@code t * outSize + i}, which lets the kernels load the weights of
+ * consecutive output pixels in a single vector.
+ */
+@Getter
+public final class ResampleTable {
+
+    private final int inSize;
+    private final int outSize;
+    private final int taps;
+    private final int[] indices;
+    private final float[] weights;
+
+    private ResampleTable(int inSize, int outSize, int taps, int[] indices, float[] weights) {
+        this.inSize = inSize;
+        this.outSize = outSize;
+        this.taps = taps;
+        this.indices = indices;
+        this.weights = weights;
+    }
+
+    public static ResampleTable of(int inSize, int outSize, ResampleFilter filter) {
+        if (inSize <= 0 || outSize <= 0) {
+            throw new IllegalArgumentException("Cannot resample %d to %d pixels".formatted(inSize, outSize));
+        }
+        double scale = (double) inSize / outSize;
+        double filterScale = Math.max(scale, 1);
+        double support = filter.getSupport() * filterScale;
+        int taps = Math.min(inSize, (int) Math.ceil(support * 2) + 1);
+
+        int[] indices = new int[taps * outSize];
+        float[] weights = new float[taps * outSize];
+        double[] window = new double[taps];
+        for (int i = 0; i < outSize; i++) {
+            double center = (i + 0.5) * scale;
+            // windows at the edges are shifted inside the image, the extra taps get a zero weight
+            int start = Math.max(0, Math.min((int) Math.floor(center - support), inSize - taps));
+            double sum = 0;
+            for (int t = 0; t < taps; t++) {
+                window[t] = filter.weight((start + t + 0.5 - center) / filterScale);
+                sum += window[t];
+            }
+            for (int t = 0; t < taps; t++) {
+                indices[t * outSize + i] = start + t;
+                weights[t * outSize + i] = sum == 0 ? (t == 0 ? 1 : 0) : (float) (window[t] / sum);
+            }
+        }
+        return new ResampleTable(inSize, outSize, taps, indices, weights);
+    }
+}
@@ -0,0 +1,173 @@
+package com.boatarde.regatasimulator.imageops;
+
+/**
+ * Plain loops, used when the Vector API is not available and for the tails of the vector loops. Channels are scaled
+ * two at a time in the 16-bit halves of an {@code int}, and the division by 255 is the exact rounding
+ * {@code (x + 128 + ((x + 128) >> 8)) >> 8}, so no per-channel division is needed.
+ */
+final class ScalarPixelKernels implements PixelKernels {
+
+    @Override
+    public void premultiply(int[] src, int[] dst, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = premultiply(src[i]);
+        }
+    }
+
+    @Override
+    public void unpremultiply(int[] src, int[] dst, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = unpremultiply(src[i]);
+        }
+    }
+
+    @Override
+    public void compositeOver(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = over(src[srcOffset + i], dst[dstOffset + i]);
+        }
+    }
+
+    @Override
+    public void multiplyMask(int[] pixels, int offset, byte[] mask, int maskOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            pixels[offset + i] = scale(pixels[offset + i], mask[maskOffset + i] & 0xFF);
+        }
+    }
+
+    @Override
+    public void bgrToArgb(byte[] bgr, int[] argb, int length) {
+        for (int i = 0; i < length; i++) {
+            argb[i] = bgrToArgb(bgr, i * 3);
+        }
+    }
+
+    @Override
+    public void argbToBgr(int[] argb, byte[] bgr, int length, int background) {
+        int opaqueBackground = 0xFF000000 | background;
+        for (int i = 0; i < length; i++) {
+            writeBgr(over(argb[i], opaqueBackground), bgr, i * 3);
+        }
+    }
+
+    @Override
+    public void resampleRows(int[] src, int srcWidth, int[] dst, int rows, ResampleTable table) {
+        int dstWidth = table.getOutSize();
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < dstWidth; x++) {
+                dst[y * dstWidth + x] = rowPixel(src, y * srcWidth, table, x);
+            }
+        }
+    }
+
+    @Override
+    public void resampleColumns(int[] src, int width, int[] dst, ResampleTable table) {
+        for (int y = 0; y < table.getOutSize(); y++) {
+            for (int x = 0; x < width; x++) {
+                dst[y * width + x] = columnPixel(src, width, table, x, y);
+            }
+        }
+    }
+
+    static int premultiply(int pixel) {
+        return scale(pixel | 0xFF000000, pixel >>> 24);
+    }
+
+    static int unpremultiply(int pixel) {
+        int alpha = pixel >>> 24;
+        if (alpha == 0) {
+            return 0;
+        }
+        float factor = 255f / alpha;
+        return (alpha << 24)
+            | (unpremultiply((pixel >>> 16) & 0xFF, factor) << 16)
+            | (unpremultiply((pixel >>> 8) & 0xFF, factor) << 8)
+            | unpremultiply(pixel & 0xFF, factor);
+    }
+
+    static int over(int src, int dst) {
+        return src + scale(dst, 255 - (src >>> 24));
+    }
+
+    /**
+     * Multiplies the four channels by {@code factor / 255}.
+     */
+    static int scale(int pixel, int factor) {
+        return div255Pairs((pixel & 0x00FF00FF) * factor) | (div255Pairs(((pixel >>> 8) & 0x00FF00FF) * factor) << 8);
+    }
+
+    static int bgrToArgb(byte[] bgr, int offset) {
+        return 0xFF000000 | ((bgr[offset + 2] & 0xFF) << 16) | ((bgr[offset + 1] & 0xFF) << 8) | (bgr[offset] & 0xFF);
+    }
+
+    static void writeBgr(int pixel, byte[] bgr, int offset) {
+        bgr[offset] = (byte) pixel;
+        bgr[offset + 1] = (byte) (pixel >>> 8);
+        bgr[offset + 2] = (byte) (pixel >>> 16);
+    }
+
+    static int rowPixel(int[] src, int rowOffset, ResampleTable table, int x) {
+        int[] indices = table.getIndices();
+        float[] weights = table.getWeights();
+        int stride = table.getOutSize();
+        float alpha = 0;
+        float red = 0;
+        float green = 0;
+        float blue = 0;
+        for (int t = 0; t < table.getTaps(); t++) {
+            int pixel = src[rowOffset + indices[t * stride + x]];
+            float weight = weights[t * stride + x];
+            alpha += weight * (pixel >>> 24);
+            red += weight * ((pixel >>> 16) & 0xFF);
+            green += weight * ((pixel >>> 8) & 0xFF);
+            blue += weight * (pixel & 0xFF);
+        }
+        return pack(alpha, red, green, blue);
+    }
+
+    static int columnPixel(int[] src, int width, ResampleTable table, int x, int y) {
+        int[] indices = table.getIndices();
+        float[] weights = table.getWeights();
+        int stride = table.getOutSize();
+        float alpha = 0;
+        float red = 0;
+        float green = 0;
+        float blue = 0;
+        for (int t = 0; t < table.getTaps(); t++) {
+            int pixel = src[indices[t * stride + y] * width + x];
+            float weight = weights[t * stride + y];
+            alpha += weight * (pixel >>> 24);
+            red += weight * ((pixel >>> 16) & 0xFF);
+            green += weight * ((pixel >>> 8) & 0xFF);
+            blue += weight * (pixel & 0xFF);
+        }
+        return pack(alpha, red, green, blue);
+    }
+
+    /**
+     * Rounds the accumulated channels back to a valid premultiplied pixel, cubic overshoot included.
+     */
+    private static int pack(float alpha, float red, float green, float blue) {
+        int a = round(alpha);
+        return (a << 24)
+            | (Math.min(round(red), a) << 16)
+            | (Math.min(round(green), a) << 8)
+            | Math.min(round(blue), a);
+    }
+
+    private static int round(float value) {
+        return (int) (Math.min(Math.max(value, 0f), 255f) + 0.5f);
+    }
+
+    private static int unpremultiply(int channel, float factor) {
+        return Math.min((int) (channel * factor + 0.5f), 255);
+    }
+
+    /**
+     * Divides the two 16-bit fields of {@code x}, each at most {@code 255 * 255}, by 255 with rounding.
+     */
+    private static int div255Pairs(int x) {
+        x += 0x00800080;
+        return ((x + ((x >>> 8) & 0x00FF00FF)) >>> 8) & 0x00FF00FF;
+    }
+}
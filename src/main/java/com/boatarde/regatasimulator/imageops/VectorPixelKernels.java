@@ -0,0 +1,232 @@
+package com.boatarde.regatasimulator.imageops;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.Vector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PixelKernels} on {@code jdk.incubator.vector}, eight pixels per operation. Every loop runs the same integer
+ * and float operations as {@link ScalarPixelKernels}, lane by lane and in the same order, and leaves the tail to it,
+ * so both produce identical pixels. Only loaded when the module is in the boot layer, see {@link ImageOps}.
+ */
+final class VectorPixelKernels implements PixelKernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_256;
+    private static final VectorSpecies<Byte> MASK_BYTES = ByteVector.SPECIES_64;
+    // BGR pixels are shuffled four at a time, within a 128-bit register, which every SIMD instruction set does in a
+    // single step
+    private static final VectorSpecies<Integer> BGR_INTS = IntVector.SPECIES_128;
+    private static final VectorSpecies<Byte> BGR_BYTES = ByteVector.SPECIES_128;
+    private static final VectorShuffle<Byte> BGR_TO_ARGB = VectorShuffle.fromValues(BGR_BYTES,
+        0, 1, 2, 0, 3, 4, 5, 0, 6, 7, 8, 0, 9, 10, 11, 0);
+    private static final VectorShuffle<Byte> ARGB_TO_BGR = VectorShuffle.fromValues(BGR_BYTES,
+        0, 1, 2, 4, 5, 6, 8, 9, 10, 12, 13, 14, 15, 15, 15, 15);
+    private static final VectorMask<Byte> ALPHA_BYTES = VectorMask.fromValues(BGR_BYTES,
+        false, false, false, true, false, false, false, true, false, false, false, true, false, false, false, true);
+    // a BGR access covers 16 bytes for 4 pixels, so steps need room past their last pixel to stay inside the range
+    private static final int BGR_TO_ARGB_ROOM = 6;
+    private static final int ARGB_TO_BGR_ROOM = 10;
+
+    /**
+     * The kernels are written for 256-bit vectors; narrower hardware would run them emulated, slower than the
+     * scalar loops.
+     */
+    static boolean isSupported() {
+        return IntVector.SPECIES_PREFERRED.vectorBitSize() >= INTS.vectorBitSize();
+    }
+
+    @Override
+    public void premultiply(int[] src, int[] dst, int length) {
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            IntVector pixel = IntVector.fromArray(INTS, src, i);
+            scale(pixel.or(0xFF000000), pixel.lanewise(VectorOperators.LSHR, 24)).intoArray(dst, i);
+        }
+        for (; i < length; i++) {
+            dst[i] = ScalarPixelKernels.premultiply(src[i]);
+        }
+    }
+
+    @Override
+    public void unpremultiply(int[] src, int[] dst, int length) {
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            IntVector pixel = IntVector.fromArray(INTS, src, i);
+            IntVector alpha = pixel.lanewise(VectorOperators.LSHR, 24);
+            FloatVector factor = FloatVector.broadcast(FLOATS, 255f).div(toFloat(alpha));
+            alpha.lanewise(VectorOperators.LSHL, 24)
+                .or(unpremultiply(channel(pixel, 16), factor).lanewise(VectorOperators.LSHL, 16))
+                .or(unpremultiply(channel(pixel, 8), factor).lanewise(VectorOperators.LSHL, 8))
+                .or(unpremultiply(channel(pixel, 0), factor))
+                .blend(0, alpha.eq(0))
+                .intoArray(dst, i);
+        }
+        for (; i < length; i++) {
+            dst[i] = ScalarPixelKernels.unpremultiply(src[i]);
+        }
+    }
+
+    @Override
+    public void compositeOver(int[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            IntVector source = IntVector.fromArray(INTS, src, srcOffset + i);
+            IntVector destination = IntVector.fromArray(INTS, dst, dstOffset + i);
+            over(source, destination).intoArray(dst, dstOffset + i);
+        }
+        for (; i < length; i++) {
+            dst[dstOffset + i] = ScalarPixelKernels.over(src[srcOffset + i], dst[dstOffset + i]);
+        }
+    }
+
+    @Override
+    public void multiplyMask(int[] pixels, int offset, byte[] mask, int maskOffset, int length) {
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            IntVector coverage = ((IntVector) ByteVector.fromArray(MASK_BYTES, mask, maskOffset + i)
+                .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+            scale(IntVector.fromArray(INTS, pixels, offset + i), coverage).intoArray(pixels, offset + i);
+        }
+        for (; i < length; i++) {
+            pixels[offset + i] = ScalarPixelKernels.scale(pixels[offset + i], mask[maskOffset + i] & 0xFF);
+        }
+    }
+
+    @Override
+    public void bgrToArgb(byte[] bgr, int[] argb, int length) {
+        int i = 0;
+        for (; i + BGR_TO_ARGB_ROOM <= length; i += BGR_INTS.length()) {
+            ByteVector.fromArray(BGR_BYTES, bgr, i * 3)
+                .rearrange(BGR_TO_ARGB)
+                .blend((byte) 0xFF, ALPHA_BYTES)
+                .reinterpretAsInts()
+                .intoArray(argb, i);
+        }
+        for (; i < length; i++) {
+            argb[i] = ScalarPixelKernels.bgrToArgb(bgr, i * 3);
+        }
+    }
+
+    @Override
+    public void argbToBgr(int[] argb, byte[] bgr, int length, int background) {
+        IntVector opaqueBackground = IntVector.broadcast(INTS, 0xFF000000 | background);
+        int i = 0;
+        // the pixel maths stays on 256-bit vectors, only the two halves are shuffled and written separately; the
+        // last 4 bytes written by each half belong to the next pixels, which the next write overwrites
+        for (; i + ARGB_TO_BGR_ROOM <= length; i += INTS.length()) {
+            Vector<Byte> flattened = over(IntVector.fromArray(INTS, argb, i), opaqueBackground).reinterpretAsBytes();
+            ((ByteVector) flattened.reinterpretShape(BGR_BYTES, 0)).rearrange(ARGB_TO_BGR).intoArray(bgr, i * 3);
+            ((ByteVector) flattened.reinterpretShape(BGR_BYTES, 1)).rearrange(ARGB_TO_BGR).intoArray(bgr, i * 3 + 12);
+        }
+        int opaque = 0xFF000000 | background;
+        for (; i < length; i++) {
+            ScalarPixelKernels.writeBgr(ScalarPixelKernels.over(argb[i], opaque), bgr, i * 3);
+        }
+    }
+
+    @Override
+    public void resampleRows(int[] src, int srcWidth, int[] dst, int rows, ResampleTable table) {
+        int dstWidth = table.getOutSize();
+        int[] indices = table.getIndices();
+        float[] weights = table.getWeights();
+        int bound = INTS.loopBound(dstWidth);
+        for (int y = 0; y < rows; y++) {
+            int rowOffset = y * srcWidth;
+            int x = 0;
+            for (; x < bound; x += INTS.length()) {
+                FloatVector alpha = FloatVector.zero(FLOATS);
+                FloatVector red = FloatVector.zero(FLOATS);
+                FloatVector green = FloatVector.zero(FLOATS);
+                FloatVector blue = FloatVector.zero(FLOATS);
+                for (int t = 0; t < table.getTaps(); t++) {
+                    IntVector pixel = IntVector.fromArray(INTS, src, rowOffset, indices, t * dstWidth + x);
+                    FloatVector weight = FloatVector.fromArray(FLOATS, weights, t * dstWidth + x);
+                    alpha = alpha.add(weight.mul(toFloat(pixel.lanewise(VectorOperators.LSHR, 24))));
+                    red = red.add(weight.mul(toFloat(channel(pixel, 16))));
+                    green = green.add(weight.mul(toFloat(channel(pixel, 8))));
+                    blue = blue.add(weight.mul(toFloat(channel(pixel, 0))));
+                }
+                pack(alpha, red, green, blue).intoArray(dst, y * dstWidth + x);
+            }
+            for (; x < dstWidth; x++) {
+                dst[y * dstWidth + x] = ScalarPixelKernels.rowPixel(src, rowOffset, table, x);
+            }
+        }
+    }
+
+    @Override
+    public void resampleColumns(int[] src, int width, int[] dst, ResampleTable table) {
+        int[] indices = table.getIndices();
+        float[] weights = table.getWeights();
+        int stride = table.getOutSize();
+        int bound = INTS.loopBound(width);
+        for (int y = 0; y < table.getOutSize(); y++) {
+            int x = 0;
+            for (; x < bound; x += INTS.length()) {
+                FloatVector alpha = FloatVector.zero(FLOATS);
+                FloatVector red = FloatVector.zero(FLOATS);
+                FloatVector green = FloatVector.zero(FLOATS);
+                FloatVector blue = FloatVector.zero(FLOATS);
+                for (int t = 0; t < table.getTaps(); t++) {
+                    IntVector pixel = IntVector.fromArray(INTS, src, indices[t * stride + y] * width + x);
+                    FloatVector weight = FloatVector.broadcast(FLOATS, weights[t * stride + y]);
+                    alpha = alpha.add(weight.mul(toFloat(pixel.lanewise(VectorOperators.LSHR, 24))));
+                    red = red.add(weight.mul(toFloat(channel(pixel, 16))));
+                    green = green.add(weight.mul(toFloat(channel(pixel, 8))));
+                    blue = blue.add(weight.mul(toFloat(channel(pixel, 0))));
+                }
+                pack(alpha, red, green, blue).intoArray(dst, y * width + x);
+            }
+            for (; x < width; x++) {
+                dst[y * width + x] = ScalarPixelKernels.columnPixel(src, width, table, x, y);
+            }
+        }
+    }
+
+    private static IntVector over(IntVector src, IntVector dst) {
+        return src.add(scale(dst, src.lanewise(VectorOperators.LSHR, 24).neg().add(255)));
+    }
+
+    private static IntVector scale(IntVector pixel, IntVector factor) {
+        IntVector redBlue = div255Pairs(pixel.and(0x00FF00FF).mul(factor));
+        IntVector alphaGreen = div255Pairs(pixel.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF).mul(factor));
+        return redBlue.or(alphaGreen.lanewise(VectorOperators.LSHL, 8));
+    }
+
+    private static IntVector div255Pairs(IntVector x) {
+        IntVector rounded = x.add(0x00800080);
+        return rounded.add(rounded.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF))
+            .lanewise(VectorOperators.LSHR, 8)
+            .and(0x00FF00FF);
+    }
+
+    private static IntVector channel(IntVector pixel, int shift) {
+        return pixel.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+    }
+
+    private static FloatVector toFloat(IntVector value) {
+        return (FloatVector) value.convert(VectorOperators.I2F, 0);
+    }
+
+    private static IntVector unpremultiply(IntVector channel, FloatVector factor) {
+        return ((IntVector) toFloat(channel).mul(factor).add(0.5f).convert(VectorOperators.F2I, 0)).min(255);
+    }
+
+    private static IntVector pack(FloatVector alpha, FloatVector red, FloatVector green, FloatVector blue) {
+        IntVector a = round(alpha);
+        return a.lanewise(VectorOperators.LSHL, 24)
+            .or(round(red).min(a).lanewise(VectorOperators.LSHL, 16))
+            .or(round(green).min(a).lanewise(VectorOperators.LSHL, 8))
+            .or(round(blue).min(a));
+    }
+
+    private static IntVector round(FloatVector value) {
+        return (IntVector) value.max(0f).min(255f).add(0.5f).convert(VectorOperators.F2I, 0);
+    }
+}
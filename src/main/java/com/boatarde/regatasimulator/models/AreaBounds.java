@@ -0,0 +1,17 @@
+package com.boatarde.regatasimulator.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class AreaBounds {
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+}
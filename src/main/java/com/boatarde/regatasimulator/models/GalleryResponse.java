@@ -11,10 +11,18 @@ import java.util.List;
 @NoArgsConstructor
 public class GalleryResponse<T> {
     private List<T> items;
+    /**
+     * Number of items matching the query.
+     */
     private int totalItems;
+    /**
+     * Opaque cursor to pass back for the next page, {@code null} on the last one.
+     */
+    private String nextCursor;
 
-    public GalleryResponse(List<T> items, int totalItems) {
+    public GalleryResponse(List<T> items, int totalItems, String nextCursor) {
         this.items = items;
         this.totalItems = totalItems;
+        this.nextCursor = nextCursor;
     }
 }
@@ -24,4 +24,10 @@ public class Meme {
     private UUID templateId;
     private List<UUID> sourceIds;
     private Message message;
+    /**
+     * Format, size in bytes and encode time of the uploaded file.
+     */
+    private String format;
+    private Long fileSize;
+    private Long encodeMillis;
 }
@@ -17,4 +17,10 @@ import java.util.List;
 @Document(collection = "templates", schemaVersion = "1.0")
 public class Template extends CommonEntity {
     private List<TemplateArea> areas;
+    private Integer width;
+    private Integer height;
+    /**
+     * Version of the precompiled assets (dimensions, area geometry and masks); 0 when never precompiled.
+     */
+    private int assetsVersion;
 }
@@ -17,4 +17,14 @@ public class TemplateArea {
     private AreaCorner bottomRight;
     private AreaCorner bottomLeft;
     private boolean background;
+    /**
+     * Bounding box of the area clipped to the template, filled in by template precompilation.
+     */
+    private AreaBounds bounds;
+    /**
+     * Forward perspective coefficients that map a source scaled to {@link #bounds} onto the area, in coordinates
+     * relative to the bounds and in ImageMagick {@code Perspective-Projection} order. Filled in by template
+     * precompilation.
+     */
+    private double[] perspective;
 }
@@ -0,0 +1,85 @@
+package com.boatarde.regatasimulator.render;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the independent per-area stages of a render concurrently. Tasks run on virtual threads, and
+ * {@code regata-simulator.render.area-parallelism} caps how many run at once across all renders.
+ */
+@Slf4j
+@Component
+public class AreaRenderExecutor {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    public AreaRenderExecutor(@Value("${regata-simulator.render.area-parallelism}") int parallelism) {
+        this.permits = new Semaphore(Math.max(1, parallelism), true);
+    }
+
+    /**
+     * Runs all tasks and waits for them.
+     *
+     * @param tasks       tasks to run.
+     * @param onCompleted called with the number of finished tasks each time one finishes; calls are serialised and
+     *                    the count always increases.
+     * @return the task results, in the same order as {@code tasks}.
+     * @throws Exception the failure of the first failed task; the remaining tasks are cancelled.
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks, IntConsumer onCompleted) throws Exception {
+        Object progressLock = new Object();
+        int[] completed = {0};
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                T result;
+                try {
+                    result = task.call();
+                } finally {
+                    permits.release();
+                }
+                synchronized (progressLock) {
+                    onCompleted.accept(++completed[0]);
+                }
+                return result;
+            }));
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
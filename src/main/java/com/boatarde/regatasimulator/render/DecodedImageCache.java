@@ -0,0 +1,156 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.imageops.ImageOps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shared cache of decoded template and source rasters, keyed by entity id and file modification time. The cache is
+ * bounded by the bytes of the decoded pixels and evicts the least recently used images first. With
+ * {@code off-heap} enabled the pixels live in direct buffers and every hit copies them into a fresh image; otherwise
+ * the cached image itself is returned and callers must treat it as read-only.
+ */
+@Slf4j
+@Component
+public class DecodedImageCache {
+
+    private final long maxBytes;
+    private final boolean offHeap;
+    private final ImageOps imageOps;
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public DecodedImageCache(@Value("${regata-simulator.render.image-cache.max-bytes}") long maxBytes,
+                             @Value("${regata-simulator.render.image-cache.off-heap}") boolean offHeap,
+                             ImageOps imageOps,
+                             MeterRegistry meterRegistry) {
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+        this.imageOps = imageOps;
+        this.hits = Counter.builder("regata.image.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("regata.image.cache.misses").register(meterRegistry);
+        this.evictions = Counter.builder("regata.image.cache.evictions").register(meterRegistry);
+        Gauge.builder("regata.image.cache.bytes", this, DecodedImageCache::getUsedBytes)
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("regata.image.cache.entries", this, DecodedImageCache::size)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the decoded image of {@code file}, decoding it only when the entity is not cached or its file changed
+     * since it was cached.
+     */
+    public BufferedImage get(UUID id, Path file) throws IOException {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.modified == modified && entry.file.equals(file)) {
+                hits.increment();
+                return entry.toImage();
+            }
+        }
+        misses.increment();
+        BufferedImage image = decode(file);
+        put(id, file, modified, image);
+        return image;
+    }
+
+    public synchronized void invalidate(UUID id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            usedBytes -= removed.bytes;
+            log.debug("Image {} removed from cache", id);
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void put(UUID id, Path file, long modified, BufferedImage image) {
+        long bytes = (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+        invalidate(id);
+        if (bytes > maxBytes) {
+            return;
+        }
+        Iterator<Map.Entry<UUID, Entry>> eldest = entries.entrySet().iterator();
+        while (usedBytes + bytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions.increment();
+        }
+        entries.put(id, new Entry(file, modified, bytes, image, offHeap));
+        usedBytes += bytes;
+    }
+
+    private BufferedImage decode(Path file) throws IOException {
+        BufferedImage decoded = ImageIO.read(file.toFile());
+        if (decoded == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        // a single pixel layout keeps the byte accounting exact and the off-heap copy trivial
+        return imageOps.toArgb(decoded);
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final long modified;
+        private final long bytes;
+        private final BufferedImage image;
+        private final IntBuffer pixels;
+        private final int width;
+        private final int height;
+
+        private Entry(Path file, long modified, long bytes, BufferedImage image, boolean offHeap) {
+            this.file = file;
+            this.modified = modified;
+            this.bytes = bytes;
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            if (offHeap) {
+                this.image = null;
+                this.pixels = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+                this.pixels.put(((DataBufferInt) image.getRaster().getDataBuffer()).getData()).flip();
+            } else {
+                this.image = image;
+                this.pixels = null;
+            }
+        }
+
+        private BufferedImage toImage() {
+            if (image != null) {
+                return image;
+            }
+            BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels.duplicate().get(((DataBufferInt) copy.getRaster().getDataBuffer()).getData());
+            return copy;
+        }
+    }
+}
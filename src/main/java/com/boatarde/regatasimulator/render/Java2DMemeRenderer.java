@@ -0,0 +1,231 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * In-process renderer that reproduces the ImageMagick pipeline (resize, four-corner perspective distortion, polygon
+ * mask and layered composite) on {@link BufferedImage} rasters, without spawning any process.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "regata-simulator.render.engine", havingValue = "java")
+public class Java2DMemeRenderer implements MemeRenderer {
+
+    private final AreaRenderExecutor areaRenderExecutor;
+    private final DecodedImageCache decodedImageCache;
+
+    public Java2DMemeRenderer(AreaRenderExecutor areaRenderExecutor, DecodedImageCache decodedImageCache) {
+        this.areaRenderExecutor = areaRenderExecutor;
+        this.decodedImageCache = decodedImageCache;
+    }
+
+    @Override
+    public Path render(RenderRequest request) throws Exception {
+        long start = System.currentTimeMillis();
+        BufferedImage templateImage = readImage(request.getTemplate().getId(), request.getTemplateFile());
+        RenderLayout layout = RenderLayout.of(request.getTemplate(), templateImage.getWidth(),
+            templateImage.getHeight(), request.getMaxSide());
+        boolean preview = request.getQuality() == RenderQuality.PREVIEW;
+        if (layout.isScaled()) {
+            templateImage = resize(templateImage, layout.getWidth(), layout.getHeight(), preview);
+        }
+
+        List<TemplateArea> areas = layout.getAreas();
+        int totalStages = areas.size() + 1;
+
+        List<Integer> sources = areas.stream().map(TemplateArea::getSource).distinct().toList();
+        List<BufferedImage> decoded = areaRenderExecutor.invokeAll(sources.stream()
+            .<Callable<BufferedImage>>map(source ->
+                () -> readImage(request.getSourceId(source), request.getSourceFile(source)))
+            .toList(), completed -> {
+        });
+        Map<Integer, BufferedImage> decodedSources = new HashMap<>();
+        for (int i = 0; i < sources.size(); i++) {
+            decodedSources.put(sources.get(i), decoded.get(i));
+        }
+
+        List<TemplateArea> orderedAreas = areas.stream()
+            .sorted(Comparator.comparingInt(TemplateArea::getIndex))
+            .toList();
+        List<BufferedImage> orderedLayers = areaRenderExecutor.invokeAll(orderedAreas.stream()
+                .<Callable<BufferedImage>>map(area -> () -> {
+                    AreaBounds bounds = layout.getBounds(area);
+                    BufferedImage source = resize(decodedSources.get(area.getSource()), bounds.getWidth(),
+                        bounds.getHeight(), preview);
+                    return buildAreaLayer(source, area, bounds, layout.isPrecompiled());
+                })
+                .toList(),
+            completed -> request.getProgressListener().onProgress(completed, totalStages));
+        Map<Integer, BufferedImage> layers = new HashMap<>();
+        for (int i = 0; i < orderedAreas.size(); i++) {
+            layers.put(orderedAreas.get(i).getIndex(), orderedLayers.get(i));
+        }
+        request.getProgressListener().onProgress(totalStages, totalStages);
+
+        BufferedImage result = composite(templateImage, layout, layers);
+        Path finalOutput = request.getWorkspace().resolve("final_output.png");
+        ImageIO.write(result, "png", finalOutput.toFile());
+        log.info("Rendered {} areas in-process in {} ms", areas.size(), System.currentTimeMillis() - start);
+        return finalOutput;
+    }
+
+    /**
+     * Draws the background layers, the template and the foreground layers on a transparent canvas.
+     */
+    BufferedImage composite(BufferedImage templateImage, RenderLayout layout, Map<Integer, BufferedImage> layers) {
+        BufferedImage result = new BufferedImage(layout.getWidth(), layout.getHeight(),
+            BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            layout.getAreas().stream().filter(TemplateArea::isBackground)
+                .forEach(area -> drawLayer(graphics, layers.get(area.getIndex()), layout.getBounds(area)));
+            graphics.drawImage(templateImage, 0, 0, null);
+            layout.getAreas().stream().filter(area -> !area.isBackground())
+                .forEach(area -> drawLayer(graphics, layers.get(area.getIndex()), layout.getBounds(area)));
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    private void drawLayer(Graphics2D graphics, BufferedImage layer, AreaBounds bounds) {
+        graphics.drawImage(layer, bounds.getX(), bounds.getY(), null);
+    }
+
+    private BufferedImage readImage(UUID id, Path file) throws IOException {
+        if (id != null) {
+            return decodedImageCache.get(id, file);
+        }
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + file);
+        }
+        return image;
+    }
+
+    /**
+     * Equivalent of {@code -resize WxH!}: halves the image with bilinear filtering while it is more than twice the
+     * target size, then finishes with a bicubic pass, which keeps large downscales from aliasing. Previews go straight
+     * to the target size in a single bilinear pass.
+     */
+    BufferedImage resize(BufferedImage image, int width, int height, boolean preview) {
+        BufferedImage current = image;
+        do {
+            int stepWidth = preview ? width : Math.max(width, current.getWidth() / 2);
+            int stepHeight = preview ? height : Math.max(height, current.getHeight() / 2);
+            boolean lastStep = stepWidth == width && stepHeight == height;
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setComposite(AlphaComposite.Src);
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, lastStep && !preview
+                    ? RenderingHints.VALUE_INTERPOLATION_BICUBIC
+                    : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    /**
+     * Equivalent of {@code -alpha set -virtual-pixel transparent -distort Perspective} followed by
+     * {@code -alpha off -compose CopyOpacity -composite} with the polygon mask, in the space of the area bounds: the
+     * source is already scaled to the bounds, colours come from the distorted source and alpha comes from the
+     * anti-aliased mask.
+     */
+    BufferedImage buildAreaLayer(BufferedImage source, TemplateArea area, AreaBounds bounds,
+                                         boolean precompiled) {
+        PerspectiveTransform inverse = PerspectiveTransform.of(precompiled
+            ? area.getPerspective()
+            : TemplateGeometry.perspective(area, bounds)).inverse();
+        int width = bounds.getWidth();
+        int height = bounds.getHeight();
+        byte[] mask = ((DataBufferByte) TemplateGeometry.mask(area, bounds).getRaster().getDataBuffer()).getData();
+
+        int[] sourcePixels = source.getRGB(0, 0, width, height, null, 0, width);
+        BufferedImage layer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] layerPixels = new int[width * height];
+        double[] point = new double[2];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = mask[y * width + x] & 0xFF;
+                if (alpha == 0) {
+                    continue;
+                }
+                inverse.transform(x + 0.5, y + 0.5, point);
+                int rgb = sampleBilinear(sourcePixels, width, height, point[0] - 0.5, point[1] - 0.5);
+                layerPixels[y * width + x] = (alpha << 24) | (rgb & 0xFFFFFF);
+            }
+        }
+        layer.setRGB(0, 0, width, height, layerPixels, 0, width);
+        return layer;
+    }
+
+    /**
+     * Samples the ARGB buffer at a fractional position, weighting colours by alpha. Neighbours outside the image are
+     * treated as transparent, like ImageMagick's transparent virtual pixels, so they never darken the edges.
+     */
+    private int sampleBilinear(int[] pixels, int width, int height, double x, double y) {
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        if (x0 < -1 || y0 < -1 || x0 >= width || y0 >= height) {
+            return 0;
+        }
+        double fx = x - x0;
+        double fy = y - y0;
+        int[] neighbours = {
+            pixel(pixels, width, height, x0, y0),
+            pixel(pixels, width, height, x0 + 1, y0),
+            pixel(pixels, width, height, x0, y0 + 1),
+            pixel(pixels, width, height, x0 + 1, y0 + 1)};
+        double[] weights = {(1 - fx) * (1 - fy), fx * (1 - fy), (1 - fx) * fy, fx * fy};
+
+        double alpha = 0;
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int i = 0; i < 4; i++) {
+            double weight = weights[i] * (neighbours[i] >>> 24);
+            alpha += weight;
+            red += weight * ((neighbours[i] >> 16) & 0xFF);
+            green += weight * ((neighbours[i] >> 8) & 0xFF);
+            blue += weight * (neighbours[i] & 0xFF);
+        }
+        if (alpha == 0) {
+            return 0;
+        }
+        return ((int) Math.round(alpha) << 24)
+            | ((int) Math.round(red / alpha) << 16)
+            | ((int) Math.round(green / alpha) << 8)
+            | (int) Math.round(blue / alpha);
+    }
+
+    private int pixel(int[] pixels, int width, int height, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return 0;
+        }
+        return pixels[y * width + x];
+    }
+}
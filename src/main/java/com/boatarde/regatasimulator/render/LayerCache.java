@@ -0,0 +1,208 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.AreaCorner;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.service.AssetRemovedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Disk cache of masked, distorted area layers. A layer only depends on the source, the template area and how it is
+ * rendered, so files are named {@code sourceId_templateId_areaIndex_hash.png}, where the hash covers the area
+ * geometry, the source file modification time and the render variant. The cache is bounded by
+ * {@code regata-simulator.render.layer-cache.max-bytes} and evicts the least recently used layers; the layers of a
+ * template or source are dropped when it is deleted or rejected.
+ */
+@Slf4j
+@Component
+public class LayerCache {
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public LayerCache(@Value("${regata-simulator.render.layer-cache.path}") String directory,
+                      @Value("${regata-simulator.render.layer-cache.max-bytes}") long maxBytes,
+                      MeterRegistry meterRegistry) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("regata.layer.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("regata.layer.cache.misses").register(meterRegistry);
+        this.evictions = Counter.builder("regata.layer.cache.evictions").register(meterRegistry);
+        Gauge.builder("regata.layer.cache.bytes", this, LayerCache::getUsedBytes)
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the index from the files left by a previous run, oldest first, so they are evicted first.
+     */
+    @PostConstruct
+    public synchronized void loadIndex() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(".png"));
+        if (files == null) {
+            return;
+        }
+        Arrays.stream(files)
+            .sorted(Comparator.comparingLong(File::lastModified))
+            .forEach(file -> {
+                entries.put(file.getName(), file.length());
+                usedBytes += file.length();
+            });
+        evict();
+        log.info("Layer cache loaded with {} layers ({} bytes)", entries.size(), usedBytes);
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Builds the cache key of a layer, or returns {@code null} when the layer cannot be cached.
+     *
+     * @param variant what else the layer depends on, such as the engine that renders it.
+     */
+    public String key(UUID sourceId, Path sourceFile, UUID templateId, TemplateArea area, AreaBounds bounds,
+                      String variant) throws IOException {
+        if (!isEnabled() || sourceId == null || templateId == null) {
+            return null;
+        }
+        StringBuilder geometry = new StringBuilder()
+            .append(TemplateGeometry.ASSETS_VERSION).append('|')
+            .append(variant).append('|')
+            .append(Files.getLastModifiedTime(sourceFile).toMillis()).append('|')
+            .append(bounds.getX()).append(',').append(bounds.getY()).append(',')
+            .append(bounds.getWidth()).append(',').append(bounds.getHeight());
+        for (AreaCorner corner : TemplateGeometry.corners(area)) {
+            geometry.append('|').append(corner.getX()).append(',').append(corner.getY());
+        }
+        return "%s_%s_%d_%s.png".formatted(sourceId, templateId, area.getIndex(), hash(geometry.toString()));
+    }
+
+    /**
+     * Copies the cached layer to {@code destination}.
+     *
+     * @return {@code false} when the layer is not cached.
+     */
+    public boolean get(String key, Path destination) throws IOException {
+        if (key == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses.increment();
+                return false;
+            }
+        }
+        try {
+            Files.copy(directory.resolve(key), destination, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            // evicted between the lookup and the copy
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    public void put(String key, Path layer) throws IOException {
+        if (key == null) {
+            return;
+        }
+        Path temp = Files.createTempFile(directory, "layer", ".tmp");
+        try {
+            Files.copy(layer, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        long size = Files.size(directory.resolve(key));
+        synchronized (this) {
+            Long previous = entries.put(key, size);
+            usedBytes += size - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    @EventListener
+    public void onAssetRemoved(AssetRemovedEvent event) {
+        String id = event.getId().toString();
+        List<String> removed;
+        synchronized (this) {
+            removed = entries.keySet().stream().filter(key -> key.contains(id)).toList();
+            removed.forEach(key -> usedBytes -= entries.remove(key));
+        }
+        removed.forEach(this::delete);
+        if (!removed.isEmpty()) {
+            log.info("{} cached layers of {} removed", removed.size(), id);
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            usedBytes -= entry.getValue();
+            eldest.remove();
+            delete(entry.getKey());
+            evictions.increment();
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(directory.resolve(key));
+        } catch (IOException e) {
+            log.error("Failed to delete cached layer {}: {}", key, e.getMessage(), e);
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
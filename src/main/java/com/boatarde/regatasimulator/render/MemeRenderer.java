@@ -0,0 +1,19 @@
+package com.boatarde.regatasimulator.render;
+
+import java.nio.file.Path;
+
+/**
+ * Renders a meme by distorting each source into its template area and compositing the layers with the template.
+ * Implementations are selected through the {@code regata-simulator.render.engine} property.
+ */
+public interface MemeRenderer {
+
+    /**
+     * Renders the meme described by the request.
+     *
+     * @param request template, sources and output location of the render.
+     * @return the path of the rendered image.
+     * @throws Exception if any stage of the render fails.
+     */
+    Path render(RenderRequest request) throws Exception;
+}
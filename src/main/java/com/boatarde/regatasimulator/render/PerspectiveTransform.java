@@ -0,0 +1,115 @@
+package com.boatarde.regatasimulator.render;
+
+import java.util.Arrays;
+
+/**
+ * Projective mapping between two quadrilaterals, using the same coefficient layout as ImageMagick's
+ * {@code Perspective-Projection} distortion:
+ * <pre>
+ * x' = (a*x + b*y + c) / (g*x + h*y + 1)
+ * y' = (d*x + e*y + f) / (g*x + h*y + 1)
+ * </pre>
+ */
+public final class PerspectiveTransform {
+
+    private final double[] coefficients;
+
+    private PerspectiveTransform(double[] coefficients) {
+        this.coefficients = coefficients;
+    }
+
+    public static PerspectiveTransform of(double[] coefficients) {
+        if (coefficients == null || coefficients.length != 8) {
+            throw new IllegalArgumentException("A perspective transform needs exactly 8 coefficients");
+        }
+        return new PerspectiveTransform(coefficients.clone());
+    }
+
+    /**
+     * Builds the transform that maps each source corner onto the matching destination corner.
+     *
+     * @param src four source points as {@code x0,y0,x1,y1,x2,y2,x3,y3}.
+     * @param dst four destination points in the same order.
+     * @return the forward (source to destination) transform.
+     */
+    public static PerspectiveTransform quadToQuad(double[] src, double[] dst) {
+        double[][] system = new double[8][9];
+        for (int i = 0; i < 4; i++) {
+            double x = src[i * 2];
+            double y = src[i * 2 + 1];
+            double u = dst[i * 2];
+            double v = dst[i * 2 + 1];
+            system[i * 2] = new double[] {x, y, 1, 0, 0, 0, -x * u, -y * u, u};
+            system[i * 2 + 1] = new double[] {0, 0, 0, x, y, 1, -x * v, -y * v, v};
+        }
+        return new PerspectiveTransform(solve(system));
+    }
+
+    public PerspectiveTransform inverse() {
+        double a = coefficients[0], b = coefficients[1], c = coefficients[2];
+        double d = coefficients[3], e = coefficients[4], f = coefficients[5];
+        double g = coefficients[6], h = coefficients[7];
+
+        // adjugate of [[a, b, c], [d, e, f], [g, h, 1]], normalised so the last element is 1
+        double i00 = e - f * h, i01 = c * h - b, i02 = b * f - c * e;
+        double i10 = f * g - d, i11 = a - c * g, i12 = c * d - a * f;
+        double i20 = d * h - e * g, i21 = b * g - a * h, i22 = a * e - b * d;
+        if (Math.abs(i22) < 1e-12) {
+            throw new IllegalStateException("Perspective transform is not invertible");
+        }
+        return new PerspectiveTransform(new double[] {
+            i00 / i22, i01 / i22, i02 / i22,
+            i10 / i22, i11 / i22, i12 / i22,
+            i20 / i22, i21 / i22});
+    }
+
+    /**
+     * Maps a point, writing {@code x', y'} into {@code out}.
+     */
+    public void transform(double x, double y, double[] out) {
+        double w = coefficients[6] * x + coefficients[7] * y + 1;
+        out[0] = (coefficients[0] * x + coefficients[1] * y + coefficients[2]) / w;
+        out[1] = (coefficients[3] * x + coefficients[4] * y + coefficients[5]) / w;
+    }
+
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(coefficients);
+    }
+
+    private static double[] solve(double[][] system) {
+        int n = system.length;
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(system[row][col]) > Math.abs(system[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(system[pivot][col]) < 1e-12) {
+                throw new IllegalArgumentException("Degenerate quadrilateral, cannot compute perspective transform");
+            }
+            double[] tmp = system[col];
+            system[col] = system[pivot];
+            system[pivot] = tmp;
+
+            for (int row = 0; row < n; row++) {
+                if (row != col) {
+                    double factor = system[row][col] / system[col][col];
+                    for (int k = col; k <= n; k++) {
+                        system[row][k] -= factor * system[col][k];
+                    }
+                }
+            }
+        }
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = system[i][n] / system[i][i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package com.boatarde.regatasimulator.render;
+
+import com.sun.management.OperatingSystemMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bulkhead in front of every render. At most {@code max-concurrent} renders run at once, whatever thread starts
+ * them; the others wait in a queue ordered by {@link RenderPriority} and then by arrival, and a freed slot is handed
+ * straight to the head of the queue. When {@code max-queued} renders are already waiting, new renders are rejected
+ * right away, except scheduled posts, which always queue.
+ * <p>
+ * With {@code max-concurrent} 0 the limit is derived from the host: one render per core, and no more than the
+ * physical memory divided by {@code memory-per-render}.
+ */
+@Slf4j
+@Component
+public class RenderGovernor {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>(Comparator
+        .comparing((Ticket ticket) -> ticket.priority)
+        .thenComparingLong(ticket -> ticket.sequence));
+    private int active;
+    private long sequence;
+
+    public RenderGovernor(@Value("${regata-simulator.render.governor.max-concurrent}") int maxConcurrent,
+                          @Value("${regata-simulator.render.governor.memory-per-render}") long memoryPerRender,
+                          @Value("${regata-simulator.render.governor.max-queued}") int maxQueued,
+                          MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : hostLimit(memoryPerRender);
+        this.maxQueued = maxQueued;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("regata.render.active", this, RenderGovernor::getActive)
+            .description("Renders currently running")
+            .register(meterRegistry);
+        Gauge.builder("regata.render.queued", this, RenderGovernor::getQueued)
+            .description("Renders waiting for a slot")
+            .register(meterRegistry);
+        log.info("Render governor allows {} concurrent renders and {} queued", this.maxConcurrent, maxQueued);
+    }
+
+    /**
+     * Waits for a slot, runs the render and frees the slot.
+     *
+     * @throws RejectedExecutionException when the queue is full; the render never ran.
+     */
+    public <T> T run(RenderPriority priority, Callable<T> render) throws Exception {
+        acquire(priority);
+        try {
+            return render.call();
+        } finally {
+            release();
+        }
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(RenderPriority priority) throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (active < maxConcurrent && queue.isEmpty()) {
+                active++;
+            } else {
+                if (priority != RenderPriority.SCHEDULED && queue.size() >= maxQueued) {
+                    Counter.builder("regata.render.rejected")
+                        .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry)
+                        .increment();
+                    throw new RejectedExecutionException("Render queue is full: %d renders waiting"
+                        .formatted(queue.size()));
+                }
+                Ticket ticket = new Ticket(priority, sequence++, lock.newCondition());
+                queue.add(ticket);
+                awaitAdmission(ticket);
+            }
+        } finally {
+            lock.unlock();
+        }
+        long waited = System.nanoTime() - start;
+        Timer.builder("regata.render.queue.time")
+            .description("Time renders waited for a slot")
+            .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .record(waited, TimeUnit.NANOSECONDS);
+        log.debug("{} render admitted after {} ms", priority, TimeUnit.NANOSECONDS.toMillis(waited));
+    }
+
+    private void awaitAdmission(Ticket ticket) throws InterruptedException {
+        try {
+            while (!ticket.admitted) {
+                ticket.condition.await();
+            }
+        } catch (InterruptedException e) {
+            if (ticket.admitted) {
+                // the slot was handed over while the thread was being interrupted, pass it on
+                active--;
+                admitNext();
+            } else {
+                queue.remove(ticket);
+            }
+            throw e;
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            active--;
+            admitNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admitNext() {
+        if (active >= maxConcurrent) {
+            return;
+        }
+        Ticket next = queue.poll();
+        if (next != null) {
+            active++;
+            next.admitted = true;
+            next.condition.signal();
+        }
+    }
+
+    private static int hostLimit(long memoryPerRender) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long memory = Long.MAX_VALUE;
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean os) {
+            memory = os.getTotalMemorySize();
+        }
+        return (int) Math.max(1, Math.min(cores, memory / Math.max(1, memoryPerRender)));
+    }
+
+    private static final class Ticket {
+        private final RenderPriority priority;
+        private final long sequence;
+        private final Condition condition;
+        private boolean admitted;
+
+        private Ticket(RenderPriority priority, long sequence, Condition condition) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.AreaCorner;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canvas size and area geometry of one render. When the template is larger than the requested {@code maxSide} the
+ * canvas and every area are scaled down, and the precompiled geometry, which only fits the template resolution, is
+ * ignored.
+ */
+@Getter
+public class RenderLayout {
+
+    private final int width;
+    private final int height;
+    private final double scale;
+    private final boolean precompiled;
+    /**
+     * Template areas in template order, with their corners in canvas coordinates.
+     */
+    private final List<TemplateArea> areas;
+    private final Map<Integer, AreaBounds> bounds = new HashMap<>();
+
+    private RenderLayout(Template template, int templateWidth, int templateHeight, int maxSide) {
+        int longestSide = Math.max(templateWidth, templateHeight);
+        this.scale = maxSide > 0 && longestSide > maxSide ? (double) maxSide / longestSide : 1;
+        this.width = Math.max(1, (int) Math.round(templateWidth * scale));
+        this.height = Math.max(1, (int) Math.round(templateHeight * scale));
+        this.precompiled = !isScaled() && TemplateGeometry.isPrecompiled(template);
+        this.areas = isScaled()
+            ? template.getAreas().stream().map(this::scale).toList()
+            : template.getAreas();
+        // every layer only covers the bounds of its area and is composited at its offset
+        areas.forEach(area -> bounds.put(area.getIndex(),
+            precompiled ? area.getBounds() : TemplateGeometry.bounds(area, width, height)));
+    }
+
+    /**
+     * @param maxSide longest side of the canvas, 0 to render at the template resolution.
+     */
+    public static RenderLayout of(Template template, int templateWidth, int templateHeight, int maxSide) {
+        return new RenderLayout(template, templateWidth, templateHeight, maxSide);
+    }
+
+    public boolean isScaled() {
+        return scale < 1;
+    }
+
+    public AreaBounds getBounds(TemplateArea area) {
+        return bounds.get(area.getIndex());
+    }
+
+    private TemplateArea scale(TemplateArea area) {
+        return TemplateArea.builder()
+            .index(area.getIndex())
+            .source(area.getSource())
+            .background(area.isBackground())
+            .topLeft(scale(area.getTopLeft()))
+            .topRight(scale(area.getTopRight()))
+            .bottomRight(scale(area.getBottomRight()))
+            .bottomLeft(scale(area.getBottomLeft()))
+            .build();
+    }
+
+    private AreaCorner scale(AreaCorner corner) {
+        return new AreaCorner((int) Math.round(corner.getX() * scale), (int) Math.round(corner.getY() * scale));
+    }
+}
@@ -0,0 +1,19 @@
+package com.boatarde.regatasimulator.render;
+
+/**
+ * Order in which queued renders are admitted by the {@link RenderGovernor}, highest priority first.
+ */
+public enum RenderPriority {
+    /**
+     * A channel post that is due and has no pre-rendered meme.
+     */
+    SCHEDULED,
+    /**
+     * Someone is waiting on Telegram: test memes of new templates and sources, and the {@code /meme} command.
+     */
+    INTERACTIVE,
+    /**
+     * Background work, like refilling the meme buffer.
+     */
+    BATCH
+}
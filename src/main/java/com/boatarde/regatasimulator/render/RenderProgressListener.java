@@ -0,0 +1,14 @@
+package com.boatarde.regatasimulator.render;
+
+@FunctionalInterface
+public interface RenderProgressListener {
+
+    RenderProgressListener NONE = (completedStages, totalStages) -> {
+    };
+
+    /**
+     * Called whenever a render stage completes. There is one stage per template area plus the final composite, so
+     * {@code completedStages == totalStages} means the areas are ready and compositing is about to start.
+     */
+    void onProgress(int completedStages, int totalStages);
+}
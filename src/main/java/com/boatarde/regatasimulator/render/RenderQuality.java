@@ -0,0 +1,11 @@
+package com.boatarde.regatasimulator.render;
+
+/**
+ * How much effort a render is worth. Channel posts are rendered at {@link #FULL} quality; the test memes shown to
+ * whoever submits a template or source only need to show the alignment, so they are rendered as {@link #PREVIEW}:
+ * scaled down, with cheaper resampling filters and a lower encoding quality.
+ */
+public enum RenderQuality {
+    FULL,
+    PREVIEW
+}
@@ -0,0 +1,45 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.Template;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Everything a {@link MemeRenderer} needs for one meme. The template and source files are read-only: renderers write
+ * intermediates and the final output only into the {@link #workspace}.
+ */
+@Getter
+@Builder
+public class RenderRequest {
+    private final Template template;
+    private final Path templateFile;
+    /**
+     * Source files ordered by the {@code source} number of the template areas (source 1 is the first element).
+     */
+    private final List<Path> sourceFiles;
+    /**
+     * Ids of the sources in the same order as {@link #sourceFiles}, used as cache keys; may be {@code null}.
+     */
+    private final List<UUID> sourceIds;
+    private final RenderWorkspace workspace;
+    @Builder.Default
+    private final RenderQuality quality = RenderQuality.FULL;
+    /**
+     * Longest side of the rendered meme, larger templates are scaled down; 0 renders at the template resolution.
+     */
+    private final int maxSide;
+    @Builder.Default
+    private final RenderProgressListener progressListener = RenderProgressListener.NONE;
+
+    public Path getSourceFile(int source) {
+        return sourceFiles.get(source - 1);
+    }
+
+    public UUID getSourceId(int source) {
+        return sourceIds == null ? null : sourceIds.get(source - 1);
+    }
+}
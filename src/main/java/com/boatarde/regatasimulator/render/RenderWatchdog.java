@@ -0,0 +1,103 @@
+package com.boatarde.regatasimulator.render;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Enforces the total deadline of a meme, {@code regata-simulator.render.deadline}, on top of the per-command
+ * {@code magick.timeout}. The deadline starts before the meme waits for a {@link RenderGovernor} slot. When it passes
+ * the thread is interrupted: a meme still queued leaves the queue, the area tasks are cancelled and running magick
+ * processes are killed, while in-process stages stop at their next blocking call.
+ */
+@Slf4j
+@Component
+public class RenderWatchdog {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+        .name("render-watchdog")
+        .daemon()
+        .factory());
+    private final Duration deadline;
+    private final Counter expired;
+
+    public RenderWatchdog(@Value("${regata-simulator.render.deadline}") Duration deadline,
+                          MeterRegistry meterRegistry) {
+        this.deadline = deadline;
+        this.expired = Counter.builder("regata.render.deadline.expired").register(meterRegistry);
+    }
+
+    /**
+     * Runs the render on the calling thread.
+     *
+     * @throws TimeoutException when the deadline passed before the render finished; the cause is what the
+     *                          interrupted render threw.
+     */
+    public <T> T run(Callable<T> render) throws Exception {
+        Alarm alarm = new Alarm(Thread.currentThread());
+        ScheduledFuture<?> scheduled = scheduler.schedule(alarm::fire, deadline.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            return render.call();
+        } catch (Exception e) {
+            if (alarm.isFired()) {
+                expired.increment();
+                TimeoutException timeout = new TimeoutException("Render did not finish within " + deadline);
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            scheduled.cancel(false);
+            if (alarm.disarm()) {
+                // the interrupt was meant for the render, not for whatever the thread does next
+                Thread.interrupted();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Alarm {
+        private final Thread thread;
+        private boolean fired;
+        private boolean disarmed;
+
+        private Alarm(Thread thread) {
+            this.thread = thread;
+        }
+
+        private synchronized void fire() {
+            if (!disarmed) {
+                fired = true;
+                log.warn("Render deadline passed, interrupting {}", thread.getName());
+                thread.interrupt();
+            }
+        }
+
+        private synchronized boolean isFired() {
+            return fired;
+        }
+
+        /**
+         * @return whether the alarm had already fired.
+         */
+        private synchronized boolean disarm() {
+            disarmed = true;
+            return fired;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.boatarde.regatasimulator.render;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Scratch directory owned by a single render. Every intermediate and the final output of the render live here, so
+ * concurrent renders of the same template never touch each other's files. Closing it deletes the directory.
+ */
+@Slf4j
+public class RenderWorkspace implements AutoCloseable {
+
+    @Getter
+    private final Path directory;
+    private final Runnable onClose;
+    private boolean closed;
+
+    RenderWorkspace(Path directory, Runnable onClose) {
+        this.directory = directory;
+        this.onClose = onClose;
+    }
+
+    public Path resolve(String fileName) {
+        return directory.resolve(fileName);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        log.debug("Closing render workspace {} ({} bytes)", directory, size());
+        try {
+            delete(directory);
+        } catch (IOException e) {
+            log.error("Failed to delete render workspace {}: {}", directory, e.getMessage(), e);
+        } finally {
+            onClose.run();
+        }
+    }
+
+    public long size() {
+        return size(directory);
+    }
+
+    static long size(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+        } catch (IOException | UncheckedIOException e) {
+            // the workspace was closed while it was being measured
+            return 0;
+        }
+    }
+
+    static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            if (!paths.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .allMatch(File::delete)) {
+                throw new IOException("Failed to delete " + directory);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.boatarde.regatasimulator.render;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out one {@link RenderWorkspace} per render under {@code regata-simulator.render.workspace.path}, which can
+ * point to a RAM-backed tmpfs. New workspaces are refused while the workspaces under the root exceed
+ * {@code regata-simulator.render.workspace.max-bytes}. The root may be shared, such as {@code /dev/shm} or
+ * {@code /tmp}: only the {@code render-*} directories are the manager's, everything else there is left alone.
+ */
+@Slf4j
+@Component
+public class RenderWorkspaceManager {
+
+    private static final String WORKSPACE_PREFIX = "render-";
+
+    private final Path root;
+    private final long maxBytes;
+    private final AtomicInteger openWorkspaces = new AtomicInteger();
+
+    public RenderWorkspaceManager(@Value("${regata-simulator.render.workspace.path}") String root,
+                                  @Value("${regata-simulator.render.workspace.max-bytes}") long maxBytes,
+                                  MeterRegistry meterRegistry) {
+        this.root = Paths.get(root);
+        this.maxBytes = maxBytes;
+        Gauge.builder("regata.render.workspace.open", openWorkspaces, AtomicInteger::get)
+            .description("Render workspaces currently in use")
+            .register(meterRegistry);
+        Gauge.builder("regata.render.workspace.bytes", this, RenderWorkspaceManager::usedBytesGauge)
+            .description("Bytes used under the render workspace root")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Workspaces left behind by a crash are never closed, so they are removed on startup.
+     */
+    @PostConstruct
+    public void cleanUp() throws IOException {
+        Files.createDirectories(root);
+        for (Path workspace : workspaces()) {
+            log.info("Removing stale render workspace {}", workspace);
+            RenderWorkspace.delete(workspace);
+        }
+    }
+
+    public RenderWorkspace open() throws IOException {
+        long used = usedBytes();
+        if (used >= maxBytes) {
+            throw new IOException("Render workspace budget exceeded: %d of %d bytes in use".formatted(used, maxBytes));
+        }
+        Files.createDirectories(root);
+        Path directory = Files.createTempDirectory(root, WORKSPACE_PREFIX);
+        openWorkspaces.incrementAndGet();
+        return new RenderWorkspace(directory, openWorkspaces::decrementAndGet);
+    }
+
+    private long usedBytes() throws IOException {
+        return workspaces().stream().mapToLong(RenderWorkspace::size).sum();
+    }
+
+    /**
+     * The workspace directories created by {@link #open()}.
+     */
+    private List<Path> workspaces() throws IOException {
+        if (!Files.exists(root)) {
+            return List.of();
+        }
+        List<Path> workspaces = new ArrayList<>();
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(root, WORKSPACE_PREFIX + "*")) {
+            for (Path directory : directories) {
+                if (Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+                    workspaces.add(directory);
+                }
+            }
+        }
+        return workspaces;
+    }
+
+    private double usedBytesGauge() {
+        try {
+            return usedBytes();
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.AreaCorner;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import lombok.experimental.UtilityClass;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Geometry shared by the renderers and by template precompilation.
+ */
+@UtilityClass
+public class TemplateGeometry {
+
+    /**
+     * Bumped whenever the precompiled assets change shape, so older templates are precompiled again.
+     */
+    public static final int ASSETS_VERSION = 2;
+
+    public static boolean isPrecompiled(Template template) {
+        return template.getAssetsVersion() == ASSETS_VERSION
+            && template.getWidth() != null
+            && template.getHeight() != null
+            && template.getAreas().stream()
+            .allMatch(area -> area.getBounds() != null && area.getPerspective() != null);
+    }
+
+    /**
+     * Precompiled mask of the area, sized to its bounds. The name carries the assets version so masks written by an
+     * older version are never picked up.
+     */
+    public static Path maskFile(Path templateDir, TemplateArea area) {
+        return templateDir.resolve("mask_%d.v%d.png".formatted(area.getIndex(), ASSETS_VERSION));
+    }
+
+    public static List<AreaCorner> corners(TemplateArea area) {
+        return List.of(area.getTopLeft(), area.getTopRight(), area.getBottomRight(), area.getBottomLeft());
+    }
+
+    public static AreaBounds bounds(TemplateArea area, int width, int height) {
+        int minX = width;
+        int minY = height;
+        int maxX = 0;
+        int maxY = 0;
+        for (AreaCorner corner : corners(area)) {
+            minX = Math.min(minX, corner.getX());
+            minY = Math.min(minY, corner.getY());
+            maxX = Math.max(maxX, corner.getX());
+            maxY = Math.max(maxY, corner.getY());
+        }
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width, maxX);
+        maxY = Math.min(height, maxY);
+        // never empty, so every layer is at least one pixel wide and high
+        return new AreaBounds(Math.min(minX, width - 1), Math.min(minY, height - 1),
+            Math.max(1, maxX - minX), Math.max(1, maxY - minY));
+    }
+
+    /**
+     * Area corners relative to the top-left corner of its bounds, in top-left, top-right, bottom-right, bottom-left
+     * order.
+     */
+    public static int[] localCorners(TemplateArea area, AreaBounds bounds) {
+        int[] local = new int[8];
+        List<AreaCorner> corners = corners(area);
+        for (int i = 0; i < 4; i++) {
+            local[i * 2] = corners.get(i).getX() - bounds.getX();
+            local[i * 2 + 1] = corners.get(i).getY() - bounds.getY();
+        }
+        return local;
+    }
+
+    /**
+     * Forward perspective coefficients that map a source scaled to the bounds size onto the area corners, in the
+     * coordinates of the bounds.
+     */
+    public static double[] perspective(TemplateArea area, AreaBounds bounds) {
+        int[] local = localCorners(area, bounds);
+        double[] destination = new double[8];
+        for (int i = 0; i < 8; i++) {
+            destination[i] = local[i];
+        }
+        int width = bounds.getWidth();
+        int height = bounds.getHeight();
+        return PerspectiveTransform.quadToQuad(new double[] {0, 0, width, 0, width, height, 0, height}, destination)
+            .getCoefficients();
+    }
+
+    /**
+     * Same mask as {@code -size WxH xc:black -fill white -draw "polygon ..."} on a canvas the size of the bounds:
+     * white inside the area, black outside.
+     */
+    public static BufferedImage mask(TemplateArea area, AreaBounds bounds) {
+        BufferedImage mask = new BufferedImage(bounds.getWidth(), bounds.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = mask.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            int[] local = localCorners(area, bounds);
+            Polygon polygon = new Polygon();
+            for (int i = 0; i < 4; i++) {
+                polygon.addPoint(local[i * 2], local[i * 2 + 1]);
+            }
+            graphics.fillPolygon(polygon);
+        } finally {
+            graphics.dispose();
+        }
+        return mask;
+    }
+}
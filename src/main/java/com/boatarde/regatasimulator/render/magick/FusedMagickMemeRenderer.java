@@ -0,0 +1,164 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.LayerCache;
+import com.boatarde.regatasimulator.render.MemeRenderer;
+import com.boatarde.regatasimulator.render.RenderLayout;
+import com.boatarde.regatasimulator.render.RenderQuality;
+import com.boatarde.regatasimulator.render.RenderRequest;
+import com.boatarde.regatasimulator.render.TemplateGeometry;
+import com.boatarde.regatasimulator.util.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders a meme with a single ImageMagick invocation. Each source is decoded once into an {@code mpr:} register,
+ * every area is resized, distorted and masked in the space of its bounds in its own parenthesised sub-pipeline, and
+ * the layers are composited at their offsets from the registers, so intermediate images never leave memory. The
+ * registers outlive the command on a pooled {@link MagickWorker}, so they are overwritten with a single pixel once
+ * composited. A command that fails halfway retires its worker, which frees them with the process.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "regata-simulator.render.engine", havingValue = "magick-fused")
+public class FusedMagickMemeRenderer implements MemeRenderer {
+
+    private final MagickExecutor magickExecutor;
+    private final LayerCache layerCache;
+
+    public FusedMagickMemeRenderer(MagickExecutor magickExecutor, LayerCache layerCache) {
+        this.magickExecutor = magickExecutor;
+        this.layerCache = layerCache;
+    }
+
+    @Override
+    public Path render(RenderRequest request) throws Exception {
+        Path templateFile = request.getTemplateFile();
+        Template template = request.getTemplate();
+        Dimension dimensions = TemplateGeometry.isPrecompiled(template)
+            ? new Dimension(template.getWidth(), template.getHeight())
+            : ImageUtils.readDimensions(templateFile);
+        // every area is scaled and warped in the space of its bounds and composited at their offset
+        RenderLayout layout = RenderLayout.of(template, dimensions.width, dimensions.height, request.getMaxSide());
+        List<TemplateArea> areas = layout.getAreas();
+        boolean precompiled = layout.isPrecompiled();
+        RenderQuality quality = request.getQuality();
+
+        // cached layers are composited straight from the workspace, the others are built by the graph
+        Map<Integer, String> layers = new HashMap<>();
+        Map<Integer, String> cacheKeys = new HashMap<>();
+        List<TemplateArea> missingAreas = new ArrayList<>();
+        for (TemplateArea area : areas) {
+            Path layerFile = layerFile(request, area);
+            String cacheKey = layerCache.key(request.getSourceId(area.getSource()),
+                request.getSourceFile(area.getSource()), template.getId(), area, layout.getBounds(area),
+                MagickMemeRenderer.layerVariant(quality));
+            if (layerCache.get(cacheKey, layerFile)) {
+                layers.put(area.getIndex(), layerFile.toString());
+            } else {
+                layers.put(area.getIndex(), areaRegister(area));
+                missingAreas.add(area);
+                if (cacheKey != null) {
+                    cacheKeys.put(area.getIndex(), cacheKey);
+                }
+            }
+        }
+
+        List<String> operations = new ArrayList<>();
+
+        Set<Integer> sources = new LinkedHashSet<>();
+        missingAreas.forEach(area -> sources.add(area.getSource()));
+        for (int source : sources) {
+            operations.addAll(List.of(request.getSourceFile(source).toString(), "-alpha", "set",
+                "-write", sourceRegister(source), "+delete"));
+        }
+
+        operations.addAll(List.of("-virtual-pixel", "transparent"));
+        for (TemplateArea area : missingAreas) {
+            AreaBounds bounds = layout.getBounds(area);
+            operations.addAll(List.of("(", sourceRegister(area.getSource())));
+            operations.addAll(MagickGeometry.resizeFilter(quality));
+            operations.addAll(List.of("-resize", MagickGeometry.size(bounds) + "!"));
+            operations.addAll(MagickGeometry.distortFilter(quality));
+            operations.addAll(MagickGeometry.distort(area, bounds, precompiled));
+            operations.addAll(mask(templateFile.getParent(), area, bounds, precompiled));
+            operations.addAll(List.of("-alpha", "off", "-compose", "CopyOpacity", "-composite",
+                "-write", areaRegister(area)));
+            if (cacheKeys.containsKey(area.getIndex())) {
+                operations.addAll(List.of("-write", layerFile(request, area).toString()));
+            }
+            operations.addAll(List.of("+delete", ")"));
+        }
+
+        operations.addAll(List.of("-compose", "Over", "-size", layout.getWidth() + "x" + layout.getHeight(),
+            "xc:none"));
+        areas.stream().filter(TemplateArea::isBackground).forEach(area -> operations.addAll(List.of(
+            layers.get(area.getIndex()), "-geometry", MagickGeometry.offset(layout.getBounds(area)),
+            "-composite")));
+        operations.addAll(MagickGeometry.template(templateFile, layout));
+        operations.addAll(List.of("-geometry", "+0+0", "-composite"));
+        areas.stream().filter(area -> !area.isBackground()).forEach(area -> operations.addAll(List.of(
+            layers.get(area.getIndex()), "-geometry", MagickGeometry.offset(layout.getBounds(area)),
+            "-composite")));
+        // pooled workers keep the registers between jobs, so the full-size images are swapped for a placeholder
+        sources.forEach(source -> operations.addAll(release(sourceRegister(source))));
+        missingAreas.forEach(area -> operations.addAll(release(areaRegister(area))));
+
+        // the whole graph runs as one command, so the areas can only be reported once the command starts
+        request.getProgressListener().onProgress(areas.size() + 1, areas.size() + 1);
+        Path finalOutput = request.getWorkspace().resolve("final_output.png");
+        magickExecutor.execute(MagickCommand.convert("render", operations, finalOutput));
+        for (TemplateArea area : missingAreas) {
+            String cacheKey = cacheKeys.get(area.getIndex());
+            if (cacheKey != null) {
+                try {
+                    layerCache.put(cacheKey, layerFile(request, area));
+                } catch (IOException e) {
+                    log.error("Failed to cache layer {}: {}", cacheKey, e.getMessage(), e);
+                }
+            }
+        }
+        return finalOutput;
+    }
+
+    private List<String> mask(Path templateDir, TemplateArea area, AreaBounds bounds, boolean precompiled) {
+        Path mask = TemplateGeometry.maskFile(templateDir, area);
+        if (precompiled && mask.toFile().exists()) {
+            return List.of(mask.toString());
+        }
+        return List.of("(", "-size", MagickGeometry.size(bounds), "xc:black", "-fill", "white", "-draw",
+            MagickGeometry.polygon(area, bounds), ")");
+    }
+
+    /**
+     * ImageMagick cannot delete a register, but writing to it frees the image it held.
+     */
+    private List<String> release(String register) {
+        return List.of("(", "-size", "1x1", "xc:none", "-write", register, "+delete", ")");
+    }
+
+    private Path layerFile(RenderRequest request, TemplateArea area) {
+        return request.getWorkspace().resolve("layer_%d.png".formatted(area.getIndex()));
+    }
+
+    private String sourceRegister(int source) {
+        return "mpr:source_" + source;
+    }
+
+    private String areaRegister(TemplateArea area) {
+        return "mpr:area_" + area.getIndex();
+    }
+}
@@ -0,0 +1,81 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import lombok.Getter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single ImageMagick invocation. It can be rendered either as command line arguments for a new {@code magick}
+ * process or as a job for a long-lived {@code magick -script} worker.
+ */
+@Getter
+public class MagickCommand {
+
+    /**
+     * Settings used by our commands that persist between jobs in script mode and must be reset after each job.
+     */
+    private static final List<String> SETTINGS_RESET = List.of("+compose", "+virtual-pixel", "+fill", "+size",
+        "+geometry", "+filter", "+interpolate", "+quality");
+
+    private final String name;
+    private final List<String> arguments;
+    private final List<String> scriptTokens;
+    /**
+     * File the command writes, checked by the executors once the command finishes; {@code null} when the command
+     * only prints.
+     */
+    private final Path output;
+
+    private MagickCommand(String name, List<String> arguments, List<String> scriptTokens, Path output) {
+        this.name = name;
+        this.arguments = arguments;
+        this.scriptTokens = scriptTokens;
+        this.output = output;
+    }
+
+    /**
+     * A command that reads its inputs, applies the operations and writes the result to {@code output}.
+     *
+     * @param name       short name used in logs and metrics.
+     * @param operations input files, settings and operators, in command line order.
+     * @param output     file to write.
+     */
+    public static MagickCommand convert(String name, List<String> operations, Path output) {
+        List<String> arguments = new ArrayList<>(operations);
+        arguments.add(output.toString());
+
+        List<String> scriptTokens = new ArrayList<>(operations);
+        scriptTokens.add("-write");
+        scriptTokens.add(output.toString());
+        scriptTokens.add("-delete");
+        scriptTokens.add("0--1");
+        scriptTokens.addAll(SETTINGS_RESET);
+        return new MagickCommand(name, List.copyOf(arguments), List.copyOf(scriptTokens), output);
+    }
+
+    /**
+     * Equivalent of {@code magick identify -format <format> <file>}; the formatted text is the command output.
+     */
+    public static MagickCommand identify(Path file, String format) {
+        return new MagickCommand("identify",
+            List.of("identify", "-format", format, file.toString()),
+            List.of(file.toString(), "-print", format, "-delete", "0--1"), null);
+    }
+
+    /**
+     * @throws MagickCommandException when the command finished without writing its output.
+     */
+    void checkOutput() throws MagickCommandException {
+        if (output != null && !Files.exists(output)) {
+            throw new MagickCommandException(name, "did not write " + output, -1, false, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" ", arguments);
+    }
+}
@@ -0,0 +1,34 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * A magick command that failed: it exited with an error, timed out or did not write its output. Carries what the
+ * command printed to standard error, so the cause shows up where the command ran instead of as a missing file in a
+ * later stage.
+ */
+@Getter
+public class MagickCommandException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String command;
+    /**
+     * Exit code of the process, or -1 when there is none (timeouts and pooled workers).
+     */
+    private final int exitCode;
+    private final boolean timedOut;
+    private final String stderr;
+
+    public MagickCommandException(String command, String message, int exitCode, boolean timedOut, String stderr) {
+        super(stderr == null || stderr.isBlank()
+            ? "magick %s %s".formatted(command, message)
+            : "magick %s %s: %s".formatted(command, message, stderr.strip()));
+        this.command = command;
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        this.stderr = stderr;
+    }
+}
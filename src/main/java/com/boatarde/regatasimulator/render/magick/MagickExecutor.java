@@ -0,0 +1,13 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import java.io.IOException;
+
+public interface MagickExecutor {
+
+    /**
+     * Runs the command and waits for it to finish.
+     *
+     * @return everything the command printed to standard output.
+     */
+    String execute(MagickCommand command) throws IOException, InterruptedException;
+}
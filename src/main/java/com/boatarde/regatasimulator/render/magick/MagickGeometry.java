@@ -0,0 +1,89 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.RenderLayout;
+import com.boatarde.regatasimulator.render.RenderQuality;
+import com.boatarde.regatasimulator.render.TemplateGeometry;
+import lombok.experimental.UtilityClass;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * ImageMagick arguments derived from a template area.
+ */
+@UtilityClass
+class MagickGeometry {
+
+    /**
+     * {@code -distort} arguments that map a source scaled to the area bounds onto the area, in the coordinates of the
+     * bounds. Precompiled areas carry their forward coefficients, so ImageMagick does not have to solve the
+     * projection again.
+     */
+    List<String> distort(TemplateArea area, AreaBounds bounds, boolean precompiled) {
+        if (precompiled) {
+            return List.of("-distort", "Perspective-Projection", Arrays.stream(area.getPerspective())
+                .mapToObj(Double::toString)
+                .collect(Collectors.joining(",")));
+        }
+        int[] corners = TemplateGeometry.localCorners(area, bounds);
+        int width = bounds.getWidth();
+        int height = bounds.getHeight();
+        return List.of("-distort", "Perspective", String.format("0,0 %d,%d 0,%d %d,%d %d,0 %d,%d %d,%d %d,%d",
+            corners[0], corners[1],
+            height, corners[6], corners[7],
+            width, corners[2], corners[3],
+            width, height, corners[4], corners[5]));
+    }
+
+    /**
+     * {@code -draw} argument for the area polygon in the coordinates of its bounds.
+     */
+    String polygon(TemplateArea area, AreaBounds bounds) {
+        int[] corners = TemplateGeometry.localCorners(area, bounds);
+        return String.format("polygon %d,%d %d,%d %d,%d %d,%d",
+            corners[0], corners[1], corners[2], corners[3], corners[4], corners[5], corners[6], corners[7]);
+    }
+
+    /**
+     * {@code -geometry} offset that places a layer at its area bounds.
+     */
+    String offset(AreaBounds bounds) {
+        return "+%d+%d".formatted(bounds.getX(), bounds.getY());
+    }
+
+    String size(AreaBounds bounds) {
+        return bounds.getWidth() + "x" + bounds.getHeight();
+    }
+
+    /**
+     * Filter settings for {@code -resize}: previews use a plain bilinear filter instead of the default Lanczos.
+     */
+    List<String> resizeFilter(RenderQuality quality) {
+        return quality == RenderQuality.PREVIEW ? List.of("-filter", "Triangle") : List.of();
+    }
+
+    /**
+     * Filter settings for {@code -distort}: previews turn off the EWA resampling with the point filter, so each pixel
+     * is a single bilinear lookup.
+     */
+    List<String> distortFilter(RenderQuality quality) {
+        return quality == RenderQuality.PREVIEW
+            ? List.of("-filter", "Point", "-interpolate", "Bilinear")
+            : List.of();
+    }
+
+    /**
+     * Reads the template, scaled to the canvas of a scaled layout.
+     */
+    List<String> template(Path templateFile, RenderLayout layout) {
+        if (!layout.isScaled()) {
+            return List.of(templateFile.toString());
+        }
+        return List.of("(", templateFile.toString(), "-filter", "Triangle",
+            "-resize", layout.getWidth() + "x" + layout.getHeight() + "!", ")");
+    }
+}
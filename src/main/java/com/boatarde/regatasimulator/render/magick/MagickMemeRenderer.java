@@ -0,0 +1,196 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.AreaRenderExecutor;
+import com.boatarde.regatasimulator.render.LayerCache;
+import com.boatarde.regatasimulator.render.MemeRenderer;
+import com.boatarde.regatasimulator.render.RenderLayout;
+import com.boatarde.regatasimulator.render.RenderQuality;
+import com.boatarde.regatasimulator.render.RenderRequest;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
+import com.boatarde.regatasimulator.render.TemplateGeometry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "regata-simulator.render.engine", havingValue = "magick", matchIfMissing = true)
+public class MagickMemeRenderer implements MemeRenderer {
+
+    /**
+     * Layers of both magick engines come from the same resize, distort and copy-opacity pipeline.
+     */
+    static final String LAYER_VARIANT = "magick";
+
+    private final MagickExecutor magickExecutor;
+    private final AreaRenderExecutor areaRenderExecutor;
+    private final LayerCache layerCache;
+
+    public MagickMemeRenderer(MagickExecutor magickExecutor, AreaRenderExecutor areaRenderExecutor,
+                              LayerCache layerCache) {
+        this.magickExecutor = magickExecutor;
+        this.areaRenderExecutor = areaRenderExecutor;
+        this.layerCache = layerCache;
+    }
+
+    @Override
+    public Path render(RenderRequest request) throws Exception {
+        Path templateFile = request.getTemplateFile();
+        RenderWorkspace workspace = request.getWorkspace();
+        Template template = request.getTemplate();
+        int totalStages = template.getAreas().size() + 1;
+
+        int templateWidth;
+        int templateHeight;
+        if (TemplateGeometry.isPrecompiled(template)) {
+            templateWidth = template.getWidth();
+            templateHeight = template.getHeight();
+        } else {
+            String[] dimensions = magickExecutor.execute(MagickCommand.identify(templateFile, "%w %h"))
+                .trim().split(" ");
+            templateWidth = Integer.parseInt(dimensions[0]);
+            templateHeight = Integer.parseInt(dimensions[1]);
+        }
+        RenderLayout layout = RenderLayout.of(template, templateWidth, templateHeight, request.getMaxSide());
+        List<TemplateArea> areas = layout.getAreas();
+        String variant = layerVariant(request.getQuality());
+
+        List<TemplateArea> orderedAreas = areas.stream()
+            .sorted(Comparator.comparingInt(TemplateArea::getIndex))
+            .toList();
+        try {
+            List<Path> distortedSources = areaRenderExecutor.invokeAll(orderedAreas.stream()
+                    .<Callable<Path>>map(templateArea -> () -> {
+                        AreaBounds bounds = layout.getBounds(templateArea);
+                        Path sourceFile = request.getSourceFile(templateArea.getSource());
+                        String cacheKey = layerCache.key(request.getSourceId(templateArea.getSource()), sourceFile,
+                            template.getId(), templateArea, bounds, variant);
+                        Path distortedSource = distortedSourcePath(workspace, templateArea);
+                        if (layerCache.get(cacheKey, distortedSource)) {
+                            return distortedSource;
+                        }
+                        buildDistortedSource(templateFile, workspace, sourceFile, templateArea, bounds,
+                            layout.isPrecompiled(), request.getQuality());
+                        putLayer(cacheKey, distortedSource);
+                        return distortedSource;
+                    })
+                    .toList(),
+                completed -> request.getProgressListener().onProgress(completed, totalStages));
+            request.getProgressListener().onProgress(totalStages, totalStages);
+            Map<Integer, Path> layers = new HashMap<>();
+            for (int i = 0; i < orderedAreas.size(); i++) {
+                layers.put(orderedAreas.get(i).getIndex(), distortedSources.get(i));
+            }
+            return compositeFinalImage(templateFile, workspace, layout, layers);
+        } finally {
+            orderedAreas.forEach(templateArea ->
+                distortedSourcePath(workspace, templateArea).toFile().delete());
+        }
+    }
+
+    /**
+     * Preview layers are built with other filters, so they never share a cache entry with full quality ones.
+     */
+    static String layerVariant(RenderQuality quality) {
+        return quality == RenderQuality.FULL
+            ? LAYER_VARIANT
+            : LAYER_VARIANT + "-" + quality.name().toLowerCase(Locale.ROOT);
+    }
+
+    private void putLayer(String cacheKey, Path layer) {
+        try {
+            layerCache.put(cacheKey, layer);
+        } catch (IOException e) {
+            log.error("Failed to cache layer {}: {}", cacheKey, e.getMessage(), e);
+        }
+    }
+
+    private Path distortedSourcePath(RenderWorkspace workspace, TemplateArea templateArea) {
+        return workspace.resolve("distorted_source_%d.png".formatted(templateArea.getIndex()));
+    }
+
+    private Path buildDistortedSource(Path templateFile, RenderWorkspace workspace, Path sourceFile,
+                                      TemplateArea templateArea, AreaBounds bounds, boolean precompiled,
+                                      RenderQuality quality) throws Exception {
+        // areas are built concurrently, so every intermediate file is suffixed with the area index
+        Path resizedSource = workspace.resolve("resized_source_%d.png".formatted(templateArea.getIndex()));
+        Path distortedSourceTemp =
+            workspace.resolve("distorted_source_temp_%d.png".formatted(templateArea.getIndex()));
+        Path distortedSource = distortedSourcePath(workspace, templateArea);
+
+        try {
+            // Resize source image to the area bounds
+            List<String> resize = new ArrayList<>(List.of(sourceFile.toString()));
+            resize.addAll(MagickGeometry.resizeFilter(quality));
+            resize.addAll(List.of("-resize", MagickGeometry.size(bounds) + "!"));
+            magickExecutor.execute(MagickCommand.convert("resize", resize, resizedSource));
+
+            // Distort source image, the output keeps the size of the bounds
+            List<String> distort = new ArrayList<>(List.of(resizedSource.toString(), "-alpha", "set",
+                "-virtual-pixel", "transparent"));
+            distort.addAll(MagickGeometry.distortFilter(quality));
+            distort.addAll(MagickGeometry.distort(templateArea, bounds, precompiled));
+            magickExecutor.execute(MagickCommand.convert("distort", distort, distortedSourceTemp));
+
+            // Create mask, precompiled templates already have it next to the template file. The template dir is
+            // read-only while rendering, so any other mask is built in the workspace
+            Path mask = TemplateGeometry.maskFile(templateFile.getParent(), templateArea);
+            if (!precompiled || !mask.toFile().exists()) {
+                mask = TemplateGeometry.maskFile(workspace.getDirectory(), templateArea);
+                log.info("Precompiled mask not found, creating {}", mask);
+                magickExecutor.execute(MagickCommand.convert("mask",
+                    List.of("-size", MagickGeometry.size(bounds), "xc:black", "-fill", "white", "-draw",
+                        MagickGeometry.polygon(templateArea, bounds)),
+                    mask));
+            }
+
+            // Apply mask to distorted source
+            magickExecutor.execute(MagickCommand.convert("copy-opacity",
+                List.of(distortedSourceTemp.toString(), mask.toString(), "-alpha", "off",
+                    "-compose", "CopyOpacity", "-composite"), distortedSource));
+
+            return distortedSource;
+        } finally {
+            resizedSource.toFile().delete();
+            distortedSourceTemp.toFile().delete();
+        }
+    }
+
+    private Path compositeFinalImage(Path templateFile, RenderWorkspace workspace, RenderLayout layout,
+                                     Map<Integer, Path> layers) throws InterruptedException, IOException {
+        // Composite final image on a transparent canvas, each layer at the offset of its area
+        Path finalOutput = workspace.resolve("final_output.png");
+
+        List<String> operations = new ArrayList<>(List.of("-size", layout.getWidth() + "x" + layout.getHeight(),
+            "xc:none"));
+
+        layout.getAreas().stream().filter(TemplateArea::isBackground).forEach(templateArea ->
+            operations.addAll(List.of(layers.get(templateArea.getIndex()).toString(),
+                "-geometry", MagickGeometry.offset(layout.getBounds(templateArea)), "-composite")));
+
+        operations.addAll(MagickGeometry.template(templateFile, layout));
+        operations.addAll(List.of("-geometry", "+0+0", "-composite"));
+
+        layout.getAreas().stream().filter(area -> !area.isBackground()).forEach(templateArea ->
+            operations.addAll(List.of(layers.get(templateArea.getIndex()).toString(),
+                "-geometry", MagickGeometry.offset(layout.getBounds(templateArea)), "-composite")));
+
+        magickExecutor.execute(MagickCommand.convert("composite", operations, finalOutput));
+
+        return finalOutput;
+    }
+
+}
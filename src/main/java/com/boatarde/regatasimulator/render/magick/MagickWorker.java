@@ -0,0 +1,151 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * A persistent {@code magick -script -} process. Jobs are written to its standard input and each one ends by
+ * printing a sentinel line, so the worker knows where the job output stops. Standard error is drained in the
+ * background and kept, up to a limit, until {@link #takeErrors()}.
+ */
+@Slf4j
+class MagickWorker {
+
+    private final int id;
+    private final List<String> launchCommand;
+    private static final int MAX_ERROR_CHARS = 8192;
+
+    private final String sentinel = "__regata_job_done_" + UUID.randomUUID() + "__";
+    private final StringBuilder errors = new StringBuilder();
+
+    private Process process;
+    private BufferedWriter stdin;
+    private BufferedReader stdout;
+    @Getter
+    private int jobs;
+
+    MagickWorker(int id, List<String> launchCommand) {
+        this.id = id;
+        this.launchCommand = launchCommand;
+    }
+
+    boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    void start() throws IOException {
+        log.info("Starting magick worker {}: {}", id, String.join(" ", launchCommand));
+        process = new ProcessBuilder(launchCommand).start();
+        drainErrors(process);
+        stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        jobs = 0;
+        // an empty job forces the interpreter and its coders to load before the first real command
+        runScript(List.of());
+    }
+
+    String run(MagickCommand command) throws IOException {
+        if (!isAlive()) {
+            start();
+        }
+        jobs++;
+        return runScript(command.getScriptTokens());
+    }
+
+    /**
+     * Returns and clears what the process printed to standard error since the last call. Errors are printed
+     * asynchronously, so they may show up a job late.
+     */
+    String takeErrors() {
+        synchronized (errors) {
+            String taken = errors.toString();
+            errors.setLength(0);
+            return taken;
+        }
+    }
+
+    /**
+     * Kills the process so a job stuck reading its output fails right away.
+     */
+    void kill() {
+        Process running = process;
+        if (running != null) {
+            log.warn("Killing magick worker {}", id);
+            running.descendants().forEach(ProcessHandle::destroyForcibly);
+            running.destroyForcibly();
+        }
+    }
+
+    void stop() {
+        if (process == null) {
+            return;
+        }
+        log.info("Stopping magick worker {} after {} jobs", id, jobs);
+        try {
+            stdin.close();
+        } catch (IOException e) {
+            log.debug("Error closing magick worker {} stdin", id, e);
+        }
+        process.destroy();
+        process = null;
+    }
+
+    private String runScript(List<String> tokens) throws IOException {
+        List<String> script = new ArrayList<>(tokens);
+        script.add("-print");
+        script.add("\\n" + sentinel + "\\n");
+        stdin.write(script.stream().map(MagickWorker::quote).collect(Collectors.joining(" ")));
+        stdin.newLine();
+        stdin.flush();
+
+        StringBuilder output = new StringBuilder();
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (line.equals(sentinel)) {
+                // the sentinel is preceded by a line break that is not part of the command output
+                if (!output.isEmpty()) {
+                    output.setLength(output.length() - 1);
+                }
+                return output.toString();
+            }
+            output.append(line).append('\n');
+        }
+        throw new IOException("magick worker %d exited while running a job".formatted(id));
+    }
+
+    private void drainErrors(Process started) {
+        Thread.ofVirtual().name("magick-worker-%d-stderr".formatted(id)).start(() -> {
+            try (BufferedReader stderr = new BufferedReader(
+                new InputStreamReader(started.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = stderr.readLine()) != null) {
+                    synchronized (errors) {
+                        if (errors.length() < MAX_ERROR_CHARS) {
+                            errors.append(line).append('\n');
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Stopped reading magick worker {} stderr", id, e);
+            }
+        });
+    }
+
+    private static String quote(String token) {
+        if (!token.contains("'")) {
+            return "'" + token + "'";
+        }
+        return "\"" + token.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,190 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size pool of persistent ImageMagick workers driven through {@code magick -script -}. Workers are started
+ * when the application starts, reused across renders and restarted after {@code magick.pool.max-jobs-per-worker}
+ * jobs or after any error. A job that runs longer than {@code magick.timeout}, or whose thread is interrupted, kills
+ * its worker.
+ * <p>
+ * {@code -print} does not flush standard output, so workers are started through {@code magick.pool.launch-prefix}
+ * (by default {@code stdbuf -oL}) to make the job sentinel visible as soon as it is printed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "magick.pool.enabled", havingValue = "true")
+public class MagickWorkerPool implements MagickExecutor {
+
+    private final List<MagickWorker> workers = new ArrayList<>();
+    private final BlockingQueue<MagickWorker> idleWorkers;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final int maxJobsPerWorker;
+    private final Duration timeout;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService jobExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public MagickWorkerPool(@Value("${magick.path}") String magickPath,
+                            @Value("${magick.pool.size}") int size,
+                            @Value("${magick.pool.max-jobs-per-worker}") int maxJobsPerWorker,
+                            @Value("${magick.pool.launch-prefix}") String launchPrefix,
+                            @Value("${magick.timeout}") Duration timeout,
+                            MeterRegistry meterRegistry) {
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        this.timeout = timeout;
+        this.meterRegistry = meterRegistry;
+        this.idleWorkers = new ArrayBlockingQueue<>(size);
+
+        List<String> launchCommand = new ArrayList<>();
+        if (launchPrefix != null && !launchPrefix.isBlank()) {
+            launchCommand.addAll(Arrays.asList(launchPrefix.trim().split("\\s+")));
+        }
+        launchCommand.addAll(List.of(magickPath, "-script", "-"));
+        for (int i = 0; i < size; i++) {
+            workers.add(new MagickWorker(i, List.copyOf(launchCommand)));
+        }
+
+        Gauge.builder("regata.magick.pool.queue.depth", waiting, AtomicInteger::get)
+            .description("Commands waiting for an idle magick worker")
+            .register(meterRegistry);
+        Gauge.builder("regata.magick.pool.workers.busy", busy, AtomicInteger::get)
+            .register(meterRegistry);
+        Gauge.builder("regata.magick.pool.utilisation", busy, b -> (double) b.get() / size)
+            .description("Fraction of magick workers running a command")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        for (MagickWorker worker : workers) {
+            Future<String> start = jobExecutor.submit(() -> {
+                worker.start();
+                return null;
+            });
+            try {
+                start.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                log.error("Failed to warm up magick worker, it will be started on first use", e);
+                worker.kill();
+                awaitQuietly(start);
+                worker.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                worker.kill();
+                awaitQuietly(start);
+                worker.stop();
+            }
+            idleWorkers.add(worker);
+        }
+        log.info("Magick worker pool started with {} workers", workers.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(MagickWorker::stop);
+        jobExecutor.shutdownNow();
+    }
+
+    @Override
+    public String execute(MagickCommand command) throws IOException, InterruptedException {
+        MagickWorker worker;
+        waiting.incrementAndGet();
+        try {
+            worker = idleWorkers.take();
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        busy.incrementAndGet();
+        log.info("running command on magick worker: {}", command);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean failed = true;
+        // the job runs on its own thread because reading the worker output cannot be interrupted or timed out
+        Future<String> job = jobExecutor.submit(() -> worker.run(command));
+        try {
+            String output = job.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            String errors = worker.takeErrors();
+            if (!errors.isBlank()) {
+                log.warn("magick {} printed: {}", command.getName(), errors.strip());
+            }
+            command.checkOutput();
+            failed = false;
+            return output;
+        } catch (TimeoutException e) {
+            countFailure(command, "timeout");
+            throw new MagickCommandException(command.getName(), "timed out after " + timeout, -1, true,
+                worker.takeErrors());
+        } catch (ExecutionException e) {
+            countFailure(command, "worker");
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            if (!job.isDone() || failed) {
+                worker.kill();
+                awaitQuietly(job);
+            }
+            sample.stop(meterRegistry.timer("regata.magick.command", "command", command.getName(), "mode", "pool"));
+            if (failed || worker.getJobs() >= maxJobsPerWorker) {
+                // the process is started again lazily by the next command that picks this worker
+                worker.stop();
+            }
+            busy.decrementAndGet();
+            idleWorkers.add(worker);
+        }
+    }
+
+    private void countFailure(MagickCommand command, String reason) {
+        Counter.builder("regata.magick.command.failures")
+            .tag("command", command.getName())
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Waits for a job whose worker was killed, so it is done with the worker before the worker is reused.
+     */
+    private static void awaitQuietly(Future<String> job) {
+        boolean interrupted = false;
+        while (!job.isDone()) {
+            try {
+                job.get();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException | CancellationException e) {
+                // the job failed because its worker was killed
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts a new {@code magick} process for every command. Standard output and error are drained concurrently, and a
+ * command that runs longer than {@code magick.timeout}, or whose thread is interrupted, is killed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "magick.pool.enabled", havingValue = "false", matchIfMissing = true)
+public class ProcessMagickExecutor implements MagickExecutor {
+
+    private static final Duration KILL_GRACE = Duration.ofSeconds(1);
+
+    private final String magickPath;
+    private final Duration timeout;
+    private final MeterRegistry meterRegistry;
+
+    public ProcessMagickExecutor(@Value("${magick.path}") String magickPath,
+                                 @Value("${magick.timeout}") Duration timeout,
+                                 MeterRegistry meterRegistry) {
+        this.magickPath = magickPath;
+        this.timeout = timeout;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public String execute(MagickCommand command) throws IOException, InterruptedException {
+        List<String> processCommand = new ArrayList<>();
+        processCommand.add(magickPath);
+        processCommand.addAll(command.getArguments());
+
+        log.info("running command: {} {}", magickPath, command);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Process process = new ProcessBuilder(processCommand).start();
+            Future<String> output = drain(process.getInputStream());
+            Future<String> errors = drain(process.getErrorStream());
+            try {
+                if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    kill(process);
+                    countFailure(command, "timeout");
+                    throw new MagickCommandException(command.getName(), "timed out after " + timeout, -1, true,
+                        getAfterKill(errors));
+                }
+            } catch (InterruptedException e) {
+                kill(process);
+                throw e;
+            }
+
+            String stderr = get(errors);
+            if (process.exitValue() != 0) {
+                countFailure(command, "exit");
+                throw new MagickCommandException(command.getName(), "exited with " + process.exitValue(),
+                    process.exitValue(), false, stderr);
+            }
+            if (!stderr.isBlank()) {
+                log.warn("magick {} printed: {}", command.getName(), stderr.strip());
+            }
+            command.checkOutput();
+            return get(output);
+        } finally {
+            sample.stop(meterRegistry.timer("regata.magick.command", "command", command.getName(), "mode",
+                "process"));
+        }
+    }
+
+    private void countFailure(MagickCommand command, String reason) {
+        Counter.builder("regata.magick.command.failures")
+            .tag("command", command.getName())
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    /**
+     * Kills the process and anything it started, in case magick runs behind a wrapper.
+     */
+    private static void kill(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Reads the stream to the end on a virtual thread, so a full pipe never blocks the process and waiting for it
+     * stays interruptible.
+     */
+    private static Future<String> drain(InputStream stream) {
+        FutureTask<String> task = new FutureTask<>(() -> {
+            try (stream) {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        });
+        Thread.ofVirtual().name("magick-drain").start(task);
+        return task;
+    }
+
+    /**
+     * What a killed process printed, which shows where it hung. {@code null} when the stream does not end within
+     * {@link #KILL_GRACE}, for example because something the kill missed still holds the pipe.
+     */
+    private static String getAfterKill(Future<String> stream) throws InterruptedException {
+        try {
+            return stream.get(KILL_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private static String get(Future<String> stream) throws IOException, InterruptedException {
+        try {
+            return stream.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to read magick output", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.boatarde.regatasimulator.render.output;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+@Getter
+@Builder
+public class EncodedMeme {
+    private final Path file;
+    private final OutputFormat format;
+    /**
+     * Quality used for lossy formats, {@code null} for PNG.
+     */
+    private final Integer quality;
+    private final long bytes;
+    /**
+     * Whether the meme has to be sent as a document, because Telegram refuses photos with its aspect ratio.
+     */
+    private final boolean document;
+    private final long encodeMillis;
+}
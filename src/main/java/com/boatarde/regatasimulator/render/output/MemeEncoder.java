@@ -0,0 +1,286 @@
+package com.boatarde.regatasimulator.render.output;
+
+import com.boatarde.regatasimulator.render.RenderQuality;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
+import com.boatarde.regatasimulator.render.magick.MagickCommand;
+import com.boatarde.regatasimulator.render.magick.MagickExecutor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns the PNG produced by a renderer into the file that is uploaded to Telegram. Lossy formats are encoded at the
+ * configured quality and, when the result is over the byte budget, the highest quality that fits is found by binary
+ * search. The budget is {@code target-bytes} when set, and never more than Telegram's photo limit. Previews are
+ * always encoded lossy, at {@code regata-simulator.render.preview.output-quality}. Renders over Telegram's photo
+ * dimensions are downscaled first, and renders too narrow for a photo at any size are marked to be sent as documents.
+ */
+@Slf4j
+@Component
+public class MemeEncoder {
+
+    /**
+     * Telegram rejects photos larger than 10 MB.
+     */
+    public static final long TELEGRAM_PHOTO_MAX_BYTES = 10L * 1024 * 1024;
+    /**
+     * Telegram rejects photos whose width and height add up to more than this.
+     */
+    public static final int TELEGRAM_PHOTO_MAX_DIMENSIONS = 10000;
+    /**
+     * Telegram rejects photos whose longer side is more than this many times the shorter one.
+     */
+    public static final int TELEGRAM_PHOTO_MAX_ASPECT_RATIO = 20;
+
+    private final OutputFormat format;
+    private final int quality;
+    private final int minQuality;
+    private final long targetBytes;
+    private final int previewQuality;
+    private final MagickExecutor magickExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public MemeEncoder(@Value("${regata-simulator.render.output.format}") String format,
+                       @Value("${regata-simulator.render.output.quality}") int quality,
+                       @Value("${regata-simulator.render.output.min-quality}") int minQuality,
+                       @Value("${regata-simulator.render.output.target-bytes}") long targetBytes,
+                       @Value("${regata-simulator.render.preview.output-quality}") int previewQuality,
+                       MagickExecutor magickExecutor,
+                       MeterRegistry meterRegistry) {
+        this.format = OutputFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        this.quality = quality;
+        this.minQuality = Math.min(minQuality, quality);
+        this.targetBytes = targetBytes;
+        this.previewQuality = Math.max(this.minQuality, Math.min(previewQuality, quality));
+        this.magickExecutor = magickExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public EncodedMeme encode(Path rendered, RenderWorkspace workspace, RenderQuality renderQuality)
+        throws Exception {
+        long start = System.nanoTime();
+        long budget = targetBytes > 0 ? Math.min(targetBytes, TELEGRAM_PHOTO_MAX_BYTES) : TELEGRAM_PHOTO_MAX_BYTES;
+        boolean preview = renderQuality == RenderQuality.PREVIEW;
+        int startQuality = preview ? previewQuality : quality;
+
+        EncodedMeme.EncodedMemeBuilder result = EncodedMeme.builder();
+        Dimension size = readSize(rendered);
+        if (size.width + size.height > TELEGRAM_PHOTO_MAX_DIMENSIONS) {
+            rendered = downscale(rendered, size, workspace);
+            size = readSize(rendered);
+        }
+        if (Math.max(size.width, size.height)
+            > (long) TELEGRAM_PHOTO_MAX_ASPECT_RATIO * Math.min(size.width, size.height)) {
+            log.warn("Rendered meme is {}x{}, too narrow for a Telegram photo; it is sent as a document", size.width,
+                size.height);
+            result.document(true);
+        }
+        OutputFormat outputFormat = preview && format == OutputFormat.PNG ? OutputFormat.JPEG : format;
+        if (outputFormat == OutputFormat.PNG) {
+            long bytes = Files.size(rendered);
+            if (bytes <= budget) {
+                result.file(rendered).format(OutputFormat.PNG).bytes(bytes);
+            } else {
+                log.warn("Rendered PNG has {} bytes, over the {} bytes budget; encoding as JPEG", bytes, budget);
+                outputFormat = OutputFormat.JPEG;
+            }
+        }
+        if (outputFormat.isLossy()) {
+            QualityEncoder encoder = outputFormat == OutputFormat.JPEG
+                ? jpegEncoder(rendered, workspace)
+                : webpEncoder(rendered, workspace);
+            int selectedQuality = selectQuality(encoder, startQuality, budget);
+            Path file = encoder.output(selectedQuality);
+            result.file(file).format(outputFormat).quality(selectedQuality).bytes(Files.size(file));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        EncodedMeme encoded = result.encodeMillis(TimeUnit.NANOSECONDS.toMillis(elapsed)).build();
+        Timer.builder("regata.render.encode")
+            .tag("format", encoded.getFormat().name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .record(elapsed, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("regata.render.output.bytes")
+            .baseUnit("bytes")
+            .tag("format", encoded.getFormat().name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .record(encoded.getBytes());
+        log.info("{} meme encoded as {} (quality {}) with {} bytes in {} ms", renderQuality, encoded.getFormat(),
+            encoded.getQuality(), encoded.getBytes(), encoded.getEncodeMillis());
+        return encoded;
+    }
+
+    /**
+     * Tries {@code quality} first, then binary-searches {@code [min-quality, quality)} for the highest quality under
+     * the budget. Falls back to the minimum quality when nothing fits. Only the selected candidate is
+     * left on disk.
+     */
+    private int selectQuality(QualityEncoder encoder, int quality, long budget) throws Exception {
+        if (encoder.encode(quality) <= budget) {
+            return quality;
+        }
+        int best = -1;
+        int low = minQuality;
+        int high = quality - 1;
+        while (low <= high) {
+            int candidate = (low + high) >>> 1;
+            if (encoder.encode(candidate) <= budget) {
+                best = candidate;
+                low = candidate + 1;
+            } else {
+                high = candidate - 1;
+            }
+        }
+        if (best < 0) {
+            log.warn("No quality down to {} fits in {} bytes", minQuality, budget);
+            best = minQuality;
+            encoder.encode(best);
+        }
+        encoder.keepOnly(best);
+        return best;
+    }
+
+    /**
+     * Reads the dimensions from the image header, without decoding the pixels.
+     */
+    private static Dimension readSize(Path image) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(image.toFile())) {
+            Iterator<ImageReader> readers = stream == null
+                ? Collections.emptyIterator()
+                : ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + image);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the render down to the largest size within {@link #TELEGRAM_PHOTO_MAX_DIMENSIONS}, keeping its shape.
+     */
+    private static Path downscale(Path rendered, Dimension size, RenderWorkspace workspace) throws IOException {
+        BufferedImage image = ImageIO.read(rendered.toFile());
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + rendered);
+        }
+        double scale = (double) TELEGRAM_PHOTO_MAX_DIMENSIONS / (size.width + size.height);
+        int width = Math.max(1, (int) Math.floor(size.width * scale));
+        int height = Math.max(1, (int) Math.floor(size.height * scale));
+        log.warn("Rendered meme is {}x{}, over Telegram's photo dimensions; downscaling to {}x{}", size.width,
+            size.height, width, height);
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        Path output = workspace.resolve("final_output_scaled.png");
+        ImageIO.write(scaled, "png", output.toFile());
+        return output;
+    }
+
+    private QualityEncoder jpegEncoder(Path rendered, RenderWorkspace workspace) throws IOException {
+        BufferedImage image = ImageIO.read(rendered.toFile());
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + rendered);
+        }
+        // JPEG has no alpha, flatten transparent pixels on white like Telegram does
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return new QualityEncoder(workspace, OutputFormat.JPEG) {
+            @Override
+            void write(int quality, Path output) throws IOException {
+                ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+                try (ImageOutputStream stream = ImageIO.createImageOutputStream(output.toFile())) {
+                    writer.setOutput(stream);
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(quality / 100f);
+                    writer.write(null, new IIOImage(rgb, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            }
+        };
+    }
+
+    private QualityEncoder webpEncoder(Path rendered, RenderWorkspace workspace) {
+        return new QualityEncoder(workspace, OutputFormat.WEBP) {
+            @Override
+            void write(int quality, Path output) throws Exception {
+                magickExecutor.execute(MagickCommand.convert("encode-webp",
+                    List.of(rendered.toString(), "-quality", String.valueOf(quality)), output));
+            }
+        };
+    }
+
+    private abstract static class QualityEncoder {
+        private final RenderWorkspace workspace;
+        private final OutputFormat format;
+
+        QualityEncoder(RenderWorkspace workspace, OutputFormat format) {
+            this.workspace = workspace;
+            this.format = format;
+        }
+
+        abstract void write(int quality, Path output) throws Exception;
+
+        long encode(int quality) throws Exception {
+            Path output = output(quality);
+            if (!Files.exists(output)) {
+                write(quality, output);
+            }
+            return Files.size(output);
+        }
+
+        Path output(int quality) {
+            return workspace.resolve("final_output_q%d.%s".formatted(quality, format.getExtension()));
+        }
+
+        void keepOnly(int quality) throws IOException {
+            for (int candidate = 1; candidate <= 100; candidate++) {
+                if (candidate != quality) {
+                    Files.deleteIfExists(output(candidate));
+                }
+            }
+        }
+    }
+}
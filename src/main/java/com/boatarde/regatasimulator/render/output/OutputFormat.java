@@ -0,0 +1,18 @@
+package com.boatarde.regatasimulator.render.output;
+
+import lombok.Getter;
+
+@Getter
+public enum OutputFormat {
+    PNG("png", false),
+    JPEG("jpg", true),
+    WEBP("webp", true);
+
+    private final String extension;
+    private final boolean lossy;
+
+    OutputFormat(String extension, boolean lossy) {
+        this.extension = extension;
+        this.lossy = lossy;
+    }
+}
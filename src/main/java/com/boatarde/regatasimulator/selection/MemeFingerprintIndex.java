@@ -0,0 +1,102 @@
+package com.boatarde.regatasimulator.selection;
+
+import com.boatarde.regatasimulator.models.Meme;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fingerprints of every template and ordered sources combination posted to the channel, so selection can skip a
+ * combination that was already posted without rendering it. A fingerprint is a 64-bit hash of the template id followed
+ * by the source ids in area order; the same sources in other areas make another meme. The index is built from the
+ * {@code memes} collection on first use and grows with every post. Combinations dropped from the history collection
+ * stay in the index until the next restart.
+ */
+@Slf4j
+@Component
+public class MemeFingerprintIndex {
+
+    private static final int EXPECTED_MEMES = 1024;
+
+    private final DocumentStore documentStore;
+    private final Counter duplicates;
+    private LongHashSet fingerprints;
+
+    public MemeFingerprintIndex(DocumentStore documentStore, MeterRegistry meterRegistry) {
+        this.documentStore = documentStore;
+        this.duplicates = Counter.builder("regata.selection.duplicates")
+            .description("Template and sources combinations rejected because they were already posted")
+            .register(meterRegistry);
+        Gauge.builder("regata.selection.fingerprints", this, MemeFingerprintIndex::size)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Builds the index once the collections exist, instead of on the first selection.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        size();
+    }
+
+    public synchronized boolean isPosted(UUID templateId, List<UUID> sourceIds) {
+        boolean posted = loaded().contains(fingerprint(templateId, sourceIds));
+        if (posted) {
+            duplicates.increment();
+        }
+        return posted;
+    }
+
+    public synchronized void add(Meme meme) {
+        loaded().add(fingerprint(meme.getTemplateId(), meme.getSourceIds()));
+    }
+
+    public synchronized int size() {
+        return loaded().size();
+    }
+
+    private LongHashSet loaded() {
+        if (fingerprints == null) {
+            List<Meme> memes = documentStore.findAll(Meme.class);
+            fingerprints = new LongHashSet(Math.max(EXPECTED_MEMES, memes.size()));
+            memes.stream()
+                .filter(meme -> meme.getTemplateId() != null && meme.getSourceIds() != null)
+                .forEach(meme -> fingerprints.add(fingerprint(meme.getTemplateId(), meme.getSourceIds())));
+            log.info("Meme fingerprint index built with {} combinations", fingerprints.size());
+        }
+        return fingerprints;
+    }
+
+    static long fingerprint(UUID templateId, List<UUID> sourceIds) {
+        long hash = mix(templateId.getMostSignificantBits(), templateId.getLeastSignificantBits());
+        for (UUID sourceId : sourceIds) {
+            hash = mix(hash, sourceId.getMostSignificantBits());
+            hash = mix(hash, sourceId.getLeastSignificantBits());
+        }
+        return finish(hash ^ sourceIds.size());
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ finish(value), 27) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * MurmurHash3 finaliser, every input bit affects every output bit.
+     */
+    private static long finish(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,164 @@
+package com.boatarde.regatasimulator.selection;
+
+import com.boatarde.regatasimulator.models.Meme;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import com.boatarde.regatasimulator.util.JsonDBUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The last {@value #HISTORY_SIZE} posted memes, in a ring buffer, with the templates and sources they used ordered
+ * by their latest use. Selection leaves the most recently used ones out of the draw without reading and sorting the
+ * {@code memes} collection, and recording a post is {@code O(1)}. Built from the collection on first use.
+ */
+@Slf4j
+@Component
+public class MemeHistoryIndex {
+
+    public static final int HISTORY_SIZE = 1000;
+
+    private final DocumentStore documentStore;
+    private final Posted[] ring = new Posted[HISTORY_SIZE];
+    private final RecencyWindow templates = new RecencyWindow();
+    private final RecencyWindow sources = new RecencyWindow();
+    private int head;
+    private int count;
+    private long sequence;
+    private boolean loaded;
+
+    public MemeHistoryIndex(DocumentStore documentStore) {
+        this.documentStore = documentStore;
+    }
+
+    /**
+     * Builds the index once the collections exist, instead of on the first selection.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        load();
+    }
+
+    /**
+     * Records a meme about to be saved.
+     *
+     * @return the id of the oldest meme when it no longer fits in the history.
+     */
+    public synchronized Optional<UUID> record(Meme meme) {
+        load();
+        return Optional.ofNullable(add(meme));
+    }
+
+    /**
+     * @return the {@code limit} templates used most recently.
+     */
+    public synchronized Set<UUID> recentTemplates(long limit) {
+        load();
+        return templates.mostRecent(limit);
+    }
+
+    /**
+     * @return the {@code limit} sources used most recently, earlier areas first within a meme.
+     */
+    public synchronized Set<UUID> recentSources(long limit) {
+        load();
+        return sources.mostRecent(limit);
+    }
+
+    public synchronized int size() {
+        load();
+        return count;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        List<Meme> memes = documentStore.findAll(Meme.class).stream()
+            .sorted(JsonDBUtils.getMemeComparator())
+            .toList();
+        memes.forEach(this::add);
+        log.info("Meme history index built with {} memes", count);
+    }
+
+    private UUID add(Meme meme) {
+        long memeSequence = sequence++;
+        Posted evicted = null;
+        Posted posted = new Posted(meme.getId(), memeSequence);
+        if (count == HISTORY_SIZE) {
+            evicted = ring[head];
+            ring[head] = posted;
+            head = (head + 1) % HISTORY_SIZE;
+        } else {
+            ring[(head + count) % HISTORY_SIZE] = posted;
+            count++;
+        }
+
+        if (meme.getTemplateId() != null) {
+            templates.use(meme.getTemplateId(), memeSequence);
+        }
+        List<UUID> sourceIds = meme.getSourceIds();
+        if (sourceIds != null) {
+            // the first source ends up as the most recent one, as it comes first when reading the meme
+            for (int i = sourceIds.size() - 1; i >= 0; i--) {
+                sources.use(sourceIds.get(i), memeSequence);
+            }
+        }
+
+        if (evicted == null) {
+            return null;
+        }
+        long oldest = ring[head].sequence();
+        templates.expire(oldest);
+        sources.expire(oldest);
+        return evicted.id();
+    }
+
+    private record Posted(UUID id, long sequence) {
+    }
+
+    /**
+     * Ids in the order of their latest use, the most recent last, with the sequence of the meme that used them.
+     */
+    private static final class RecencyWindow {
+
+        private final LinkedHashMap<UUID, Long> lastUse = new LinkedHashMap<>();
+
+        void use(UUID id, long sequence) {
+            lastUse.remove(id);
+            lastUse.put(id, sequence);
+        }
+
+        /**
+         * Forgets the ids last used by memes no longer in the history.
+         */
+        void expire(long oldestSequence) {
+            Iterator<Map.Entry<UUID, Long>> iterator = lastUse.entrySet().iterator();
+            while (iterator.hasNext() && iterator.next().getValue() < oldestSequence) {
+                iterator.remove();
+            }
+        }
+
+        Set<UUID> mostRecent(long limit) {
+            Set<UUID> recent = new HashSet<>();
+            for (UUID id : lastUse.sequencedKeySet().reversed()) {
+                if (recent.size() >= limit) {
+                    break;
+                }
+                recent.add(id);
+            }
+            return recent;
+        }
+    }
+}
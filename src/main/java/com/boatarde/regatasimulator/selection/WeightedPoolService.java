@@ -0,0 +1,120 @@
+package com.boatarde.regatasimulator.selection;
+
+import com.boatarde.regatasimulator.catalog.EntityCatalog;
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
+import com.boatarde.regatasimulator.models.CommonEntity;
+import com.boatarde.regatasimulator.models.Source;
+import com.boatarde.regatasimulator.models.Status;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.service.AssetRemovedEvent;
+import com.boatarde.regatasimulator.util.JsonDBUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Weighted samplers over the approved sources and templates, built from the database once and then kept up to date
+ * by the services that approve, reject, delete or reweight them, so a draw no longer reads and copies the whole
+ * collection.
+ */
+@Slf4j
+@Service
+public class WeightedPoolService {
+
+    private final SourceCatalog sourceCatalog;
+    private final TemplateCatalog templateCatalog;
+    private WeightedSampler sources;
+    private WeightedSampler templates;
+
+    public WeightedPoolService(SourceCatalog sourceCatalog, TemplateCatalog templateCatalog) {
+        this.sourceCatalog = sourceCatalog;
+        this.templateCatalog = templateCatalog;
+    }
+
+    /**
+     * Builds the pools once the collections exist, instead of on the first meme.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        sources();
+        templates();
+    }
+
+    /**
+     * Runs {@code action} on the approved sources pool, holding it for the duration of the call.
+     */
+    public synchronized <R> R withSources(Function<WeightedSampler, R> action) {
+        return action.apply(sources());
+    }
+
+    /**
+     * Runs {@code action} on the approved templates pool, holding it for the duration of the call.
+     */
+    public synchronized <R> R withTemplates(Function<WeightedSampler, R> action) {
+        return action.apply(templates());
+    }
+
+    /**
+     * Applies the current status and weight of a source or template to its pool.
+     */
+    public synchronized void update(CommonEntity entity) {
+        WeightedSampler pool = pool(entity);
+        if (pool == null) {
+            return;
+        }
+        if (entity.getStatus() == Status.APPROVED) {
+            pool.put(entity.getId(), entity.getWeight());
+        } else {
+            pool.remove(entity.getId());
+        }
+    }
+
+    public synchronized void updateAll(Collection<? extends CommonEntity> entities) {
+        entities.forEach(this::update);
+    }
+
+    @EventListener
+    public synchronized void onAssetRemoved(AssetRemovedEvent event) {
+        if (sources != null) {
+            sources.remove(event.getId());
+        }
+        if (templates != null) {
+            templates.remove(event.getId());
+        }
+    }
+
+    private WeightedSampler pool(CommonEntity entity) {
+        if (entity instanceof Source) {
+            return sources();
+        } else if (entity instanceof Template) {
+            return templates();
+        }
+        return null;
+    }
+
+    private WeightedSampler sources() {
+        if (sources == null) {
+            sources = load(sourceCatalog);
+        }
+        return sources;
+    }
+
+    private WeightedSampler templates() {
+        if (templates == null) {
+            templates = load(templateCatalog);
+        }
+        return templates;
+    }
+
+    private WeightedSampler load(EntityCatalog<?> catalog) {
+        WeightedSampler sampler = WeightedSampler.of(catalog.find(JsonDBUtils.jxQuery().withStatus(Status.APPROVED)));
+        log.info("Weighted pool of {} built with {} entries", catalog.getClass().getSimpleName(),
+            sampler.size());
+        return sampler;
+    }
+}
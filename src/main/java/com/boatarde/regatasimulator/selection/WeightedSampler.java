@@ -0,0 +1,195 @@
+package com.boatarde.regatasimulator.selection;
+
+import com.boatarde.regatasimulator.models.CommonEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.random.RandomGenerator;
+
+/**
+ * Weighted random choice over ids, backed by a Fenwick tree of the weights: a draw walks down the tree and a weight
+ * change updates it, both in {@code O(log n)}. Sampling without replacement zeroes the drawn weights for the duration
+ * of the call and restores them afterwards, so no list is copied. A weight of zero or less leaves the id out of the
+ * draws but keeps its slot. Not thread-safe.
+ */
+public final class WeightedSampler {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final Map<UUID, Integer> slots;
+    private UUID[] ids;
+    private int[] weights;
+    // 1-based, tree[i] holds the sum of weights (i - lowbit(i), i]
+    private long[] tree;
+    private int used;
+    private int positive;
+    private long total;
+
+    public WeightedSampler(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        slots = new HashMap<>(capacity * 2);
+        ids = new UUID[capacity];
+        weights = new int[capacity];
+        tree = new long[capacity + 1];
+    }
+
+    public static WeightedSampler of(Collection<? extends CommonEntity> entities) {
+        WeightedSampler sampler = new WeightedSampler(entities.size());
+        for (CommonEntity entity : entities) {
+            int slot = sampler.slot(entity.getId());
+            int weight = Math.max(0, entity.getWeight());
+            sampler.positive += Integer.signum(weight) - Integer.signum(sampler.weights[slot]);
+            sampler.total += weight - sampler.weights[slot];
+            sampler.weights[slot] = weight;
+        }
+        sampler.rebuild();
+        return sampler;
+    }
+
+    /**
+     * Sets the weight of an id, adding it when unknown.
+     */
+    public void put(UUID id, int weight) {
+        set(slot(id), Math.max(0, weight));
+    }
+
+    public void remove(UUID id) {
+        if (slots.containsKey(id)) {
+            put(id, 0);
+        }
+    }
+
+    public boolean contains(UUID id) {
+        return weight(id) > 0;
+    }
+
+    public int weight(UUID id) {
+        Integer slot = slots.get(id);
+        return slot == null ? 0 : weights[slot];
+    }
+
+    /**
+     * @return the number of ids with a positive weight.
+     */
+    public int size() {
+        return positive;
+    }
+
+    /**
+     * @return the number of ids with a positive weight that are not in {@code excluded}.
+     */
+    public int size(Collection<UUID> excluded) {
+        return positive - (int) excluded.stream().distinct().filter(this::contains).count();
+    }
+
+    public long totalWeight() {
+        return total;
+    }
+
+    /**
+     * Draws {@code amount} distinct ids, each with a chance proportional to its weight among the ids not drawn yet.
+     *
+     * @param excluded ids left out of this draw, may be {@code null}.
+     * @throws IllegalStateException when fewer than {@code amount} ids are left to draw from.
+     */
+    public List<UUID> sample(int amount, RandomGenerator random, Collection<UUID> excluded) {
+        List<Integer> zeroed = new ArrayList<>();
+        List<Integer> saved = new ArrayList<>();
+        try {
+            if (excluded != null) {
+                for (UUID id : excluded) {
+                    Integer slot = slots.get(id);
+                    if (slot != null && weights[slot] > 0) {
+                        zeroed.add(slot);
+                        saved.add(weights[slot]);
+                        set(slot, 0);
+                    }
+                }
+            }
+            if (positive < amount) {
+                throw new IllegalStateException(
+                    "Not enough entities to select from. Amount requested: %d, entities available: %d".formatted(
+                        amount, positive));
+            }
+            List<UUID> selected = new ArrayList<>(amount);
+            for (int i = 0; i < amount; i++) {
+                int slot = find(random.nextLong(total));
+                selected.add(ids[slot]);
+                zeroed.add(slot);
+                saved.add(weights[slot]);
+                set(slot, 0);
+            }
+            return selected;
+        } finally {
+            for (int i = 0; i < zeroed.size(); i++) {
+                set(zeroed.get(i), saved.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return the slot whose cumulative weight range contains {@code target}, {@code 0 <= target < totalWeight()}.
+     */
+    private int find(long target) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= target) {
+                position = next;
+                target -= tree[next];
+            }
+        }
+        // position counts the slots whose cumulative weight is <= target, so it is the index of the next one
+        return position;
+    }
+
+    private int slot(UUID id) {
+        Integer slot = slots.get(id);
+        if (slot != null) {
+            return slot;
+        }
+        if (used == ids.length) {
+            grow();
+        }
+        slots.put(id, used);
+        ids[used] = id;
+        return used++;
+    }
+
+    private void set(int slot, int weight) {
+        int delta = weight - weights[slot];
+        positive += Integer.signum(weight) - Integer.signum(weights[slot]);
+        total += delta;
+        weights[slot] = weight;
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        tree = new long[capacity + 1];
+        rebuild();
+    }
+
+    /**
+     * Builds the tree from the weights in {@code O(n)}.
+     */
+    private void rebuild() {
+        Arrays.fill(tree, 0);
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += weights[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.boatarde.regatasimulator.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published when a template or source is deleted or rejected, so anything holding on to it can let it go.
+ */
+@Getter
+@AllArgsConstructor
+public class AssetRemovedEvent {
+    private final UUID id;
+}
@@ -0,0 +1,274 @@
+package com.boatarde.regatasimulator.service;
+
+import com.boatarde.regatasimulator.bots.RegataSimulatorBot;
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
+import com.boatarde.regatasimulator.flows.WorkflowAction;
+import com.boatarde.regatasimulator.flows.WorkflowDataBag;
+import com.boatarde.regatasimulator.flows.WorkflowDataKey;
+import com.boatarde.regatasimulator.models.Source;
+import com.boatarde.regatasimulator.models.Status;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.render.RenderPriority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the next memes for the channel selected, rendered and encoded in their workspaces, so a scheduled post only
+ * has to upload. The buffer is refilled in the background, one meme at a time, and entries are dropped when one of
+ * their assets is deleted or rejected or when they get older than {@code max-age}. With {@code size} 0, or when the
+ * buffer is empty, posts run the whole flow as before.
+ */
+@Slf4j
+@Service
+public class MemeBufferService {
+
+    private final RouterService routerService;
+    private final RegataSimulatorBot bot;
+    private final TemplateCatalog templateCatalog;
+    private final SourceCatalog sourceCatalog;
+    private final int size;
+    private final Duration maxAge;
+    private final int postAttempts;
+    private final Deque<BufferedMeme> buffer = new LinkedList<>();
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(Thread.ofPlatform()
+        .name("meme-buffer")
+        .daemon()
+        .factory());
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    public MemeBufferService(RouterService routerService, RegataSimulatorBot bot, TemplateCatalog templateCatalog,
+                             SourceCatalog sourceCatalog,
+                             @Value("${regata-simulator.meme-buffer.size}") int size,
+                             @Value("${regata-simulator.meme-buffer.max-age}") Duration maxAge,
+                             @Value("${regata-simulator.meme-buffer.post-attempts}") int postAttempts,
+                             MeterRegistry meterRegistry) {
+        this.routerService = routerService;
+        this.bot = bot;
+        this.templateCatalog = templateCatalog;
+        this.sourceCatalog = sourceCatalog;
+        this.size = size;
+        this.maxAge = maxAge;
+        this.postAttempts = Math.max(1, postAttempts);
+        Gauge.builder("regata.meme.buffer.size", this, MemeBufferService::bufferedCount)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Posts the oldest valid pre-rendered meme to the channel, or runs the whole flow when none is ready.
+     */
+    public void postMeme() {
+        BufferedMeme meme = takeValid();
+        if (meme == null) {
+            log.info("No pre-rendered meme available, rendering one now");
+            renderAndPost();
+        } else {
+            log.info("Posting pre-rendered meme with template {}", meme.template.getId());
+            routerService.resumeFlow(meme.bag, WorkflowAction.SEND_MEME_STEP);
+        }
+        triggerRefill();
+    }
+
+    /**
+     * Renders and posts a meme, retrying with another template and sources when the render fails or runs out of
+     * time, so the slot is still filled within {@code post-attempts} render deadlines.
+     */
+    private void renderAndPost() {
+        Set<UUID> excludedIds = new HashSet<>();
+        for (int attempt = 1; attempt <= postAttempts; attempt++) {
+            WorkflowDataBag bag = routerService.newBag(null, bot);
+            bag.put(WorkflowDataKey.RENDER_PRIORITY, RenderPriority.SCHEDULED);
+            bag.put(WorkflowDataKey.EXCLUDED_IDS, Set.copyOf(excludedIds));
+            WorkflowAction next;
+            try {
+                next = routerService.runUntil(bag, WorkflowAction.GET_RANDOM_TEMPLATE, WorkflowAction.SEND_MEME_STEP);
+            } catch (Exception e) {
+                log.error("Failed to render meme: {}", e.getMessage(), e);
+                next = WorkflowAction.NONE;
+            }
+            if (next == WorkflowAction.SEND_MEME_STEP) {
+                routerService.resumeFlow(bag, WorkflowAction.SEND_MEME_STEP);
+                return;
+            }
+            Template template = bag.get(WorkflowDataKey.TEMPLATE, Template.class);
+            List<Source> sources = bag.getGeneric(WorkflowDataKey.SOURCES, List.class, Source.class);
+            if (template != null) {
+                excludedIds.add(template.getId());
+            }
+            if (sources != null) {
+                sources.forEach(source -> excludedIds.add(source.getId()));
+            }
+            routerService.closeFlow(bag);
+            log.warn("Meme render attempt {}/{} failed, excluding {} assets from the next attempt", attempt,
+                postAttempts, excludedIds.size());
+        }
+        log.error("No meme posted after {} attempts", postAttempts);
+    }
+
+    @Scheduled(fixedDelayString = "${regata-simulator.meme-buffer.refill-interval}",
+        initialDelayString = "${regata-simulator.meme-buffer.refill-interval}")
+    public void triggerRefill() {
+        if (size > 0 && refilling.compareAndSet(false, true)) {
+            refillExecutor.execute(() -> {
+                try {
+                    refill();
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onAssetRemoved(AssetRemovedEvent event) {
+        List<BufferedMeme> removed = new ArrayList<>();
+        synchronized (buffer) {
+            buffer.removeIf(meme -> meme.uses(event.getId()) && removed.add(meme));
+        }
+        removed.forEach(meme -> {
+            log.info("Discarding pre-rendered meme with template {}: asset {} was removed", meme.template.getId(),
+                event.getId());
+            routerService.closeFlow(meme.bag);
+        });
+        if (!removed.isEmpty()) {
+            triggerRefill();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+        synchronized (buffer) {
+            buffer.forEach(meme -> routerService.closeFlow(meme.bag));
+            buffer.clear();
+        }
+    }
+
+    private void refill() {
+        while (bufferedCount() < size) {
+            WorkflowDataBag bag = routerService.newBag(null, bot);
+            bag.put(WorkflowDataKey.EXCLUDED_IDS, bufferedIds());
+            bag.put(WorkflowDataKey.RENDER_PRIORITY, RenderPriority.BATCH);
+            WorkflowAction next;
+            try {
+                next = routerService.runUntil(bag, WorkflowAction.GET_RANDOM_TEMPLATE, WorkflowAction.SEND_MEME_STEP);
+            } catch (Exception e) {
+                log.error("Failed to pre-render meme: {}", e.getMessage(), e);
+                routerService.closeFlow(bag);
+                return;
+            }
+            if (next != WorkflowAction.SEND_MEME_STEP) {
+                log.warn("Pre-rendering stopped before the meme was ready");
+                routerService.closeFlow(bag);
+                return;
+            }
+            BufferedMeme meme = new BufferedMeme(bag);
+            synchronized (buffer) {
+                buffer.addLast(meme);
+            }
+            log.info("Pre-rendered meme with template {} buffered ({}/{})", meme.template.getId(),
+                bufferedCount(), size);
+        }
+    }
+
+    private BufferedMeme takeValid() {
+        while (true) {
+            BufferedMeme meme;
+            synchronized (buffer) {
+                meme = buffer.pollFirst();
+            }
+            if (meme == null) {
+                return null;
+            }
+            if (revalidate(meme)) {
+                return meme;
+            }
+            routerService.closeFlow(meme.bag);
+        }
+    }
+
+    /**
+     * Reloads the template and sources, so weights and history are updated on current documents, and checks that
+     * all of them are still approved and the rendered file is still there.
+     */
+    private boolean revalidate(BufferedMeme meme) {
+        if (Duration.between(meme.createdAt, Instant.now()).compareTo(maxAge) > 0) {
+            log.info("Discarding pre-rendered meme with template {}: older than {}", meme.template.getId(), maxAge);
+            return false;
+        }
+        Path memeFile = meme.bag.get(WorkflowDataKey.MEME_FILE, Path.class);
+        if (memeFile == null || !Files.exists(memeFile)) {
+            return false;
+        }
+        Template template = templateCatalog.findById(meme.template.getId()).orElse(null);
+        if (template == null || template.getStatus() != Status.APPROVED) {
+            return false;
+        }
+        List<Source> sources = new ArrayList<>();
+        for (Source buffered : meme.sources) {
+            Source source = sourceCatalog.findById(buffered.getId()).orElse(null);
+            if (source == null || source.getStatus() != Status.APPROVED) {
+                return false;
+            }
+            sources.add(source);
+        }
+        meme.bag.put(WorkflowDataKey.TEMPLATE, template);
+        meme.bag.put(WorkflowDataKey.SOURCES, sources);
+        return true;
+    }
+
+    private int bufferedCount() {
+        synchronized (buffer) {
+            return buffer.size();
+        }
+    }
+
+    private Set<UUID> bufferedIds() {
+        Set<UUID> ids = new HashSet<>();
+        synchronized (buffer) {
+            buffer.forEach(meme -> {
+                ids.add(meme.template.getId());
+                meme.sources.forEach(source -> ids.add(source.getId()));
+            });
+        }
+        return ids;
+    }
+
+    private static final class BufferedMeme {
+        private final WorkflowDataBag bag;
+        private final Template template;
+        private final List<Source> sources;
+        private final Instant createdAt = Instant.now();
+
+        private BufferedMeme(WorkflowDataBag bag) {
+            this.bag = bag;
+            this.template = bag.get(WorkflowDataKey.TEMPLATE, Template.class);
+            this.sources = bag.getGeneric(WorkflowDataKey.SOURCES, List.class, Source.class);
+        }
+
+        private boolean uses(UUID id) {
+            return template.getId().equals(id) || sources.stream().anyMatch(source -> source.getId().equals(id));
+        }
+    }
+}
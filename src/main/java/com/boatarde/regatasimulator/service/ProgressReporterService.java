@@ -0,0 +1,38 @@
+package com.boatarde.regatasimulator.service;
+
+import com.boatarde.regatasimulator.util.ProgressReporter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.IntConsumer;
+
+/**
+ * Creates {@link ProgressReporter}s that share one delivery thread and send at most one update per
+ * {@code regata-simulator.progress.update-interval}.
+ */
+@Service
+public class ProgressReporterService {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+        .name("progress-reporter")
+        .daemon()
+        .factory());
+    private final Duration updateInterval;
+
+    public ProgressReporterService(@Value("${regata-simulator.progress.update-interval}") Duration updateInterval) {
+        this.updateInterval = updateInterval;
+    }
+
+    public ProgressReporter create(IntConsumer sender) {
+        return new ProgressReporter(scheduler, updateInterval.toMillis(), sender);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -5,6 +5,7 @@ import com.boatarde.regatasimulator.flows.WorkflowDataBag;
 import com.boatarde.regatasimulator.flows.WorkflowDataKey;
 import com.boatarde.regatasimulator.flows.WorkflowManager;
 import com.boatarde.regatasimulator.flows.WorkflowStep;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
 import com.boatarde.regatasimulator.routes.Route;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Update;
@@ -29,15 +30,48 @@ public class RouterService {
     }
 
     public void startFlow(Update update, TelegramBot bot, WorkflowAction firstStep) {
-        WorkflowAction workflowAction = firstStep;
-        Optional<WorkflowStep> nextStep;
+        resumeFlow(newBag(update, bot), firstStep);
+    }
 
+    public WorkflowDataBag newBag(Update update, TelegramBot bot) {
         WorkflowDataBag workflowDataBag = new WorkflowDataBag();
         workflowDataBag.put(WorkflowDataKey.REGATA_SIMULATOR_BOT, bot);
         workflowDataBag.put(WorkflowDataKey.TELEGRAM_UPDATE, update);
+        return workflowDataBag;
+    }
 
-        while ((nextStep = workflowManager.getStepByEnum(workflowAction)).isPresent()) {
+    /**
+     * Runs the flow until it ends or until {@code stopBefore} is the next step. The bag, and any render workspace in
+     * it, is left open so the flow can be finished later with {@link #resumeFlow}.
+     *
+     * @return the step the flow stopped before, or {@link WorkflowAction#NONE} if it ended.
+     */
+    public WorkflowAction runUntil(WorkflowDataBag workflowDataBag, WorkflowAction firstStep,
+                                   WorkflowAction stopBefore) {
+        WorkflowAction workflowAction = firstStep;
+        Optional<WorkflowStep> nextStep;
+        while (workflowAction != stopBefore
+            && (nextStep = workflowManager.getStepByEnum(workflowAction)).isPresent()) {
             workflowAction = nextStep.get().run(workflowDataBag);
         }
+        return workflowAction == stopBefore ? workflowAction : WorkflowAction.NONE;
+    }
+
+    /**
+     * Runs the flow to the end from {@code step} and releases the resources held by the bag.
+     */
+    public void resumeFlow(WorkflowDataBag workflowDataBag, WorkflowAction step) {
+        try {
+            runUntil(workflowDataBag, step, null);
+        } finally {
+            closeFlow(workflowDataBag);
+        }
+    }
+
+    public void closeFlow(WorkflowDataBag workflowDataBag) {
+        RenderWorkspace workspace = workflowDataBag.get(WorkflowDataKey.RENDER_WORKSPACE, RenderWorkspace.class);
+        if (workspace != null) {
+            workspace.close();
+        }
     }
 }
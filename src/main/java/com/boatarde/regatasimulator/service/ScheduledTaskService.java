@@ -14,18 +14,21 @@ public class ScheduledTaskService {
 
     private final RegataSimulatorBot bot;
     private final RouterService routerService;
+    private final MemeBufferService memeBufferService;
     private final Long backupChatId;
 
     public ScheduledTaskService(RegataSimulatorBot bot, RouterService routerService,
+                                MemeBufferService memeBufferService,
                                 @Value("${telegram.bots.regata-simulator.backup-chat}") Long backupChatId) {
         this.bot = bot;
         this.routerService = routerService;
+        this.memeBufferService = memeBufferService;
         this.backupChatId = backupChatId;
     }
 
     @Scheduled(cron = "0 0,30 * * * *")
     public void generateMeme() {
-        routerService.startFlow(null, bot, WorkflowAction.GET_RANDOM_TEMPLATE);
+        memeBufferService.postMeme();
     }
 
     @Scheduled(cron = "0 15 12 * * SUN")
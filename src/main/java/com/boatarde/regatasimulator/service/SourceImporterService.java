@@ -1,12 +1,12 @@
 package com.boatarde.regatasimulator.service;
 
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
 import com.boatarde.regatasimulator.dto.SourceCsvRecord;
 import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Status;
 import com.boatarde.regatasimulator.util.TelegramFileDownloader;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
-import io.jsondb.JsonDBTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -25,16 +25,16 @@ import java.util.UUID;
 @Slf4j
 public class SourceImporterService {
 
-    private final JsonDBTemplate jsonDBTemplate;
+    private final SourceCatalog sourceCatalog;
     private final TelegramFileDownloader fileDownloader;
     private final String sourcesPathString;
     private final int initialWeight;
 
-    public SourceImporterService(JsonDBTemplate jsonDBTemplate,
+    public SourceImporterService(SourceCatalog sourceCatalog,
                                  TelegramFileDownloader fileDownloader,
                                  @Value("${regata-simulator.sources.path}") String sourcesPathString,
                                  @Value("${regata-simulator.sources.initial-weight}") int initialWeight) {
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.sourceCatalog = sourceCatalog;
         this.fileDownloader = fileDownloader;
         this.sourcesPathString = sourcesPathString;
         this.initialWeight = initialWeight;
@@ -67,7 +67,7 @@ public class SourceImporterService {
 
         if (!createdSources.isEmpty()) {
             log.info("Saving {} created sources to the database", createdSources.size());
-            jsonDBTemplate.insert(createdSources, Source.class);
+            sourceCatalog.insert(createdSources);
             log.info("Successfully saved all created sources");
         } else {
             log.info("No new sources were created");
@@ -99,8 +99,8 @@ public class SourceImporterService {
 
     private boolean sourceExists(String description) {
         log.debug("Checking if source with description '{}' already exists", description);
-        String jxQuery = "/.[description='" + description.replace("'", "\\'") + "']";
-        boolean exists = !jsonDBTemplate.find(jxQuery, Source.class).isEmpty();
+        boolean exists = sourceCatalog.findByDescription(description).stream()
+            .anyMatch(source -> description.equals(source.getDescription()));
         log.debug("Source with description '{}' exists: {}", description, exists);
         return exists;
     }
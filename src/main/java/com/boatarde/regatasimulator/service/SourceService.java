@@ -1,13 +1,17 @@
 package com.boatarde.regatasimulator.service;
 
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
 import com.boatarde.regatasimulator.dto.SearchCriteria;
 import com.boatarde.regatasimulator.models.GalleryResponse;
 import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Status;
+import com.boatarde.regatasimulator.render.DecodedImageCache;
+import com.boatarde.regatasimulator.selection.WeightedPoolService;
 import com.boatarde.regatasimulator.util.JsonDBUtils;
-import io.jsondb.JsonDBTemplate;
+import com.boatarde.regatasimulator.util.JxQueryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
@@ -28,32 +32,33 @@ import java.util.stream.Stream;
 @Slf4j
 public class SourceService {
 
-    private final JsonDBTemplate jsonDBTemplate;
+    private final SourceCatalog sourceCatalog;
+    private final DecodedImageCache decodedImageCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WeightedPoolService weightedPoolService;
     @Value("${regata-simulator.sources.path}")
     private String sourcesPathString;
     @Value("${regata-simulator.sources.initial-weight}")
     private int initialWeight;
 
-    public SourceService(JsonDBTemplate jsonDBTemplate) {
-        this.jsonDBTemplate = jsonDBTemplate;
+    public SourceService(SourceCatalog sourceCatalog, DecodedImageCache decodedImageCache,
+                         ApplicationEventPublisher eventPublisher, WeightedPoolService weightedPoolService) {
+        this.sourceCatalog = sourceCatalog;
+        this.decodedImageCache = decodedImageCache;
+        this.eventPublisher = eventPublisher;
+        this.weightedPoolService = weightedPoolService;
     }
 
-    public GalleryResponse<Source> getSources(int page, int perPage, Status status, Long userId) {
-        String jxQuery = JsonDBUtils.jxQuery()
+    /**
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} to start from {@code page}.
+     * @throws IllegalArgumentException when {@code cursor} is not a cursor returned by this method.
+     */
+    public GalleryResponse<Source> getSources(int page, int perPage, String cursor, Status status, Long userId) {
+        JxQueryBuilder jxQuery = JsonDBUtils.jxQuery()
             .withStatus(status)
-            .withUserId(userId)
-            .build();
-
-        // Query to get the total number of items and the paginated result
-        List<Source> allMatchingSources = jsonDBTemplate.find(jxQuery, Source.class);
-        int totalItems = allMatchingSources.size();
-        List<Source> result = allMatchingSources.stream()
-            .sorted(JsonDBUtils.getComparator().reversed())
-            .skip((long) (page - 1) * perPage)
-            .limit(perPage)
-            .toList();
-
-        return new GalleryResponse<>(result, totalItems);
+            .withUserId(userId);
+
+        return sourceCatalog.gallery(jxQuery, page, perPage, cursor);
     }
 
     public Resource loadSourceAsResource(Source source) {
@@ -84,7 +89,9 @@ public class SourceService {
                     throw new RuntimeException("Failed to delete source: " + source.getId());
                 }
             }
-            jsonDBTemplate.remove(source, Source.class);
+            sourceCatalog.remove(source);
+            decodedImageCache.invalidate(source.getId());
+            eventPublisher.publishEvent(new AssetRemovedEvent(source.getId()));
             log.info("Source {} deleted", source.getId());
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete source: " + source.getId(), e);
@@ -92,59 +99,40 @@ public class SourceService {
     }
 
     public Optional<Source> getSource(UUID id) {
-        return Optional.ofNullable(jsonDBTemplate.findById(id, Source.class));
+        return sourceCatalog.findById(id);
     }
 
     public void approveSource(Source source) {
-        source.setStatus(Status.APPROVED);
-        jsonDBTemplate.save(source, Source.class);
+        sourceCatalog.save(source.getId(), current -> current.setStatus(Status.APPROVED))
+            .ifPresent(weightedPoolService::update);
         log.info("Source {} approved", source.getId());
     }
 
     public void rejectSource(Source source) {
-        source.setStatus(Status.REJECTED);
-        jsonDBTemplate.save(source, Source.class);
+        sourceCatalog.save(source.getId(), current -> current.setStatus(Status.REJECTED));
+        eventPublisher.publishEvent(new AssetRemovedEvent(source.getId()));
         log.info("Source {} rejected", source.getId());
     }
 
     public void resetAllWeights() {
-        List<Source> allSources = jsonDBTemplate.findAll(Source.class);
+        List<Source> allSources = sourceCatalog.findAll();
         for (Source source : allSources) {
             source.setWeight(initialWeight);
         }
-        jsonDBTemplate.upsert(allSources, Source.class);
+        sourceCatalog.upsert(allSources);
+        weightedPoolService.updateAll(allSources);
         log.info("All sources weights have been reset to {}", initialWeight);
     }
 
     public GalleryResponse<Source> search(SearchCriteria criteria) {
-        List<Source> allSources = jsonDBTemplate.findAll(Source.class);
-
-        Stream<Source> stream = allSources.stream();
-
+        JxQueryBuilder jxQuery = JsonDBUtils.jxQuery()
+            .withStatus(criteria.getStatus());
         // Filter by query if present
         if (criteria.getQuery() != null && !criteria.getQuery().isBlank()) {
-            String lowerQuery = criteria.getQuery().toLowerCase();
-            stream =
-                stream.filter(s -> s.getDescription() != null && s.getDescription().toLowerCase().contains(lowerQuery));
+            jxQuery.withDescription(criteria.getQuery().toLowerCase());
         }
 
-        // Filter by status if present
-        if (criteria.getStatus() != null) {
-            stream = stream.filter(s -> s.getStatus() == criteria.getStatus());
-        }
-
-        List<Source> filtered = stream
-            .sorted(Comparator.comparing(s -> Optional.ofNullable(s.getDescription()).orElse("").toLowerCase()))
-            .toList();
-
-        int totalItems = filtered.size();
-        List<Source> result = filtered.stream()
-            .sorted(JsonDBUtils.getComparator().reversed())
-            .skip((long) (criteria.getPage() - 1) * criteria.getPerPage())
-            .limit(criteria.getPerPage())
-            .toList();
-
-        return new GalleryResponse<>(result, totalItems);
+        return sourceCatalog.gallery(jxQuery, criteria.getPage(), criteria.getPerPage(), criteria.getCursor());
     }
 
 }
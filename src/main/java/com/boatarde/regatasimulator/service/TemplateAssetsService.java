@@ -0,0 +1,161 @@
+package com.boatarde.regatasimulator.service;
+
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.TemplateGeometry;
+import com.boatarde.regatasimulator.util.FileUtils;
+import com.boatarde.regatasimulator.util.ImageUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Precompiles everything a render needs from a template that does not depend on the sources: the template
+ * dimensions and, for every area, its bounding box with the perspective coefficients and mask in bounding-box space.
+ * This runs when a template is created or approved, so renders never have to probe the template again.
+ */
+@Slf4j
+@Service
+public class TemplateAssetsService {
+
+    private final String templatesPathString;
+    private final TemplateCatalog templateCatalog;
+
+    public TemplateAssetsService(@Value("${regata-simulator.templates.path}") String templatesPathString,
+                                 TemplateCatalog templateCatalog) {
+        this.templatesPathString = templatesPathString;
+        this.templateCatalog = templateCatalog;
+    }
+
+    /**
+     * Returns a copy of the template with its precompiled fields filled in and writes its masks next to the template
+     * file. The template itself is left untouched, since renders may be reading it, and the copy is not persisted:
+     * callers save it along with their own changes. Each mask is replaced atomically, and masks no area uses anymore
+     * are deleted once all of them are written.
+     */
+    public Template precompile(Template template, Path templateFile) throws IOException {
+        Dimension dimensions = ImageUtils.readDimensions(templateFile);
+        Path templateDir = templateFile.getParent();
+        Template precompiled = TemplateCatalog.copyOf(template);
+        Set<Path> masks = new HashSet<>();
+        for (TemplateArea area : precompiled.getAreas()) {
+            AreaBounds bounds = TemplateGeometry.bounds(area, dimensions.width, dimensions.height);
+            area.setBounds(bounds);
+            area.setPerspective(TemplateGeometry.perspective(area, bounds));
+            Path mask = TemplateGeometry.maskFile(templateDir, area);
+            writeMask(TemplateGeometry.mask(area, bounds), mask);
+            masks.add(mask);
+        }
+        try (DirectoryStream<Path> existingMasks = Files.newDirectoryStream(templateDir, "mask_*.png")) {
+            for (Path existingMask : existingMasks) {
+                if (!masks.contains(existingMask)) {
+                    Files.deleteIfExists(existingMask);
+                }
+            }
+        }
+        precompiled.setWidth(dimensions.width);
+        precompiled.setHeight(dimensions.height);
+        precompiled.setAssetsVersion(TemplateGeometry.ASSETS_VERSION);
+        log.info("Template {} precompiled ({}x{}, {} areas)", template.getId(), dimensions.width,
+            dimensions.height, template.getAreas().size());
+        return precompiled;
+    }
+
+    public Template precompile(Template template) throws IOException {
+        return precompile(template, getTemplateFile(template));
+    }
+
+    /**
+     * Backfills templates whose assets are missing or were built by an older version. It runs during warm-up, while
+     * renders, weight updates and reviews may already be running, so the new assets are applied to each template as
+     * the catalogue holds it by then, keeping changes made while the masks were written.
+     *
+     * @return how many templates were precompiled.
+     */
+    public int precompileAll() {
+        int precompiled = 0;
+        for (Template template : templateCatalog.findAll()) {
+            if (hasAssets(template)) {
+                continue;
+            }
+            try {
+                Template assets = precompile(template);
+                if (templateCatalog.save(template.getId(), current -> applyAssets(assets, current)).isPresent()) {
+                    precompiled++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to precompile template {}: {}", template.getId(), e.getMessage(), e);
+            }
+        }
+        log.info("{} templates precompiled", precompiled);
+        return precompiled;
+    }
+
+    /**
+     * Copies the precompiled fields of {@code precompiled} into {@code template}, matching areas by index.
+     */
+    public static void applyAssets(Template precompiled, Template template) {
+        Map<Integer, TemplateArea> areas = precompiled.getAreas().stream()
+            .collect(Collectors.toMap(TemplateArea::getIndex, Function.identity()));
+        for (TemplateArea area : template.getAreas()) {
+            TemplateArea precompiledArea = areas.get(area.getIndex());
+            area.setBounds(precompiledArea == null ? null : precompiledArea.getBounds());
+            area.setPerspective(precompiledArea == null ? null : precompiledArea.getPerspective());
+        }
+        template.setWidth(precompiled.getWidth());
+        template.setHeight(precompiled.getHeight());
+        template.setAssetsVersion(precompiled.getAssetsVersion());
+    }
+
+    /**
+     * Whether the template is precompiled by this version and its masks are still on disk.
+     */
+    public boolean hasAssets(Template template) {
+        if (!TemplateGeometry.isPrecompiled(template)) {
+            return false;
+        }
+        Path templateDir = Paths.get(templatesPathString).resolve(template.getId().toString());
+        return template.getAreas().stream()
+            .allMatch(area -> Files.exists(TemplateGeometry.maskFile(templateDir, area)));
+    }
+
+    public Path getTemplateFile(Template template) throws IOException {
+        Path templateDir = Paths.get(templatesPathString).resolve(template.getId().toString());
+        return FileUtils.getFirstExistingFile(templateDir, "template.jpg", "template.jpeg", "template.png")
+            .orElseThrow(() -> new IOException("Template file not found: " + template.getId()));
+    }
+
+    /**
+     * Writes the mask to a temporary file and moves it into place, so renders never see a partial mask.
+     */
+    private static void writeMask(BufferedImage mask, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (!ImageIO.write(mask, "png", temporary.toFile())) {
+                throw new IOException("No PNG writer for mask " + file);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
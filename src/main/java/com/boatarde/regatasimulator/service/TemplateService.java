@@ -1,12 +1,16 @@
 package com.boatarde.regatasimulator.service;
 
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
 import com.boatarde.regatasimulator.models.GalleryResponse;
 import com.boatarde.regatasimulator.models.Status;
 import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.render.DecodedImageCache;
+import com.boatarde.regatasimulator.selection.WeightedPoolService;
 import com.boatarde.regatasimulator.util.JsonDBUtils;
-import io.jsondb.JsonDBTemplate;
+import com.boatarde.regatasimulator.util.JxQueryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
@@ -28,32 +32,39 @@ import java.util.stream.Stream;
 public class TemplateService {
 
     private final String templatesPathString;
-    private final JsonDBTemplate jsonDBTemplate;
+    private final TemplateCatalog templateCatalog;
+    private final TemplateAssetsService templateAssetsService;
+    private final DecodedImageCache decodedImageCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WeightedPoolService weightedPoolService;
 
     @Value("${regata-simulator.templates.initial-weight}")
     private int initialWeight;
 
     public TemplateService(@Value("${regata-simulator.templates.path}") String templatesPathString,
-                           JsonDBTemplate jsonDBTemplate) {
+                           TemplateCatalog templateCatalog,
+                           TemplateAssetsService templateAssetsService,
+                           DecodedImageCache decodedImageCache,
+                           ApplicationEventPublisher eventPublisher,
+                           WeightedPoolService weightedPoolService) {
         this.templatesPathString = templatesPathString;
-        this.jsonDBTemplate = jsonDBTemplate;
+        this.templateCatalog = templateCatalog;
+        this.templateAssetsService = templateAssetsService;
+        this.decodedImageCache = decodedImageCache;
+        this.eventPublisher = eventPublisher;
+        this.weightedPoolService = weightedPoolService;
     }
 
-    public GalleryResponse<Template> getTemplates(int page, int perPage, Status status, Long userId) {
-        String jxQuery = JsonDBUtils.jxQuery()
+    /**
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} to start from {@code page}.
+     * @throws IllegalArgumentException when {@code cursor} is not a cursor returned by this method.
+     */
+    public GalleryResponse<Template> getTemplates(int page, int perPage, String cursor, Status status, Long userId) {
+        JxQueryBuilder jxQuery = JsonDBUtils.jxQuery()
             .withStatus(status)
-            .withUserId(userId)
-            .build();
-
-        List<Template> allMatchingTemplates = jsonDBTemplate.find(jxQuery, Template.class);
-        int totalItems = allMatchingTemplates.size();
-        List<Template> result = allMatchingTemplates.stream()
-            .sorted(JsonDBUtils.getComparator().reversed())
-            .skip((long) (page - 1) * perPage)
-            .limit(perPage)
-            .toList();
-
-        return new GalleryResponse<>(result, totalItems);
+            .withUserId(userId);
+
+        return templateCatalog.gallery(jxQuery, page, perPage, cursor);
     }
 
     public Resource loadTemplateAsResource(Template template) {
@@ -84,7 +95,9 @@ public class TemplateService {
                     throw new RuntimeException("Failed to delete template: " + template.getId());
                 }
             }
-            jsonDBTemplate.remove(template, Template.class);
+            templateCatalog.remove(template);
+            decodedImageCache.invalidate(template.getId());
+            eventPublisher.publishEvent(new AssetRemovedEvent(template.getId()));
             log.info("Template {} deleted", template.getId());
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete template: " + template.getId(), e);
@@ -92,36 +105,53 @@ public class TemplateService {
     }
 
     public Optional<Template> getTemplate(UUID id) {
-        return Optional.ofNullable(jsonDBTemplate.findById(id, Template.class));
+        return templateCatalog.findById(id);
     }
 
     public void approveTemplate(Template template) {
-        template.setStatus(Status.APPROVED);
-        jsonDBTemplate.save(template, Template.class);
+        Template precompiled = null;
+        try {
+            precompiled = templateAssetsService.precompile(template);
+        } catch (IOException e) {
+            // rendering falls back to probing the template, so a failed precompilation must not block approval
+            log.error("Failed to precompile template {}: {}", template.getId(), e.getMessage(), e);
+        }
+        Template assets = precompiled;
+        templateCatalog.save(template.getId(), current -> {
+            if (assets != null) {
+                TemplateAssetsService.applyAssets(assets, current);
+            }
+            current.setStatus(Status.APPROVED);
+        }).ifPresent(weightedPoolService::update);
         log.info("Template {} approved", template.getId());
     }
 
     public void rejectTemplate(Template template) {
-        template.setStatus(Status.REJECTED);
-        jsonDBTemplate.save(template, Template.class);
+        templateCatalog.save(template.getId(), current -> current.setStatus(Status.REJECTED));
+        eventPublisher.publishEvent(new AssetRemovedEvent(template.getId()));
         log.info("Template {} rejected", template.getId());
     }
 
     public void resetAllWeights() {
-        List<Template> allTemplates = jsonDBTemplate.findAll(Template.class);
+        List<Template> allTemplates = templateCatalog.findAll();
         for (Template template : allTemplates) {
             template.setWeight(initialWeight);
         }
-        jsonDBTemplate.upsert(allTemplates, Template.class);
+        templateCatalog.upsert(allTemplates);
+        weightedPoolService.updateAll(allTemplates);
         log.info("All templates weights have been reset to {}", initialWeight);
     }
 
     public void initializeSourceIds() {
-        List<Template> allTemplates = jsonDBTemplate.findAll(Template.class);
+        List<Template> allTemplates = templateCatalog.findAll();
         for (Template template : allTemplates) {
             template.getAreas().forEach(area -> area.setSource(area.getIndex()));
         }
-        jsonDBTemplate.upsert(allTemplates, Template.class);
+        templateCatalog.upsert(allTemplates);
         log.info("All templates source ids have been reset");
     }
+
+    public int precompileAllTemplates() {
+        return templateAssetsService.precompileAll();
+    }
 }
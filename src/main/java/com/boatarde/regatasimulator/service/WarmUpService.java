@@ -0,0 +1,218 @@
+package com.boatarde.regatasimulator.service;
+
+import com.boatarde.regatasimulator.catalog.SourceCatalog;
+import com.boatarde.regatasimulator.catalog.TemplateCatalog;
+import com.boatarde.regatasimulator.models.Source;
+import com.boatarde.regatasimulator.models.Status;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.DecodedImageCache;
+import com.boatarde.regatasimulator.render.TemplateGeometry;
+import com.boatarde.regatasimulator.util.FileUtils;
+import com.boatarde.regatasimulator.util.JsonDBUtils;
+import com.boatarde.regatasimulator.util.JxQueryBuilder;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms up render assets once the application is ready, so the first memes after a restart do not pay for it:
+ * missing or outdated template assets are precompiled, then the files of every approved template and of the
+ * {@code sources} highest-weight approved sources are read into the page cache and, for the in-process engine,
+ * decoded into the {@link DecodedImageCache}. It runs on its own threads and never delays readiness; progress is
+ * reported by the {@code warmUp} health indicator. Renders may run meanwhile: precompilation publishes new template
+ * copies and masks atomically, so until then they keep using the previous assets or probe the template.
+ */
+@Slf4j
+@Service
+public class WarmUpService {
+
+    public enum State {
+        DISABLED,
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final TemplateAssetsService templateAssetsService;
+    private final DecodedImageCache decodedImageCache;
+    private final TemplateCatalog templateCatalog;
+    private final SourceCatalog sourceCatalog;
+    private final Path sourcesPath;
+    private final boolean enabled;
+    private final int parallelism;
+    private final int sourceCount;
+    private final boolean decode;
+    private final ExecutorService executor;
+
+    @Getter
+    private volatile State state;
+    @Getter
+    private volatile Instant startedAt;
+    @Getter
+    private volatile Instant finishedAt;
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public WarmUpService(TemplateAssetsService templateAssetsService, DecodedImageCache decodedImageCache,
+                         TemplateCatalog templateCatalog, SourceCatalog sourceCatalog,
+                         @Value("${regata-simulator.sources.path}") String sourcesPath,
+                         @Value("${regata-simulator.render.engine}") String engine,
+                         @Value("${regata-simulator.warm-up.enabled}") boolean enabled,
+                         @Value("${regata-simulator.warm-up.parallelism}") int parallelism,
+                         @Value("${regata-simulator.warm-up.sources}") int sourceCount) {
+        this.templateAssetsService = templateAssetsService;
+        this.decodedImageCache = decodedImageCache;
+        this.templateCatalog = templateCatalog;
+        this.sourceCatalog = sourceCatalog;
+        this.sourcesPath = Paths.get(sourcesPath);
+        this.enabled = enabled;
+        this.parallelism = Math.max(1, parallelism);
+        this.sourceCount = Math.max(0, sourceCount);
+        // the magick engines read the files themselves, only the in-process one uses decoded images
+        this.decode = engine.equals("java");
+        this.state = enabled ? State.PENDING : State.DISABLED;
+        this.executor = Executors.newFixedThreadPool(this.parallelism, Thread.ofPlatform()
+            .name("warm-up-", 0)
+            .daemon()
+            .factory());
+    }
+
+    /**
+     * Runs after every {@code @PostConstruct}, including the collection setup of the application.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            executor.shutdown();
+            return;
+        }
+        Thread.ofPlatform().name("warm-up").daemon().start(this::warmUp);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    private void warmUp() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        try {
+            templateAssetsService.precompileAll();
+
+            JxQueryBuilder approved = JsonDBUtils.jxQuery().withStatus(Status.APPROVED);
+            List<Template> templates = templateCatalog.find(approved);
+            List<Source> sources = sourceCatalog.find(approved).stream()
+                .sorted(Comparator.comparingInt(Source::getWeight).reversed())
+                .limit(sourceCount)
+                .toList();
+            total.set(templates.size() + sources.size());
+            log.info("Warming up {} templates and {} sources with {} threads", templates.size(), sources.size(),
+                parallelism);
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            templates.forEach(template -> tasks.add(track("template " + template.getId(),
+                () -> warmTemplate(template))));
+            sources.forEach(source -> tasks.add(track("source " + source.getId(), () -> warmSource(source))));
+            executor.invokeAll(tasks);
+            state = State.COMPLETED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = State.FAILED;
+        } catch (Exception e) {
+            log.error("Warm-up failed: {}", e.getMessage(), e);
+            state = State.FAILED;
+        } finally {
+            finishedAt = Instant.now();
+            executor.shutdown();
+        }
+        log.info("Warm-up {} in {} ms: {}/{} assets, {} failed", state.name().toLowerCase(),
+            finishedAt.toEpochMilli() - startedAt.toEpochMilli(), completed.get(), total.get(), failed.get());
+    }
+
+    private void warmTemplate(Template template) throws IOException {
+        Path templateFile = templateAssetsService.getTemplateFile(template);
+        touch(templateFile);
+        for (TemplateArea area : template.getAreas()) {
+            Path mask = TemplateGeometry.maskFile(templateFile.getParent(), area);
+            if (Files.exists(mask)) {
+                touch(mask);
+            }
+        }
+        if (decode) {
+            decodedImageCache.get(template.getId(), templateFile);
+        }
+    }
+
+    private void warmSource(Source source) throws IOException {
+        Path sourceFile = FileUtils.getFirstExistingFile(sourcesPath.resolve(source.getId().toString()),
+                "source.jpg", "source.jpeg", "source.png")
+            .orElseThrow(() -> new IOException("Source file not found: " + source.getId()));
+        touch(sourceFile);
+        if (decode) {
+            decodedImageCache.get(source.getId(), sourceFile);
+        }
+    }
+
+    private Callable<Void> track(String asset, AssetTask task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.warn("Failed to warm up {}: {}", asset, e.getMessage());
+            } finally {
+                completed.incrementAndGet();
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Reads the whole file, so it is in the page cache when a render reads it.
+     */
+    private static void touch(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @FunctionalInterface
+    private interface AssetTask {
+        void run() throws Exception;
+    }
+}
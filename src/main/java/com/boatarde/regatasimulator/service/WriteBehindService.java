@@ -0,0 +1,218 @@
+package com.boatarde.regatasimulator.service;
+
+import com.boatarde.regatasimulator.store.DocumentStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delays database writes that can wait, such as weight updates and the meme history, so a post does not rewrite each
+ * collection file once per entity. Mutations are journaled per collection, keeping only the latest one per id, and
+ * flushed every {@code regata-simulator.write-behind.interval}, once {@code max-pending} are waiting, before a backup
+ * and on shutdown, with one batch write per collection and kind of mutation. A failed batch stays in the journal,
+ * unless a newer mutation replaced it, and is retried on the next flush.
+ * <p>
+ * Readers of the delayed collections must not rely on the files: the catalogues and indexes already hold the changes.
+ * Synchronous writes of an entity must {@link #discard} its pending mutation first, so it cannot be overwritten later.
+ */
+@Slf4j
+@Service
+public class WriteBehindService {
+
+    private final DocumentStore documentStore;
+    private final boolean enabled;
+    private final int maxPending;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+        .name("write-behind")
+        .daemon()
+        .factory());
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    /**
+     * Pending mutations by collection type and id, guarded by itself.
+     */
+    private final Map<Class<?>, Map<UUID, Mutation>> journal = new LinkedHashMap<>();
+    private int pending;
+    private final Timer flushTimer;
+    private final Counter failures;
+
+    public WriteBehindService(DocumentStore documentStore,
+                              @Value("${regata-simulator.write-behind.enabled}") boolean enabled,
+                              @Value("${regata-simulator.write-behind.interval}") Duration interval,
+                              @Value("${regata-simulator.write-behind.max-pending}") int maxPending,
+                              MeterRegistry meterRegistry) {
+        this.documentStore = documentStore;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.flushTimer = Timer.builder("regata.write-behind.flush")
+            .description("Time to write the journaled mutations to the document store")
+            .register(meterRegistry);
+        this.failures = Counter.builder("regata.write-behind.failures")
+            .description("Collection batches that failed to be written and were kept for the next flush")
+            .register(meterRegistry);
+        Gauge.builder("regata.write-behind.queue.depth", this, WriteBehindService::getPending)
+            .description("Mutations waiting to be written to the document store")
+            .register(meterRegistry);
+        if (enabled) {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Inserts or replaces {@code entity} on the next flush.
+     */
+    public <T> void upsert(Class<T> type, UUID id, T entity) {
+        enqueue(type, id, new Mutation(entity, false));
+    }
+
+    /**
+     * Removes the entity with {@code id} on the next flush; {@code entity} only needs its id set.
+     */
+    public <T> void remove(Class<T> type, UUID id, T entity) {
+        enqueue(type, id, new Mutation(entity, true));
+    }
+
+    /**
+     * Drops the pending mutation of an entity about to be written synchronously, waiting for a flush in progress.
+     */
+    public void discard(Class<?> type, UUID id) {
+        synchronized (flushLock) {
+            synchronized (journal) {
+                Map<UUID, Mutation> mutations = journal.get(type);
+                if (mutations != null && mutations.remove(id) != null) {
+                    pending--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every pending mutation now, on the calling thread.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Class<?>, Map<UUID, Mutation>> batch;
+            int size;
+            synchronized (journal) {
+                if (pending == 0) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(journal);
+                size = pending;
+                journal.clear();
+                pending = 0;
+            }
+            long start = System.nanoTime();
+            batch.forEach(this::write);
+            long elapsed = System.nanoTime() - start;
+            flushTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            log.debug("Flushed {} mutations in {} ms", size, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    public int getPending() {
+        synchronized (journal) {
+            return pending;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Write-behind flush still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        int lost = getPending();
+        if (lost > 0) {
+            log.error("{} mutations could not be written to the document store before shutdown", lost);
+        }
+    }
+
+    private <T> void enqueue(Class<T> type, UUID id, Mutation mutation) {
+        if (!enabled) {
+            write(type, Map.of(id, mutation));
+            return;
+        }
+        boolean full;
+        synchronized (journal) {
+            if (journal.computeIfAbsent(type, t -> new LinkedHashMap<>()).put(id, mutation) == null) {
+                pending++;
+            }
+            full = pending >= maxPending;
+        }
+        if (full && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private void write(Class<?> type, Map<UUID, Mutation> mutations) {
+        try {
+            writeBatch(type, mutations);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("Failed to write {} {} mutations, keeping them for the next flush: {}", mutations.size(),
+                type.getSimpleName(), e.getMessage(), e);
+            if (!enabled) {
+                throw e;
+            }
+            synchronized (journal) {
+                Map<UUID, Mutation> current = journal.computeIfAbsent(type, t -> new LinkedHashMap<>());
+                mutations.forEach((id, mutation) -> {
+                    if (current.putIfAbsent(id, mutation) == null) {
+                        pending++;
+                    }
+                });
+            }
+        }
+    }
+
+    private <T> void writeBatch(Class<T> type, Map<UUID, Mutation> mutations) {
+        List<T> upserts = new ArrayList<>();
+        List<T> removals = new ArrayList<>();
+        mutations.values().forEach(mutation -> (mutation.removal() ? removals : upserts)
+            .add(type.cast(mutation.entity())));
+        if (!upserts.isEmpty()) {
+            documentStore.upsert(upserts, type);
+        }
+        if (!removals.isEmpty()) {
+            // entities never written are skipped by the store
+            documentStore.remove(removals, type);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private record Mutation(Object entity, boolean removal) {
+    }
+}
@@ -0,0 +1,255 @@
+package com.boatarde.regatasimulator.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The documents of one collection, as their JSON bytes by id, persisted as a snapshot plus an append-only log of the
+ * changes made since. A write appends its records and costs their size only; {@link #compact} folds the log into a new
+ * snapshot. Replaying records is idempotent, so a crash at any point of a compaction leaves files that replay to the
+ * same documents.
+ */
+@Slf4j
+final class CollectionLog implements AutoCloseable {
+
+    private final String name;
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Map<String, byte[]> documents = new LinkedHashMap<>();
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    /**
+     * Bytes written to the log, and the part of them known to be on disk.
+     */
+    private volatile long written;
+    private long synced;
+    private long snapshotBytes;
+    private long liveBytes;
+
+    CollectionLog(Path directory, String name) throws IOException {
+        this.name = name;
+        this.snapshotFile = directory.resolve(name + ".snapshot");
+        this.logFile = directory.resolve(name + ".log");
+        if (Files.exists(snapshotFile)) {
+            snapshotBytes = Files.size(snapshotFile);
+            if (replay(snapshotFile) < snapshotBytes) {
+                throw new IOException("Corrupt snapshot: " + snapshotFile);
+            }
+        }
+        long valid = Files.exists(logFile) ? replay(logFile) : 0;
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            if (valid < channel.size()) {
+                log.warn("Discarding {} bytes of torn records at the end of {}", channel.size() - valid, logFile);
+                channel.truncate(valid);
+                channel.force(false);
+            }
+            channel.position(valid);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        written = valid;
+        synced = valid;
+    }
+
+    String name() {
+        return name;
+    }
+
+    synchronized byte[] get(String key) {
+        return documents.get(key);
+    }
+
+    synchronized boolean contains(String key) {
+        return documents.containsKey(key);
+    }
+
+    synchronized List<byte[]> values() {
+        return new ArrayList<>(documents.values());
+    }
+
+    /**
+     * Appends the records and applies them, without waiting for them to reach the disk.
+     *
+     * @return the log length to {@link #sync} to make them durable.
+     */
+    synchronized long append(List<LogRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return written;
+        }
+        int size = records.stream().mapToInt(LogRecord::size).sum();
+        ByteBuffer buffer = LogRecord.encode(records, size);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        records.forEach(this::apply);
+        written += size;
+        return written;
+    }
+
+    /**
+     * Forces the log to disk up to {@code position}. Writers waiting here while another one syncs are covered by the
+     * next force, so concurrent writes share their fsyncs.
+     */
+    void sync(long position) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long target = written;
+            channel.force(false);
+            synced = target;
+        }
+    }
+
+    long logBytes() {
+        return written;
+    }
+
+    synchronized boolean needsCompaction(long minBytes) {
+        return written >= Math.max(minBytes, liveBytes);
+    }
+
+    /**
+     * Writes the current documents to a new snapshot and keeps in the log only the records appended meanwhile. Writers
+     * are blocked while the log is swapped, not while the snapshot is written.
+     */
+    void compact() throws IOException {
+        compact(() -> {
+        });
+    }
+
+    /**
+     * @param afterSnapshot runs once the snapshot is written, before the log is swapped.
+     */
+    void compact(Runnable afterSnapshot) throws IOException {
+        List<LogRecord> records = new ArrayList<>();
+        long mark;
+        synchronized (this) {
+            documents.forEach((key, value) -> records.add(LogRecord.put(key, value)));
+            mark = written;
+        }
+        writeSnapshot(records);
+        afterSnapshot.run();
+        synchronized (this) {
+            synchronized (syncLock) {
+                // the records appended while the snapshot was written are copied to a new log that replaces this one
+                Path tail = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+                try (FileChannel tailChannel = FileChannel.open(tail, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    long length = written - mark;
+                    long copied = 0;
+                    while (copied < length) {
+                        copied += channel.transferTo(mark + copied, length - copied, tailChannel);
+                    }
+                    tailChannel.force(false);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(tail);
+                    throw e;
+                }
+                channel.close();
+                Files.move(tail, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory(logFile.getParent());
+                channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                written = channel.size();
+                channel.position(written);
+                synced = written;
+            }
+        }
+        log.info("Collection {} compacted: {} documents, {} bytes of snapshot", name, records.size(), snapshotBytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            channel.force(false);
+            synced = written;
+            channel.close();
+        }
+    }
+
+    private void writeSnapshot(List<LogRecord> records) throws IOException {
+        snapshotBytes = writeSnapshot(snapshotFile, records);
+    }
+
+    /**
+     * Replaces the snapshot of a collection that is not open, for a collection imported from elsewhere. Written before
+     * the collection has a log, so an import that fails or is interrupted leaves no files behind and runs again.
+     */
+    static void importSnapshot(Path directory, String name, List<LogRecord> records) throws IOException {
+        writeSnapshot(directory.resolve(name + ".snapshot"), records);
+    }
+
+    /**
+     * @return the size of the new snapshot.
+     */
+    private static long writeSnapshot(Path snapshotFile, List<LogRecord> records) throws IOException {
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        long size;
+        try (FileChannel snapshot = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (LogRecord record : records) {
+                ByteBuffer buffer = LogRecord.encode(List.of(record), record.size());
+                while (buffer.hasRemaining()) {
+                    snapshot.write(buffer);
+                }
+            }
+            snapshot.force(false);
+            size = snapshot.size();
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(snapshotFile.getParent());
+        return size;
+    }
+
+    /**
+     * @return the length of the valid records at the start of {@code file}.
+     */
+    private long replay(Path file) throws IOException {
+        long valid = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            LogRecord record;
+            while ((record = LogRecord.read(in)) != null) {
+                apply(record);
+                valid += record.size();
+            }
+        }
+        return valid;
+    }
+
+    private void apply(LogRecord record) {
+        byte[] previous = record.op() == LogRecord.PUT
+            ? documents.put(record.key(), record.value())
+            : documents.remove(record.key());
+        if (previous != null) {
+            liveBytes -= previous.length;
+        }
+        if (record.op() == LogRecord.PUT) {
+            liveBytes += record.value().length;
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on every platform; the renames are still atomic
+            log.debug("Could not sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.boatarde.regatasimulator.store;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persistence of the {@code @Document} models, with the semantics of the JsonDB template it replaces: documents are
+ * identified by their {@code @Id} field, reads return fresh instances, {@code insert} fails when the id exists and
+ * {@code save} when it does not. The engine is chosen by {@code regata-simulator.database.engine}.
+ */
+public interface DocumentStore {
+
+    <T> List<T> findAll(Class<T> type);
+
+    /**
+     * @return the document with {@code id}, {@code null} when there is none.
+     */
+    <T> T findById(Object id, Class<T> type);
+
+    void insert(Object document);
+
+    <T> void insert(Collection<? extends T> batch, Class<T> type);
+
+    <T> void save(Object document, Class<T> type);
+
+    void upsert(Object document);
+
+    <T> void upsert(Collection<? extends T> batch, Class<T> type);
+
+    /**
+     * @return the removed document, {@code null} when there was none.
+     */
+    <T> T remove(Object document, Class<T> type);
+
+    /**
+     * @return the documents that existed and were removed; the others are skipped.
+     */
+    <T> List<T> remove(Collection<? extends T> batch, Class<T> type);
+
+    boolean collectionExists(String collectionName);
+
+    void createCollection(String collectionName);
+}
@@ -0,0 +1,78 @@
+package com.boatarde.regatasimulator.store;
+
+import io.jsondb.JsonDBTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The JsonDB engine: one JSON file per collection, rewritten whole on every write.
+ */
+@Component
+@ConditionalOnProperty(name = "regata-simulator.database.engine", havingValue = "jsondb", matchIfMissing = true)
+public class JsonDBDocumentStore implements DocumentStore {
+
+    private final JsonDBTemplate jsonDBTemplate;
+
+    public JsonDBDocumentStore(JsonDBTemplate jsonDBTemplate) {
+        this.jsonDBTemplate = jsonDBTemplate;
+    }
+
+    @Override
+    public <T> List<T> findAll(Class<T> type) {
+        return jsonDBTemplate.findAll(type);
+    }
+
+    @Override
+    public <T> T findById(Object id, Class<T> type) {
+        return jsonDBTemplate.findById(id, type);
+    }
+
+    @Override
+    public void insert(Object document) {
+        jsonDBTemplate.insert(document);
+    }
+
+    @Override
+    public <T> void insert(Collection<? extends T> batch, Class<T> type) {
+        jsonDBTemplate.insert(batch, type);
+    }
+
+    @Override
+    public <T> void save(Object document, Class<T> type) {
+        jsonDBTemplate.save(document, type);
+    }
+
+    @Override
+    public void upsert(Object document) {
+        jsonDBTemplate.upsert(document);
+    }
+
+    @Override
+    public <T> void upsert(Collection<? extends T> batch, Class<T> type) {
+        jsonDBTemplate.upsert(batch, type);
+    }
+
+    @Override
+    public <T> T remove(Object document, Class<T> type) {
+        return jsonDBTemplate.remove(document, type);
+    }
+
+    @Override
+    public <T> List<T> remove(Collection<? extends T> batch, Class<T> type) {
+        List<T> removed = jsonDBTemplate.remove(batch, type);
+        return removed == null ? List.of() : removed;
+    }
+
+    @Override
+    public boolean collectionExists(String collectionName) {
+        return jsonDBTemplate.collectionExists(collectionName);
+    }
+
+    @Override
+    public void createCollection(String collectionName) {
+        jsonDBTemplate.createCollection(collectionName);
+    }
+}
@@ -0,0 +1,381 @@
+package com.boatarde.regatasimulator.store;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsondb.annotation.Document;
+import io.jsondb.annotation.Id;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The log engine: each collection is a snapshot plus an append-only log of checksummed records under
+ * {@code regata-simulator.database.log.path}, so a write costs the size of the documents it changes instead of the
+ * whole collection. Writes wait for their records to be fsynced, sharing the fsync with concurrent writes, unless
+ * {@code sync-interval} is set, in which case the logs are fsynced in the background at that interval. Collections
+ * whose log outgrows their documents are compacted in the background every {@code compaction-interval}.
+ * <p>
+ * A collection without a snapshot or records is imported from the JsonDB file of the same name in
+ * {@code regata-simulator.database.path}, which is then left untouched.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "regata-simulator.database.engine", havingValue = "log")
+public class LogDocumentStore implements DocumentStore {
+
+    private final Path jsonDbPath;
+    private final Path directory;
+    private final boolean syncOnWrite;
+    private final long compactionMinBytes;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final Map<String, CollectionLog> collections = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Field> idFields = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+        .name("document-store")
+        .daemon()
+        .factory());
+    private final Timer syncTimer;
+    private final Timer compactionTimer;
+
+    public LogDocumentStore(@Value("${regata-simulator.database.path}") String jsonDbPath,
+                            @Value("${regata-simulator.database.log.path}") String logPath,
+                            @Value("${regata-simulator.database.log.sync-interval}") Duration syncInterval,
+                            @Value("${regata-simulator.database.log.compaction-interval}") Duration compactionInterval,
+                            @Value("${regata-simulator.database.log.compaction-min-bytes}") long compactionMinBytes,
+                            MeterRegistry meterRegistry) throws IOException {
+        this.jsonDbPath = Path.of(jsonDbPath);
+        this.directory = Files.createDirectories(Path.of(logPath));
+        this.syncOnWrite = syncInterval.isZero();
+        this.compactionMinBytes = compactionMinBytes;
+        this.syncTimer = Timer.builder("regata.store.log.sync")
+            .description("Time to fsync a collection log")
+            .register(meterRegistry);
+        this.compactionTimer = Timer.builder("regata.store.log.compaction")
+            .description("Time to fold a collection log into a new snapshot")
+            .register(meterRegistry);
+        Gauge.builder("regata.store.log.bytes", collections,
+                c -> c.values().stream().mapToLong(CollectionLog::logBytes).sum())
+            .description("Bytes in the collection logs waiting to be compacted")
+            .register(meterRegistry);
+        if (!syncOnWrite) {
+            maintenance.scheduleWithFixedDelay(this::syncAll, syncInterval.toMillis(), syncInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        }
+        maintenance.scheduleWithFixedDelay(this::compactAll, compactionInterval.toMillis(),
+            compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public <T> List<T> findAll(Class<T> type) {
+        List<T> documents = new ArrayList<>();
+        for (byte[] value : collection(type).values()) {
+            documents.add(read(value, type));
+        }
+        return documents;
+    }
+
+    @Override
+    public <T> T findById(Object id, Class<T> type) {
+        byte[] value = collection(type).get(String.valueOf(id));
+        return value == null ? null : read(value, type);
+    }
+
+    @Override
+    public void insert(Object document) {
+        put(collection(document.getClass()), List.of(document), false);
+    }
+
+    @Override
+    public <T> void insert(Collection<? extends T> batch, Class<T> type) {
+        put(collection(type), batch, false);
+    }
+
+    @Override
+    public <T> void save(Object document, Class<T> type) {
+        put(collection(type), List.of(document), true);
+    }
+
+    @Override
+    public void upsert(Object document) {
+        put(collection(document.getClass()), List.of(document), null);
+    }
+
+    @Override
+    public <T> void upsert(Collection<? extends T> batch, Class<T> type) {
+        put(collection(type), batch, null);
+    }
+
+    @Override
+    public <T> T remove(Object document, Class<T> type) {
+        List<T> removed = remove(List.of(type.cast(document)), type);
+        return removed.isEmpty() ? null : removed.getFirst();
+    }
+
+    @Override
+    public <T> List<T> remove(Collection<? extends T> batch, Class<T> type) {
+        CollectionLog collection = collection(type);
+        List<T> removed = new ArrayList<>();
+        long position;
+        // the collection lock keeps the documents read here from changing before their removal is appended
+        synchronized (collection) {
+            List<LogRecord> records = new ArrayList<>();
+            for (T document : batch) {
+                String key = key(document);
+                byte[] value = collection.get(key);
+                if (value != null) {
+                    removed.add(read(value, type));
+                    records.add(LogRecord.delete(key));
+                }
+            }
+            position = append(collection, records);
+        }
+        awaitSync(collection, position);
+        return removed;
+    }
+
+    @Override
+    public boolean collectionExists(String collectionName) {
+        return collections.containsKey(collectionName)
+            || Files.exists(directory.resolve(collectionName + ".log"))
+            || Files.exists(directory.resolve(collectionName + ".snapshot"))
+            || Files.exists(jsonDbPath.resolve(collectionName + ".json"));
+    }
+
+    @Override
+    public void createCollection(String collectionName) {
+        open(collectionName);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Document store maintenance still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        collections.values().forEach(collection -> {
+            try {
+                collection.close();
+            } catch (IOException e) {
+                log.error("Failed to close collection {}: {}", collection.name(), e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * @param exists whether each document must already exist ({@code true}) or not ({@code false}), {@code null} for
+     *               either.
+     */
+    private void put(CollectionLog collection, Collection<?> batch, Boolean exists) {
+        long position;
+        synchronized (collection) {
+            List<LogRecord> records = new ArrayList<>();
+            for (Object document : batch) {
+                String key = key(document);
+                if (exists != null && collection.contains(key) != exists) {
+                    throw new IllegalStateException((exists ? "Document %s not found in %s"
+                        : "Document %s already exists in %s").formatted(key, collection.name()));
+                }
+                records.add(LogRecord.put(key, bytes(document)));
+            }
+            position = append(collection, records);
+        }
+        awaitSync(collection, position);
+    }
+
+    private long append(CollectionLog collection, List<LogRecord> records) {
+        try {
+            return collection.append(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to collection " + collection.name(), e);
+        }
+    }
+
+    /**
+     * Waits for the fsync when writes are synchronous. Runs outside the collection lock, so the writers appending
+     * meanwhile share the next fsync.
+     */
+    private void awaitSync(CollectionLog collection, long position) {
+        if (syncOnWrite) {
+            sync(collection, position);
+        }
+    }
+
+    private void sync(CollectionLog collection, long position) {
+        long start = System.nanoTime();
+        try {
+            collection.sync(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync collection " + collection.name(), e);
+        }
+        syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void syncAll() {
+        collections.values().forEach(collection -> {
+            try {
+                sync(collection, collection.logBytes());
+            } catch (UncheckedIOException e) {
+                log.error(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Runs on the maintenance schedule, so it must not throw: an escaping exception would cancel the compactions.
+     */
+    void compactAll() {
+        try {
+            collections.values().stream()
+                .filter(collection -> collection.needsCompaction(compactionMinBytes))
+                .forEach(this::compact);
+        } catch (RuntimeException e) {
+            log.error("Failed to compact collections: {}", e.getMessage(), e);
+        }
+    }
+
+    private void compact(CollectionLog collection) {
+        long start = System.nanoTime();
+        try {
+            collection.compact();
+            compactionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to compact collection {}: {}", collection.name(), e.getMessage(), e);
+        }
+    }
+
+    private CollectionLog collection(Class<?> type) {
+        Document document = type.getAnnotation(Document.class);
+        if (document == null) {
+            throw new IllegalArgumentException(type.getName() + " is not a @Document");
+        }
+        return open(document.collection());
+    }
+
+    private CollectionLog open(String name) {
+        return collections.computeIfAbsent(name, n -> {
+            try {
+                if (isFresh(n)) {
+                    importJsonDb(n);
+                }
+                return new CollectionLog(directory, n);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open collection " + n, e);
+            }
+        });
+    }
+
+    /**
+     * Whether the collection has never held a document here: no snapshot and no records. An empty log is left behind
+     * when the store stops before its first write, so it does not count.
+     */
+    private boolean isFresh(String name) throws IOException {
+        Path log = directory.resolve(name + ".log");
+        return !Files.exists(directory.resolve(name + ".snapshot"))
+            && (!Files.exists(log) || Files.size(log) == 0);
+    }
+
+    /**
+     * Reads a JsonDB collection file, a schema version line followed by one document per line, into the snapshot of
+     * the collection. Nothing is written unless the whole file reads, so a failed import is retried on the next open.
+     */
+    private void importJsonDb(String name) throws IOException {
+        Path file = jsonDbPath.resolve(name + ".json");
+        if (!Files.exists(file)) {
+            return;
+        }
+        Map<String, LogRecord> records = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            int number = 1;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode id;
+                try {
+                    // every model names its @Id field "id"
+                    id = objectMapper.readTree(line).get("id");
+                } catch (IOException e) {
+                    throw new IOException("Malformed document at %s:%d".formatted(file, number), e);
+                }
+                if (id == null || id.isNull()) {
+                    log.warn("Skipping document without id in {}", file);
+                    continue;
+                }
+                records.put(id.asText(), LogRecord.put(id.asText(), line.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        CollectionLog.importSnapshot(directory, name, new ArrayList<>(records.values()));
+        log.info("Imported {} documents from {} into collection {}", records.size(), file, name);
+    }
+
+    private String key(Object document) {
+        Field field = idFields.computeIfAbsent(document.getClass(), LogDocumentStore::idField);
+        try {
+            return String.valueOf(Objects.requireNonNull(field.get(document), "Document without id"));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] bytes(Object document) {
+        try {
+            return objectMapper.writeValueAsBytes(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize " + document.getClass().getSimpleName(), e);
+        }
+    }
+
+    private <T> T read(byte[] value, Class<T> type) {
+        try {
+            return objectMapper.readValue(value, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + type.getSimpleName(), e);
+        }
+    }
+
+    private static Field idField(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        throw new IllegalArgumentException(type.getName() + " has no @Id field");
+    }
+}
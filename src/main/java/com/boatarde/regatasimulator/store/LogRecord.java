@@ -0,0 +1,81 @@
+package com.boatarde.regatasimulator.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * One operation of a collection log or snapshot: {@code op, key length, value length, CRC32C} followed by the key and
+ * the value. The checksum covers everything but itself, so a record torn by a crash is detected on replay.
+ */
+record LogRecord(byte op, String key, byte[] value) {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    private static final int HEADER_BYTES = 13;
+    private static final byte[] EMPTY = new byte[0];
+
+    static LogRecord put(String key, byte[] value) {
+        return new LogRecord(PUT, key, value);
+    }
+
+    static LogRecord delete(String key) {
+        return new LogRecord(DELETE, key, EMPTY);
+    }
+
+    int size() {
+        return HEADER_BYTES + key.getBytes(StandardCharsets.UTF_8).length + value.length;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int start = buffer.position();
+        buffer.put(op).putInt(keyBytes.length).putInt(value.length).putInt(0).put(keyBytes).put(value);
+        buffer.putInt(start + 9, checksum(buffer, start, buffer.position()));
+    }
+
+    static ByteBuffer encode(Iterable<LogRecord> records, int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        records.forEach(record -> record.writeTo(buffer));
+        return buffer.flip();
+    }
+
+    /**
+     * @return the next record, or {@code null} at the end of the stream or at a truncated or corrupt record.
+     */
+    static LogRecord read(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(HEADER_BYTES);
+        if (header.length < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        byte op = headerBuffer.get();
+        int keyLength = headerBuffer.getInt();
+        int valueLength = headerBuffer.getInt();
+        int checksum = headerBuffer.getInt();
+        if ((op != PUT && op != DELETE) || keyLength < 0 || valueLength < 0
+            || (long) keyLength + valueLength > Integer.MAX_VALUE - HEADER_BYTES) {
+            return null;
+        }
+        byte[] body = in.readNBytes(keyLength + valueLength);
+        if (body.length < keyLength + valueLength) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + body.length).put(header).put(body);
+        record.putInt(9, 0);
+        if (checksum(record, 0, record.position()) != checksum) {
+            return null;
+        }
+        byte[] value = new byte[valueLength];
+        System.arraycopy(body, keyLength, value, 0, valueLength);
+        return new LogRecord(op, new String(body, 0, keyLength, StandardCharsets.UTF_8), value);
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(to).position(from));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,41 @@
+package com.boatarde.regatasimulator.util;
+
+import lombok.experimental.UtilityClass;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+@UtilityClass
+public class ImageUtils {
+
+    /**
+     * Reads the width and height of an image from its header, without decoding the pixels.
+     *
+     * @param file image file.
+     * @return the image dimensions.
+     * @throws IOException if the file cannot be read or has an unsupported format.
+     */
+    public static Dimension readDimensions(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                throw new IOException("Cannot open image: " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
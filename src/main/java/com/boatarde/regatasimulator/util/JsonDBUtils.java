@@ -7,6 +7,7 @@ import com.boatarde.regatasimulator.models.Meme;
 import com.boatarde.regatasimulator.models.Source;
 import com.boatarde.regatasimulator.models.Template;
 import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.selection.WeightedSampler;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import org.telegram.telegrambots.meta.api.objects.Message;
@@ -17,10 +18,13 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 @Slf4j
 @UtilityClass
@@ -68,38 +72,20 @@ public class JsonDBUtils {
         return filteredTemplates.get(random.nextInt(filteredTemplates.size()));
     }
 
+    /**
+     * Draws {@code amount} distinct entities, each with a chance proportional to its weight. The list is left as is.
+     */
     private static List<? extends CommonEntity> selectWithWeight(List<? extends CommonEntity> entities, int amount) {
         if (entities.size() < amount) {
             throw new RuntimeException(
                 "Not enough entities to select from. Amount requested: %d, entities available: %d".formatted(amount,
                     entities.size()));
         }
-        List<CommonEntity> selectedEntities = new ArrayList<>(); // List to store selected entities
-        Random random = new Random(); // Random object for generating random numbers
-
-        for (int j = 0; j < amount && !entities.isEmpty(); j++) {
-            int[] cumulativeWeights = new int[entities.size()]; // Array to store cumulative weights
-            cumulativeWeights[0] =
-                entities.getFirst().getWeight(); // Initialize the first element with the first source's weight
-            for (int i = 1; i < entities.size(); i++) {
-                cumulativeWeights[i] =
-                    cumulativeWeights[i - 1] + entities.get(i).getWeight(); // Calculate cumulative weights
-            }
-
-            int totalWeight = cumulativeWeights[cumulativeWeights.length - 1]; // Total weight of all entities
-            int randomIndex = random.nextInt(totalWeight); // Generate a random number within the total weight
-
-            int selectedIndex = IntStream.range(0, cumulativeWeights.length)
-                .filter(i -> cumulativeWeights[i] > randomIndex)
-                .findFirst()
-                .orElse(
-                    cumulativeWeights.length - 1); // Find the index of the selected source based on the random number
-
-            selectedEntities.add(entities.get(selectedIndex)); // Add the selected source to the list
-            entities.remove(selectedIndex); // Remove the selected source from the original list
-        }
-
-        return selectedEntities; // Return the list of selected entities
+        Map<UUID, CommonEntity> byId = entities.stream()
+            .collect(Collectors.toMap(CommonEntity::getId, Function.identity(), (first, second) -> first));
+        return WeightedSampler.of(entities).sample(amount, ThreadLocalRandom.current(), null).stream()
+            .map(byId::get)
+            .toList();
     }
 
     public static List<TemplateArea> parseTemplateCsv(String csv) throws IOException {
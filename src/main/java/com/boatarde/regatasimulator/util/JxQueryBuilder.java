@@ -1,25 +1,44 @@
 package com.boatarde.regatasimulator.util;
 
 import com.boatarde.regatasimulator.models.Status;
+import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Builds a JXPath query for {@link io.jsondb.JsonDBTemplate#find}, and keeps the same conditions typed so the
+ * catalogues can answer it from their indexes. Each group is an OR of its values and the groups are ANDed.
+ */
 public class JxQueryBuilder {
     private final List<String> conditions = new ArrayList<>();
+    @Getter
+    private final List<Set<Status>> statusGroups = new ArrayList<>();
+    @Getter
+    private final List<Set<Long>> userIdGroups = new ArrayList<>();
+    /**
+     * Substrings of the lower-cased description.
+     */
+    @Getter
+    private final List<List<String>> descriptionGroups = new ArrayList<>();
 
     public JxQueryBuilder withStatus(Status... statuses) {
         if (statuses != null && statuses.length > 0) {
             List<String> statusConditions = new ArrayList<>();
+            Set<Status> group = new LinkedHashSet<>();
             for (Status status : statuses) {
                 if (status != null) {
                     statusConditions.add("status='" + status + "'");
+                    group.add(status);
                 }
             }
             // Only add the condition group if there is at least one valid condition.
             if (!statusConditions.isEmpty()) {
                 // Enclose OR conditions in parentheses to ensure proper evaluation.
                 conditions.add("(" + String.join(" or ", statusConditions) + ")");
+                statusGroups.add(group);
             }
         }
         return this;
@@ -28,13 +47,16 @@ public class JxQueryBuilder {
     public JxQueryBuilder withUserId(Long... userIds) {
         if (userIds != null && userIds.length > 0) {
             List<String> userConditions = new ArrayList<>();
+            Set<Long> group = new LinkedHashSet<>();
             for (Long userId : userIds) {
                 if (userId != null) {
                     userConditions.add("message/from/id=" + userId);
+                    group.add(userId);
                 }
             }
             if (!userConditions.isEmpty()) {
                 conditions.add("(" + String.join(" or ", userConditions) + ")");
+                userIdGroups.add(group);
             }
         }
         return this;
@@ -43,15 +65,18 @@ public class JxQueryBuilder {
     public JxQueryBuilder withDescription(String... descriptions) {
         if (descriptions != null && descriptions.length > 0) {
             List<String> descConditions = new ArrayList<>();
+            List<String> group = new ArrayList<>();
             for (String description : descriptions) {
                 if (description != null && !description.isBlank()) {
                     descConditions.add(
                         "contains(translate(description, 'ABCDEFGHIJKLMNOPQRSTUVWXYZ', 'abcdefghijklmnopqrstuvwxyz'), '" +
                             description + "')");
+                    group.add(description);
                 }
             }
             if (!descConditions.isEmpty()) {
                 conditions.add("(" + String.join(" or ", descConditions) + ")");
+                descriptionGroups.add(group);
             }
         }
         return this;
@@ -0,0 +1,93 @@
+package com.boatarde.regatasimulator.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Delivers progress updates without blocking the reporting thread. Updates that arrive while one is pending are
+ * coalesced into the latest value, at most one update is delivered per interval, and {@link #close()} delivers the
+ * final value if it has not been delivered yet.
+ */
+@Slf4j
+public class ProgressReporter implements AutoCloseable {
+
+    private final ScheduledExecutorService scheduler;
+    private final long intervalNanos;
+    private final IntConsumer sender;
+
+    private final Object stateLock = new Object();
+    // serialises deliveries, so the final value can never overtake an older one
+    private final Object sendLock = new Object();
+    private int latest = -1;
+    private int delivered = -1;
+    private long lastDeliveryNanos;
+    private ScheduledFuture<?> pending;
+    private boolean closed;
+
+    public ProgressReporter(ScheduledExecutorService scheduler, long intervalMillis, IntConsumer sender) {
+        this.scheduler = scheduler;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.sender = sender;
+    }
+
+    public void report(int progress) {
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+            latest = progress;
+            if (pending == null) {
+                long delay = delivered < 0 ? 0 : lastDeliveryNanos + intervalNanos - System.nanoTime();
+                pending = scheduler.schedule(this::deliverScheduled, Math.max(0, delay), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+        deliverLatest();
+    }
+
+    private void deliverScheduled() {
+        synchronized (stateLock) {
+            pending = null;
+            if (closed) {
+                return;
+            }
+        }
+        deliverLatest();
+    }
+
+    private void deliverLatest() {
+        synchronized (sendLock) {
+            int value;
+            synchronized (stateLock) {
+                if (latest < 0 || latest == delivered) {
+                    return;
+                }
+                value = latest;
+                delivered = value;
+                lastDeliveryNanos = System.nanoTime();
+            }
+            try {
+                sender.accept(value);
+            } catch (RuntimeException e) {
+                log.error("Failed to deliver progress {}: {}", value, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -11,13 +11,16 @@ const api = {
         return response.json();
     },
 
-    async getItems(type, page, perPage, status = '') {
+    async getItems(type, page, perPage, status = '', cursor = null) {
         const url = new URL(`/api/${type}`, window.location.origin);
         url.searchParams.append('page', page);
         url.searchParams.append('perPage', perPage);
         if (status) {
             url.searchParams.append('status', status);
         }
+        if (cursor) {
+            url.searchParams.append('cursor', cursor);
+        }
         const response = await fetch(url);
         if (!response.ok) {
             throw new Error('Failed to fetch items');
@@ -4,6 +4,7 @@ function galleryApp() {
         sourcesItems: [],
         templatesItems: [],
         currentPage: 1,
+        nextCursor: null,
         hasMore: true,
         loading: false,
         error: null,
@@ -48,19 +49,22 @@ function galleryApp() {
             this.error = null;
             try {
                 let data;
+                // pages after the first continue from where the previous one ended
+                const cursor = page === 1 ? null : this.nextCursor;
                 if (type === 'sources') {
                     // Prepare criteria payload
                     const payload = {
                         query: this.searchCriteria.query || null,
                         status: this.searchCriteria.status || null,
                         page: page,
-                        perPage: this.ITEMS_PER_PAGE
+                        perPage: this.ITEMS_PER_PAGE,
+                        cursor: cursor
                     };
                     // Perform POST search
                     data = await api.searchSourcesPOST(payload);
                 } else {
                     // For templates, we might still use the old endpoint as an example
-                    data = await api.getItems(type, page, this.ITEMS_PER_PAGE, this.searchCriteria.status);
+                    data = await api.getItems(type, page, this.ITEMS_PER_PAGE, this.searchCriteria.status, cursor);
                 }
 
                 if (page === 1) {
@@ -69,7 +73,8 @@ function galleryApp() {
                     this[`${type}Items`] = [...this[`${type}Items`], ...data.items];
                 }
 
-                this.hasMore = (data.items.length === this.ITEMS_PER_PAGE && this[`${type}Items`].length < data.totalItems);
+                this.nextCursor = data.nextCursor;
+                this.hasMore = data.nextCursor != null;
                 this.currentPage = page;
 
             } catch (err) {
@@ -0,0 +1,171 @@
+package com.boatarde.regatasimulator.catalog;
+
+import com.boatarde.regatasimulator.models.GalleryResponse;
+import com.boatarde.regatasimulator.models.Source;
+import com.boatarde.regatasimulator.models.Status;
+import com.boatarde.regatasimulator.service.WriteBehindService;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import com.boatarde.regatasimulator.util.JsonDBUtils;
+import com.boatarde.regatasimulator.util.JxQueryBuilder;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SourceCatalogTest {
+
+    @Test
+    void testFindUsesCurrentIndexes() {
+        Source first = source(Status.APPROVED, 1L, "Gato de Botas", 300);
+        Source second = source(Status.REVIEW, 1L, "Cachorro caramelo", 200);
+        Source third = source(Status.APPROVED, 2L, "gato preto", 100);
+        DocumentStore documentStore = mock(DocumentStore.class);
+        when(documentStore.findAll(Source.class)).thenReturn(new ArrayList<>(List.of(first, second, third)));
+        SourceCatalog catalog = new SourceCatalog(documentStore, mock(WriteBehindService.class));
+
+        assertEquals(ids(first, third), ids(catalog.find(JsonDBUtils.jxQuery().withStatus(Status.APPROVED))));
+        assertEquals(ids(first), ids(catalog.find(JsonDBUtils.jxQuery()
+            .withStatus(Status.APPROVED, Status.REVIEW)
+            .withUserId(1L)
+            .withDescription("gato"))));
+        assertEquals(ids(third), ids(catalog.findByDescription("GATO PRETO")));
+
+        second.setStatus(Status.APPROVED);
+        catalog.save(second);
+        verify(documentStore).save(second, Source.class);
+        assertEquals(ids(first, second), ids(catalog.find(JsonDBUtils.jxQuery()
+            .withStatus(Status.APPROVED)
+            .withUserId(1L))));
+
+        catalog.remove(first);
+        assertEquals(ids(second, third), ids(catalog.find(JsonDBUtils.jxQuery().withStatus(Status.APPROVED))));
+        assertEquals(2, catalog.count());
+    }
+
+    @Test
+    void testCursorPagesFollowGalleryOrder() {
+        Random random = new Random(7);
+        List<Source> sources = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            Status status = random.nextInt(3) == 0 ? Status.REVIEW : Status.APPROVED;
+            // few distinct dates, so ties are broken by id
+            sources.add(source(status, random.nextInt(3), "fonte " + i, random.nextInt(20)));
+        }
+        DocumentStore documentStore = mock(DocumentStore.class);
+        when(documentStore.findAll(Source.class)).thenReturn(new ArrayList<>(sources));
+        SourceCatalog catalog = new SourceCatalog(documentStore, mock(WriteBehindService.class));
+        JxQueryBuilder query = JsonDBUtils.jxQuery().withStatus(Status.APPROVED);
+        List<Source> expected = sources.stream()
+            .filter(source -> source.getStatus() == Status.APPROVED)
+            .sorted(Comparator.comparing(source -> PageCursor.of(source, source.getDescription())))
+            .toList();
+
+        List<Source> paged = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            CatalogPage<Source> page = catalog.page(query, cursor, 0, 10);
+            assertEquals(expected.size(), page.total());
+            paged.addAll(page.items());
+            cursor = page.next();
+            if (cursor != null) {
+                assertEquals(cursor, PageCursor.decode(cursor.encode()));
+            }
+        } while (cursor != null);
+        assertEquals(ids(expected), ids(paged));
+
+        assertEquals(ids(expected.subList(20, 30)), ids(catalog.gallery(query, 3, 10, null).getItems()));
+        assertNull(catalog.gallery(query, 1, expected.size(), null).getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> catalog.gallery(query, 1, 10, "nope"));
+    }
+
+    @Test
+    void testSearchOrdersTiesByDescriptionAndCountsMatches() {
+        Source older = source(Status.APPROVED, 1L, "Gato velho", 100);
+        Source second = source(Status.APPROVED, 1L, "gato B", 200);
+        Source first = source(Status.APPROVED, 1L, "Gato a", 200);
+        Source other = source(Status.APPROVED, 1L, "Cachorro", 200);
+        Source review = source(Status.REVIEW, 1L, "gato em revisão", 300);
+        Source stranger = source(Status.APPROVED, 2L, "Cachorro de rua", 50);
+        DocumentStore documentStore = mock(DocumentStore.class);
+        when(documentStore.findAll(Source.class))
+            .thenReturn(new ArrayList<>(List.of(older, second, first, other, review, stranger)));
+        SourceCatalog catalog = new SourceCatalog(documentStore, mock(WriteBehindService.class));
+        JxQueryBuilder query = JsonDBUtils.jxQuery().withStatus(Status.APPROVED).withDescription("gato");
+
+        GalleryResponse<Source> firstPage = catalog.gallery(query, 1, 2, null);
+        assertEquals(ids(first, second), ids(firstPage.getItems()));
+        assertEquals(3, firstPage.getTotalItems());
+        GalleryResponse<Source> lastPage = catalog.gallery(query, 1, 2, firstPage.getNextCursor());
+        assertEquals(ids(older), ids(lastPage.getItems()));
+        assertEquals(3, lastPage.getTotalItems());
+        // neither the status nor the author bucket holds only the matches
+        assertEquals(4, catalog.gallery(JsonDBUtils.jxQuery().withStatus(Status.APPROVED).withUserId(1L), 1, 1, null)
+            .getTotalItems());
+    }
+
+    @Test
+    void testChangesReachTheCatalogueOnlyOnceWritten() {
+        Source source = source(Status.REVIEW, 1L, "Gato de Botas", 300);
+        DocumentStore documentStore = mock(DocumentStore.class);
+        when(documentStore.findAll(Source.class)).thenReturn(new ArrayList<>(List.of(source)));
+        SourceCatalog catalog = new SourceCatalog(documentStore, mock(WriteBehindService.class));
+
+        Source read = catalog.findById(source.getId()).orElseThrow();
+        read.setStatus(Status.APPROVED);
+        assertEquals(Status.REVIEW, catalog.findById(source.getId()).orElseThrow().getStatus());
+
+        doThrow(new IllegalStateException("disk full")).when(documentStore).save(any(), eq(Source.class));
+        assertThrows(IllegalStateException.class, () -> catalog.save(read));
+        assertThrows(IllegalStateException.class,
+            () -> catalog.save(source.getId(), current -> current.setWeight(5)));
+        assertEquals(Status.REVIEW, catalog.findById(source.getId()).orElseThrow().getStatus());
+        assertEquals(0, catalog.findById(source.getId()).orElseThrow().getWeight());
+
+        doNothing().when(documentStore).save(any(), eq(Source.class));
+        Source updated = catalog.update(source.getId(), current -> current.setWeight(4)).orElseThrow();
+        Source approved = catalog.save(source.getId(), current -> current.setStatus(Status.APPROVED)).orElseThrow();
+        assertEquals(4, updated.getWeight());
+        assertEquals(4, approved.getWeight());
+        assertEquals(Status.APPROVED, catalog.findById(source.getId()).orElseThrow().getStatus());
+        assertTrue(catalog.save(UUID.randomUUID(), current -> current.setWeight(1)).isEmpty());
+    }
+
+    private static List<UUID> ids(Source... sources) {
+        return ids(List.of(sources));
+    }
+
+    private static List<UUID> ids(List<Source> sources) {
+        return sources.stream().map(Source::getId).toList();
+    }
+
+    private static Source source(Status status, long userId, String description, int date) {
+        User user = new User();
+        user.setId(userId);
+        Message message = new Message();
+        message.setFrom(user);
+        message.setDate(date);
+        Source source = new Source();
+        source.setId(UUID.randomUUID());
+        source.setStatus(status);
+        source.setMessage(message);
+        source.setDescription(description);
+        return source;
+    }
+}
@@ -0,0 +1,138 @@
+package com.boatarde.regatasimulator.imageops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PixelKernelsTest {
+
+    // odd sizes leave tails for the scalar loops
+    private static final int LENGTH = 1003;
+
+    private final PixelKernels scalar = new ScalarPixelKernels();
+    private final PixelKernels vector = new VectorPixelKernels();
+    private final Random random = new Random(42);
+
+    @Test
+    void testVectorKernelsMatchScalarKernels() {
+        int[] straight = randomPixels();
+        int[] premultiplied = new int[LENGTH];
+        scalar.premultiply(straight, premultiplied, LENGTH);
+        int[] vectorPremultiplied = new int[LENGTH];
+        vector.premultiply(straight, vectorPremultiplied, LENGTH);
+        assertArrayEquals(premultiplied, vectorPremultiplied);
+
+        int[] unpremultiplied = new int[LENGTH];
+        scalar.unpremultiply(premultiplied, unpremultiplied, LENGTH);
+        int[] vectorUnpremultiplied = new int[LENGTH];
+        vector.unpremultiply(premultiplied, vectorUnpremultiplied, LENGTH);
+        assertArrayEquals(unpremultiplied, vectorUnpremultiplied);
+
+        int[] source = premultiplied(randomPixels());
+        int[] destination = premultiplied(randomPixels());
+        int[] vectorDestination = destination.clone();
+        scalar.compositeOver(source, 1, destination, 2, LENGTH - 2);
+        vector.compositeOver(source, 1, vectorDestination, 2, LENGTH - 2);
+        assertArrayEquals(destination, vectorDestination);
+
+        byte[] mask = new byte[LENGTH];
+        random.nextBytes(mask);
+        int[] masked = premultiplied(randomPixels());
+        int[] vectorMasked = masked.clone();
+        scalar.multiplyMask(masked, 3, mask, 5, LENGTH - 5);
+        vector.multiplyMask(vectorMasked, 3, mask, 5, LENGTH - 5);
+        assertArrayEquals(masked, vectorMasked);
+
+        byte[] bgr = new byte[LENGTH * 3];
+        random.nextBytes(bgr);
+        int[] argb = new int[LENGTH];
+        scalar.bgrToArgb(bgr, argb, LENGTH);
+        int[] vectorArgb = new int[LENGTH];
+        vector.bgrToArgb(bgr, vectorArgb, LENGTH);
+        assertArrayEquals(argb, vectorArgb);
+
+        byte[] flattened = new byte[LENGTH * 3];
+        scalar.argbToBgr(source, flattened, LENGTH, 0x336699);
+        byte[] vectorFlattened = new byte[LENGTH * 3];
+        vector.argbToBgr(source, vectorFlattened, LENGTH, 0x336699);
+        assertArrayEquals(flattened, vectorFlattened);
+    }
+
+    @Test
+    void testVectorResampleMatchesScalarResample() {
+        int width = 97;
+        int height = 61;
+        int[] image = premultiplied(randomPixels(width * height));
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            for (int[] size : new int[][] {{29, 17}, {97, 61}, {203, 150}, {40, 90}}) {
+                int[] expected = new int[size[0] * size[1]];
+                scalar.resample(image, width, height, expected, size[0], size[1], filter);
+                int[] actual = new int[size[0] * size[1]];
+                vector.resample(image, width, height, actual, size[0], size[1], filter);
+                assertArrayEquals(expected, actual, filter + " to " + size[0] + "x" + size[1]);
+            }
+        }
+    }
+
+    @Test
+    void testResampleToSameSizeKeepsPixels() {
+        int[] image = premultiplied(randomPixels(64 * 48));
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            int[] resampled = new int[image.length];
+            vector.resample(image, 64, 48, resampled, 64, 48, filter);
+            assertArrayEquals(image, resampled);
+        }
+    }
+
+    @Test
+    void testResampleKeepsFlatColour() {
+        int colour = ScalarPixelKernels.premultiply(0x80C04020);
+        int[] image = new int[50 * 50];
+        Arrays.fill(image, colour);
+        int[] resampled = new int[13 * 77];
+        vector.resample(image, 50, 50, resampled, 13, 77, ResampleFilter.BICUBIC);
+        for (int pixel : resampled) {
+            assertEquals(colour, pixel);
+        }
+    }
+
+    @Test
+    void testPixelArithmetic() {
+        assertEquals(0x80602010, ScalarPixelKernels.premultiply(0x80C04020));
+        assertEquals(0x80BF4020, ScalarPixelKernels.unpremultiply(0x80602010));
+        assertEquals(0, ScalarPixelKernels.unpremultiply(0x00000000));
+        // opaque source replaces, transparent source keeps
+        assertEquals(0xFF112233, ScalarPixelKernels.over(0xFF112233, 0xFF445566));
+        assertEquals(0xFF445566, ScalarPixelKernels.over(0x00000000, 0xFF445566));
+        // half black over white
+        assertEquals(0xFF7F7F7F, ScalarPixelKernels.over(0x80000000, 0xFFFFFFFF));
+        assertEquals(0x40302010, ScalarPixelKernels.scale(0x80604020, 128));
+    }
+
+    private int[] randomPixels() {
+        return randomPixels(LENGTH);
+    }
+
+    private int[] randomPixels(int length) {
+        int[] pixels = new int[length];
+        for (int i = 0; i < length; i++) {
+            // include fully transparent and opaque pixels, the edge cases of every kernel
+            int alpha = switch (random.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> 255;
+                default -> random.nextInt(256);
+            };
+            pixels[i] = (alpha << 24) | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    private int[] premultiplied(int[] pixels) {
+        scalar.premultiply(pixels, pixels, pixels.length);
+        return pixels;
+    }
+}
@@ -0,0 +1,56 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.AreaCorner;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Java2DMemeRendererTest {
+
+    private final Java2DMemeRenderer renderer = new Java2DMemeRenderer(null, null);
+
+    @Test
+    void testAreaLayerIsTransparentOutsideTheMask() {
+        TemplateArea area = TemplateArea.builder()
+            .topLeft(new AreaCorner(30, 20))
+            .topRight(new AreaCorner(60, 20))
+            .bottomRight(new AreaCorner(70, 60))
+            .bottomLeft(new AreaCorner(20, 60))
+            .build();
+        AreaBounds bounds = TemplateGeometry.bounds(area, 100, 100);
+        area.setBounds(bounds);
+        area.setPerspective(TemplateGeometry.perspective(area, bounds));
+        BufferedImage source = new BufferedImage(bounds.getWidth(), bounds.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                source.setRGB(x, y, 0xFFFF0000);
+            }
+        }
+
+        BufferedImage mask = TemplateGeometry.mask(area, bounds);
+        BufferedImage layer = renderer.buildAreaLayer(source, area, bounds, false);
+        BufferedImage precompiledLayer = renderer.buildAreaLayer(source, area, bounds, true);
+        int outside = 0;
+        for (int y = 0; y < bounds.getHeight(); y++) {
+            for (int x = 0; x < bounds.getWidth(); x++) {
+                int alpha = layer.getRGB(x, y) >>> 24;
+                assertEquals(mask.getRaster().getSample(x, y, 0), alpha, "alpha at " + x + "," + y);
+                assertEquals(layer.getRGB(x, y), precompiledLayer.getRGB(x, y));
+                if (alpha == 0) {
+                    outside++;
+                } else if (alpha == 0xFF) {
+                    assertEquals(0xFF0000, layer.getRGB(x, y) & 0xFFFFFF, "colour at " + x + "," + y);
+                }
+            }
+        }
+        // the trapezoid leaves both top corners of its bounds uncovered
+        assertTrue(outside > 0);
+        assertEquals(0, layer.getRGB(0, 0) >>> 24);
+        assertEquals(0, layer.getRGB(bounds.getWidth() - 1, 0) >>> 24);
+    }
+}
@@ -0,0 +1,52 @@
+package com.boatarde.regatasimulator.render;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PerspectiveTransformTest {
+
+    private static final double[] UNIT_SQUARE = {0, 0, 1, 0, 1, 1, 0, 1};
+    private static final double[] QUAD = {10, 20, 50, 25, 45, 70, 5, 60};
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void testQuadToQuadMapsUnitSquareOntoQuad() {
+        PerspectiveTransform transform = PerspectiveTransform.quadToQuad(UNIT_SQUARE, QUAD);
+        assertArrayEquals(QUAD, transformAll(transform, UNIT_SQUARE), EPSILON);
+    }
+
+    @Test
+    void testQuadToQuadOfRectanglesIsAffine() {
+        PerspectiveTransform transform = PerspectiveTransform.quadToQuad(UNIT_SQUARE,
+            new double[] {2, 3, 6, 3, 6, 11, 2, 11});
+        assertArrayEquals(new double[] {4, 0, 2, 0, 8, 3, 0, 0}, transform.getCoefficients(), EPSILON);
+    }
+
+    @Test
+    void testInverseRoundTripsCorners() {
+        double[] coefficients = PerspectiveTransform.quadToQuad(UNIT_SQUARE, QUAD).getCoefficients();
+        PerspectiveTransform inverse = PerspectiveTransform.of(coefficients).inverse();
+        assertArrayEquals(UNIT_SQUARE, transformAll(inverse, QUAD), EPSILON);
+        assertArrayEquals(coefficients, inverse.inverse().getCoefficients(), EPSILON);
+    }
+
+    @Test
+    void testRejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> PerspectiveTransform.of(new double[6]));
+        assertThrows(IllegalArgumentException.class,
+            () -> PerspectiveTransform.quadToQuad(UNIT_SQUARE, new double[] {0, 0, 1, 1, 2, 2, 3, 3}));
+    }
+
+    private static double[] transformAll(PerspectiveTransform transform, double[] points) {
+        double[] mapped = new double[points.length];
+        double[] point = new double[2];
+        for (int i = 0; i < points.length; i += 2) {
+            transform.transform(points[i], points[i + 1], point);
+            mapped[i] = point[0];
+            mapped[i + 1] = point[1];
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,89 @@
+package com.boatarde.regatasimulator.render;
+
+import com.boatarde.regatasimulator.models.AreaBounds;
+import com.boatarde.regatasimulator.models.AreaCorner;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenderLayoutTest {
+
+    @Test
+    void testUnscaledLayoutUsesPrecompiledBounds() {
+        Template template = precompiledTemplate();
+        RenderLayout layout = RenderLayout.of(template, 1000, 600, 0);
+
+        assertFalse(layout.isScaled());
+        assertTrue(layout.isPrecompiled());
+        assertEquals(1000, layout.getWidth());
+        assertEquals(600, layout.getHeight());
+        TemplateArea area = template.getAreas().getFirst();
+        assertSame(area.getBounds(), layout.getBounds(area));
+    }
+
+    @Test
+    void testScaledLayoutScalesCanvasAreasAndBounds() {
+        Template template = precompiledTemplate();
+        RenderLayout layout = RenderLayout.of(template, 1000, 600, 500);
+
+        assertTrue(layout.isScaled());
+        assertFalse(layout.isPrecompiled());
+        assertEquals(0.5, layout.getScale());
+        assertEquals(500, layout.getWidth());
+        assertEquals(300, layout.getHeight());
+        for (TemplateArea area : layout.getAreas()) {
+            TemplateArea original = template.getAreas().get(area.getIndex());
+            assertEquals(original.getTopRight().getX() / 2, area.getTopRight().getX());
+            assertEquals(original.getBottomLeft().getY() / 2, area.getBottomLeft().getY());
+            // the bounds of a scaled area are those of its scaled corners, clipped to the scaled canvas
+            AreaBounds bounds = layout.getBounds(area);
+            assertEquals(TemplateGeometry.bounds(area, layout.getWidth(), layout.getHeight()), bounds);
+            assertTrue(bounds.getX() + bounds.getWidth() <= layout.getWidth());
+            assertTrue(bounds.getY() + bounds.getHeight() <= layout.getHeight());
+            AreaBounds originalBounds = original.getBounds();
+            assertEquals(originalBounds.getX() / 2, bounds.getX(), 1);
+            assertEquals(originalBounds.getY() / 2, bounds.getY(), 1);
+            assertEquals(originalBounds.getWidth() / 2, bounds.getWidth(), 1);
+            assertEquals(originalBounds.getHeight() / 2, bounds.getHeight(), 1);
+        }
+    }
+
+    private static Template precompiledTemplate() {
+        List<TemplateArea> areas = List.of(
+            area(0, new AreaCorner(100, 50), new AreaCorner(400, 80), new AreaCorner(380, 300),
+                new AreaCorner(120, 280)),
+            // reaches past the right and bottom edges, so its bounds are clipped
+            area(1, new AreaCorner(700, 300), new AreaCorner(1100, 300), new AreaCorner(1100, 700),
+                new AreaCorner(700, 700)));
+        areas.forEach(area -> {
+            AreaBounds bounds = TemplateGeometry.bounds(area, 1000, 600);
+            area.setBounds(bounds);
+            area.setPerspective(TemplateGeometry.perspective(area, bounds));
+        });
+        return Template.builder()
+            .areas(areas)
+            .width(1000)
+            .height(600)
+            .assetsVersion(TemplateGeometry.ASSETS_VERSION)
+            .build();
+    }
+
+    private static TemplateArea area(int index, AreaCorner topLeft, AreaCorner topRight, AreaCorner bottomRight,
+                                     AreaCorner bottomLeft) {
+        return TemplateArea.builder()
+            .index(index)
+            .source(index)
+            .topLeft(topLeft)
+            .topRight(topRight)
+            .bottomRight(bottomRight)
+            .bottomLeft(bottomLeft)
+            .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.boatarde.regatasimulator.render;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenderWorkspaceManagerTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testCleanUpOnlyRemovesRenderWorkspaces() throws IOException {
+        Path stale = Files.createDirectories(root.resolve("render-123"));
+        Files.writeString(stale.resolve("final_output.png"), "png");
+        Path unrelatedDirectory = Files.createDirectories(root.resolve("other-app"));
+        Files.writeString(unrelatedDirectory.resolve("state"), "keep");
+        Path unrelatedFile = Files.writeString(root.resolve("render-notes.txt"), "keep");
+
+        new RenderWorkspaceManager(root.toString(), 1 << 20, new SimpleMeterRegistry()).cleanUp();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(unrelatedDirectory.resolve("state")));
+        assertTrue(Files.exists(unrelatedFile));
+    }
+}
@@ -0,0 +1,84 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import com.boatarde.regatasimulator.models.AreaCorner;
+import com.boatarde.regatasimulator.models.Template;
+import com.boatarde.regatasimulator.models.TemplateArea;
+import com.boatarde.regatasimulator.render.LayerCache;
+import com.boatarde.regatasimulator.render.RenderRequest;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
+import com.boatarde.regatasimulator.render.RenderWorkspaceManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FusedMagickMemeRendererTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testRegistersAreReleasedAfterTheLastComposite() throws Exception {
+        Path templateFile = Files.createDirectories(root.resolve("template")).resolve("template.png");
+        ImageIO.write(new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB), "png", templateFile.toFile());
+        Path sourceFile = root.resolve("source.png");
+        ImageIO.write(new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB), "png", sourceFile.toFile());
+        Template template = Template.builder()
+            .areas(List.of(area(1, 10), area(2, 50)))
+            .build();
+        List<MagickCommand> commands = new ArrayList<>();
+        FusedMagickMemeRenderer renderer = new FusedMagickMemeRenderer(command -> {
+            commands.add(command);
+            return "";
+        }, new LayerCache(root.resolve("cache").toString(), 0, new SimpleMeterRegistry()));
+
+        try (RenderWorkspace workspace = new RenderWorkspaceManager(root.resolve("workspaces").toString(),
+            Long.MAX_VALUE, new SimpleMeterRegistry()).open()) {
+            renderer.render(RenderRequest.builder()
+                .template(template)
+                .templateFile(templateFile)
+                .sourceFiles(List.of(sourceFile))
+                .workspace(workspace)
+                .build());
+        }
+
+        assertEquals(1, commands.size());
+        List<String> arguments = commands.getFirst().getArguments();
+        Set<String> written = new TreeSet<>();
+        Set<String> released = new TreeSet<>();
+        int lastComposite = arguments.lastIndexOf("-composite");
+        for (int i = 1; i < arguments.size(); i++) {
+            if (arguments.get(i - 1).equals("-write") && arguments.get(i).startsWith("mpr:")) {
+                if (i > lastComposite) {
+                    assertEquals("xc:none", arguments.get(i - 2));
+                    released.add(arguments.get(i));
+                } else {
+                    written.add(arguments.get(i));
+                }
+            }
+        }
+        assertEquals(Set.of("mpr:source_1", "mpr:area_1", "mpr:area_2"), written);
+        assertEquals(written, released);
+    }
+
+    private static TemplateArea area(int index, int offset) {
+        return TemplateArea.builder()
+            .index(index)
+            .source(1)
+            .topLeft(new AreaCorner(offset, offset))
+            .topRight(new AreaCorner(offset + 30, offset))
+            .bottomRight(new AreaCorner(offset + 30, offset + 30))
+            .bottomLeft(new AreaCorner(offset, offset + 30))
+            .build();
+    }
+}
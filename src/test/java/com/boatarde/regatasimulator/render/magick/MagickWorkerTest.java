@@ -0,0 +1,82 @@
+package com.boatarde.regatasimulator.render.magick;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Needs {@code magick} and {@code stdbuf} on the path; skipped otherwise.
+ */
+class MagickWorkerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSettingsDoNotLeakIntoTheNextJob() throws Exception {
+        assumeTrue(available("magick", "-version") && available("stdbuf", "--version"));
+        // the first job leaves an offset behind; the second composites without one
+        assertSameAsFreshProcess(
+            MagickCommand.convert("offset", List.of("-size", "40x40", "xc:white",
+                "(", "-size", "10x10", "xc:red", ")", "-geometry", "+20+20", "-composite"),
+                directory.resolve("offset.png")),
+            MagickCommand.convert("plain", List.of("-size", "40x40", "xc:white",
+                "(", "-size", "10x10", "xc:blue", ")", "-composite"),
+                directory.resolve("plain.png")));
+    }
+
+    @Test
+    void testPreviewFiltersDoNotLeakIntoTheNextJob() throws Exception {
+        assumeTrue(available("magick", "-version") && available("stdbuf", "--version"));
+        assertSameAsFreshProcess(
+            MagickCommand.convert("preview", List.of("-size", "40x40", "gradient:red-blue",
+                "-filter", "Point", "-interpolate", "Nearest", "-resize", "13x13",
+                "-distort", "SRT", "10"), directory.resolve("preview.png")),
+            MagickCommand.convert("final", List.of("-size", "40x40", "gradient:red-blue",
+                "-resize", "13x13", "-distort", "SRT", "10"), directory.resolve("final.png")));
+    }
+
+    private void assertSameAsFreshProcess(MagickCommand previous, MagickCommand command) throws Exception {
+        MagickWorker worker = new MagickWorker(0, List.of("stdbuf", "-oL", "magick", "-script", "-"));
+        try {
+            worker.run(previous);
+            worker.run(command);
+        } finally {
+            worker.stop();
+        }
+        BufferedImage pooled = ImageIO.read(command.getOutput().toFile());
+
+        new ProcessMagickExecutor("magick", Duration.ofMinutes(1), new SimpleMeterRegistry()).execute(command);
+        BufferedImage fresh = ImageIO.read(command.getOutput().toFile());
+
+        assertEquals(fresh.getWidth(), pooled.getWidth());
+        assertEquals(fresh.getHeight(), pooled.getHeight());
+        assertArrayEquals(pixels(fresh), pixels(pooled));
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static boolean available(String... command) {
+        try {
+            return new ProcessBuilder(command).redirectErrorStream(true).start().waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
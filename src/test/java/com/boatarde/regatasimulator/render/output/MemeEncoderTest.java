@@ -0,0 +1,66 @@
+package com.boatarde.regatasimulator.render.output;
+
+import com.boatarde.regatasimulator.render.RenderQuality;
+import com.boatarde.regatasimulator.render.RenderWorkspace;
+import com.boatarde.regatasimulator.render.RenderWorkspaceManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemeEncoderTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testOversizedRenderIsDownscaledToPhotoDimensions() throws Exception {
+        try (RenderWorkspace workspace = workspace()) {
+            Path rendered = render(workspace, 10500, 700);
+
+            EncodedMeme encoded = encoder().encode(rendered, workspace, RenderQuality.FULL);
+
+            BufferedImage image = ImageIO.read(encoded.getFile().toFile());
+            assertTrue(image.getWidth() + image.getHeight() <= MemeEncoder.TELEGRAM_PHOTO_MAX_DIMENSIONS);
+            assertEquals(15.0, (double) image.getWidth() / image.getHeight(), 0.1);
+            assertFalse(encoded.isDocument());
+        }
+    }
+
+    @Test
+    void testNarrowRenderIsSentAsDocument() throws Exception {
+        try (RenderWorkspace workspace = workspace()) {
+            Path rendered = render(workspace, 2100, 100);
+
+            EncodedMeme encoded = encoder().encode(rendered, workspace, RenderQuality.FULL);
+
+            assertTrue(encoded.isDocument());
+            assertEquals(2100, ImageIO.read(encoded.getFile().toFile()).getWidth());
+        }
+        try (RenderWorkspace workspace = workspace()) {
+            assertFalse(encoder().encode(render(workspace, 2000, 100), workspace, RenderQuality.FULL).isDocument());
+        }
+    }
+
+    private RenderWorkspace workspace() throws IOException {
+        return new RenderWorkspaceManager(root.toString(), Long.MAX_VALUE, new SimpleMeterRegistry()).open();
+    }
+
+    private static MemeEncoder encoder() {
+        return new MemeEncoder("jpeg", 90, 50, 0, 70, null, new SimpleMeterRegistry());
+    }
+
+    private static Path render(RenderWorkspace workspace, int width, int height) throws IOException {
+        Path rendered = workspace.resolve("render_%dx%d.png".formatted(width, height));
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", rendered.toFile());
+        return rendered;
+    }
+}
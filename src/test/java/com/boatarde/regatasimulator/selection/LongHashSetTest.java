@@ -0,0 +1,45 @@
+package com.boatarde.regatasimulator.selection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void testMatchesHashSetWhileGrowing() {
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            // small values collide often
+            long value = i % 3 == 0 ? random.nextInt(100) : random.nextLong();
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        expected.forEach(value -> assertTrue(set.contains(value)));
+        assertFalse(set.contains(100));
+    }
+
+    @Test
+    void testFingerprintDependsOnSourceOrder() {
+        UUID template = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        assertEquals(MemeFingerprintIndex.fingerprint(template, List.of(first, second)),
+            MemeFingerprintIndex.fingerprint(template, List.of(first, second)));
+        assertNotEquals(MemeFingerprintIndex.fingerprint(template, List.of(first, second)),
+            MemeFingerprintIndex.fingerprint(template, List.of(second, first)));
+        assertNotEquals(MemeFingerprintIndex.fingerprint(template, List.of(first)),
+            MemeFingerprintIndex.fingerprint(first, List.of(template)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.boatarde.regatasimulator.selection;
+
+import com.boatarde.regatasimulator.models.Meme;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MemeHistoryIndexTest {
+
+    @Test
+    void testMatchesScanOfLatestMemes() {
+        DocumentStore documentStore = mock(DocumentStore.class);
+        when(documentStore.findAll(Meme.class)).thenReturn(new ArrayList<>());
+        MemeHistoryIndex index = new MemeHistoryIndex(documentStore);
+
+        Random random = new Random(42);
+        List<UUID> templates = randomIds(300);
+        List<UUID> sources = randomIds(3000);
+        // newest first, like the sorted collection used to be
+        List<Meme> history = new ArrayList<>();
+        for (int i = 0; i < MemeHistoryIndex.HISTORY_SIZE + 250; i++) {
+            Meme meme = Meme.builder()
+                .id(UUID.randomUUID())
+                .templateId(templates.get(random.nextInt(templates.size())))
+                .sourceIds(List.of(sources.get(random.nextInt(sources.size())),
+                    sources.get(random.nextInt(sources.size()))))
+                .build();
+            Optional<UUID> evicted = index.record(meme);
+            history.addFirst(meme);
+            if (history.size() > MemeHistoryIndex.HISTORY_SIZE) {
+                assertEquals(history.removeLast().getId(), evicted.orElseThrow());
+            } else {
+                assertEquals(Optional.empty(), evicted);
+            }
+        }
+
+        assertEquals(MemeHistoryIndex.HISTORY_SIZE, index.size());
+        for (int limit : new int[] {1, 100, 225, 5000}) {
+            assertEquals(history.stream()
+                .map(Meme::getTemplateId)
+                .distinct()
+                .limit(limit)
+                .collect(Collectors.toSet()), index.recentTemplates(limit));
+            assertEquals(history.stream()
+                .flatMap(meme -> meme.getSourceIds().stream())
+                .distinct()
+                .limit(limit)
+                .collect(Collectors.toSet()), index.recentSources(limit));
+        }
+    }
+
+    private static List<UUID> randomIds(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,62 @@
+package com.boatarde.regatasimulator.selection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedSamplerTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void testDrawsFollowWeights() {
+        WeightedSampler sampler = new WeightedSampler(2);
+        UUID light = UUID.randomUUID();
+        UUID heavy = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        sampler.put(light, 1);
+        sampler.put(heavy, 3);
+        sampler.put(removed, 5);
+        sampler.remove(removed);
+        int heavyDraws = 0;
+        for (int i = 0; i < 40000; i++) {
+            UUID drawn = sampler.sample(1, random, null).getFirst();
+            assertFalse(drawn.equals(removed));
+            heavyDraws += drawn.equals(heavy) ? 1 : 0;
+        }
+        assertEquals(30000, heavyDraws, 600);
+    }
+
+    @Test
+    void testSampleWithoutReplacementRestoresWeights() {
+        WeightedSampler sampler = new WeightedSampler(4);
+        List<UUID> ids = new ArrayList<>();
+        // grows past the initial capacity
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            sampler.put(id, 1 + i % 7);
+        }
+        long totalWeight = sampler.totalWeight();
+        Set<UUID> excluded = new HashSet<>(ids.subList(0, 90));
+
+        List<UUID> drawn = sampler.sample(10, random, excluded);
+        assertEquals(Set.copyOf(ids.subList(90, 100)), Set.copyOf(drawn));
+        assertEquals(totalWeight, sampler.totalWeight());
+        assertEquals(100, sampler.size());
+        assertEquals(10, sampler.size(excluded));
+        assertThrows(IllegalStateException.class, () -> sampler.sample(11, random, excluded));
+        assertEquals(totalWeight, sampler.totalWeight());
+        assertTrue(ids.stream().allMatch(sampler::contains));
+    }
+}
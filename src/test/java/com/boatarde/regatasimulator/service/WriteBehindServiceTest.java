@@ -0,0 +1,97 @@
+package com.boatarde.regatasimulator.service;
+
+import com.boatarde.regatasimulator.models.Meme;
+import com.boatarde.regatasimulator.models.Source;
+import com.boatarde.regatasimulator.store.DocumentStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class WriteBehindServiceTest {
+
+    @Test
+    void testFlushWritesLatestMutationsInOneBatchPerCollection() {
+        DocumentStore documentStore = mock(DocumentStore.class);
+        WriteBehindService service = service(documentStore, true);
+        Source source = source();
+        Meme posted = Meme.builder().id(UUID.randomUUID()).build();
+        Meme oldest = Meme.builder().id(UUID.randomUUID()).build();
+        Meme discarded = Meme.builder().id(UUID.randomUUID()).build();
+
+        service.upsert(Source.class, source.getId(), source);
+        service.upsert(Source.class, source.getId(), source);
+        service.upsert(Meme.class, posted.getId(), posted);
+        service.upsert(Meme.class, oldest.getId(), oldest);
+        service.remove(Meme.class, oldest.getId(), oldest);
+        service.upsert(Meme.class, discarded.getId(), discarded);
+        service.discard(Meme.class, discarded.getId());
+        verifyNoInteractions(documentStore);
+        assertEquals(3, service.getPending());
+
+        service.flush();
+        verify(documentStore).upsert(List.of(source), Source.class);
+        verify(documentStore).upsert(List.of(posted), Meme.class);
+        verify(documentStore).remove(List.of(oldest), Meme.class);
+        assertEquals(0, service.getPending());
+
+        service.flush();
+        verify(documentStore, times(1)).upsert(anyCollection(), eq(Meme.class));
+        service.shutdown();
+    }
+
+    @Test
+    void testFailedBatchIsRetriedUnlessReplaced() {
+        DocumentStore documentStore = mock(DocumentStore.class);
+        WriteBehindService service = service(documentStore, true);
+        Source source = source();
+        doThrow(new RuntimeException("disk full")).when(documentStore).upsert(List.of(source), Source.class);
+
+        service.upsert(Source.class, source.getId(), source);
+        service.flush();
+        assertEquals(1, service.getPending());
+
+        Source other = source();
+        service.upsert(Source.class, other.getId(), other);
+        service.discard(Source.class, source.getId());
+        service.flush();
+        verify(documentStore).upsert(List.of(other), Source.class);
+        assertEquals(0, service.getPending());
+        service.shutdown();
+    }
+
+    @Test
+    void testDisabledWritesAtOnce() {
+        DocumentStore documentStore = mock(DocumentStore.class);
+        WriteBehindService service = service(documentStore, false);
+        Source source = source();
+
+        service.upsert(Source.class, source.getId(), source);
+        verify(documentStore).upsert(List.of(source), Source.class);
+        verify(documentStore, never()).remove(anyCollection(), eq(Source.class));
+        assertEquals(0, service.getPending());
+        service.shutdown();
+    }
+
+    private static WriteBehindService service(DocumentStore documentStore, boolean enabled) {
+        return new WriteBehindService(documentStore, enabled, Duration.ofHours(1), 100, new SimpleMeterRegistry());
+    }
+
+    private static Source source() {
+        Source source = new Source();
+        source.setId(UUID.randomUUID());
+        return source;
+    }
+}
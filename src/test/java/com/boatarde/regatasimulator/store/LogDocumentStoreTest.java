@@ -0,0 +1,210 @@
+package com.boatarde.regatasimulator.store;
+
+import com.boatarde.regatasimulator.models.Source;
+import com.boatarde.regatasimulator.models.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogDocumentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplaysWritesAndDropsTornTail() throws IOException {
+        LogDocumentStore store = store();
+        Source first = source("Gato de Botas");
+        Source second = source("Cachorro caramelo");
+        store.insert(List.of(first, second), Source.class);
+        first.setWeight(3);
+        store.save(first, Source.class);
+        store.upsert(source("removida"));
+        Source removed = store.findAll(Source.class).stream()
+            .filter(source -> "removida".equals(source.getDescription()))
+            .findFirst()
+            .orElseThrow();
+        assertEquals("removida", store.remove(removed, Source.class).getDescription());
+        assertThrows(IllegalStateException.class, () -> store.insert(second));
+        assertThrows(IllegalStateException.class, () -> store.save(source("nova"), Source.class));
+        store.shutdown();
+
+        // a crash in the middle of an append leaves part of a record behind
+        Path log = directory.resolve("log/sources.log");
+        long length = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1, 0, 0, 0, 36, 0}));
+        }
+
+        LogDocumentStore reopened = store();
+        assertEquals(ids(List.of(first, second)), ids(reopened.findAll(Source.class)));
+        assertEquals(3, reopened.findById(first.getId(), Source.class).getWeight());
+        assertEquals(42L, reopened.findById(first.getId(), Source.class).getMessage().getFrom().getId());
+        assertNull(reopened.findById(removed.getId(), Source.class));
+        assertEquals(length, Files.size(log));
+        reopened.shutdown();
+    }
+
+    @Test
+    void testCompactionKeepsDocumentsAndEmptiesLog() throws IOException {
+        LogDocumentStore store = store(0);
+        List<Source> sources = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sources.add(source("fonte " + i));
+        }
+        store.insert(sources, Source.class);
+        for (Source source : sources) {
+            source.setWeight(1);
+            store.upsert(source);
+        }
+        store.remove(sources.subList(0, 10), Source.class);
+        store.compactAll();
+        store.shutdown();
+
+        assertEquals(0, Files.size(directory.resolve("log/sources.log")));
+        LogDocumentStore reopened = store();
+        List<Source> expected = sources.subList(10, 50);
+        assertEquals(ids(expected), ids(reopened.findAll(Source.class)));
+        reopened.findAll(Source.class).forEach(source -> assertEquals(1, source.getWeight()));
+        reopened.shutdown();
+    }
+
+    @Test
+    void testCompactionKeepsRecordsAppendedDuringSnapshot() throws IOException {
+        Path log = Files.createDirectories(directory.resolve("log"));
+        byte[] value = "{}".getBytes(StandardCharsets.UTF_8);
+        LogRecord late = LogRecord.put("late", value);
+        try (CollectionLog collection = new CollectionLog(log, "sources")) {
+            collection.append(List.of(LogRecord.put("early", value), LogRecord.put("removed", value)));
+            collection.append(List.of(LogRecord.delete("removed")));
+            collection.compact(() -> {
+                try {
+                    collection.append(List.of(late));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            assertEquals(late.size(), collection.logBytes());
+            collection.append(List.of(LogRecord.delete("early")));
+        }
+
+        assertFalse(Files.exists(log.resolve("sources.log.tmp")));
+        try (CollectionLog reopened = new CollectionLog(log, "sources")) {
+            assertNull(reopened.get("early"));
+            assertNull(reopened.get("removed"));
+            assertArrayEquals(value, reopened.get("late"));
+        }
+    }
+
+    @Test
+    void testImportsJsonDbCollection() throws IOException {
+        UUID id = UUID.randomUUID();
+        Files.writeString(directory.resolve("sources.json"), """
+            {"schemaVersion":"1.0"}
+            {"id":"%s","weight":7,"message":null,"status":"APPROVED","description":"importada"}
+            """.formatted(id));
+
+        LogDocumentStore store = store();
+        Source source = store.findById(id, Source.class);
+        assertEquals("importada", source.getDescription());
+        assertEquals(Status.APPROVED, source.getStatus());
+        assertEquals(7, source.getWeight());
+        store.shutdown();
+
+        Files.delete(directory.resolve("sources.json"));
+        LogDocumentStore reopened = store();
+        assertEquals(List.of(id), ids(reopened.findAll(Source.class)));
+        reopened.shutdown();
+    }
+
+    @Test
+    void testFailedImportIsRetried() throws IOException {
+        UUID id = UUID.randomUUID();
+        Path json = directory.resolve("sources.json");
+        Files.writeString(json, """
+            {"schemaVersion":"1.0"}
+            {"id":"%s","weight":7,"status":"APPROVED","description":"importada"}
+            {"id":"truncated","weig
+            """.formatted(id));
+
+        LogDocumentStore store = store();
+        assertThrows(UncheckedIOException.class, () -> store.findAll(Source.class));
+        store.shutdown();
+        assertFalse(Files.exists(directory.resolve("log/sources.log")));
+        assertFalse(Files.exists(directory.resolve("log/sources.snapshot")));
+
+        Files.writeString(json, """
+            {"schemaVersion":"1.0"}
+            {"id":"%s","weight":7,"status":"APPROVED","description":"importada"}
+            """.formatted(id));
+        LogDocumentStore fixed = store();
+        assertEquals(List.of(id), ids(fixed.findAll(Source.class)));
+        fixed.shutdown();
+    }
+
+    @Test
+    void testImportRunsAgainAfterCrashBeforeSnapshot() throws IOException {
+        UUID id = UUID.randomUUID();
+        Files.writeString(directory.resolve("sources.json"), """
+            {"schemaVersion":"1.0"}
+            {"id":"%s","weight":7,"status":"APPROVED","description":"importada"}
+            """.formatted(id));
+        // what a crash after creating the log and before writing the imported snapshot leaves behind
+        Files.createDirectories(directory.resolve("log"));
+        Files.createFile(directory.resolve("log/sources.log"));
+
+        LogDocumentStore store = store();
+        assertEquals(List.of(id), ids(store.findAll(Source.class)));
+        store.shutdown();
+    }
+
+    private LogDocumentStore store() throws IOException {
+        return store(1 << 20);
+    }
+
+    private LogDocumentStore store(long compactionMinBytes) throws IOException {
+        return new LogDocumentStore(directory.toString(), directory.resolve("log").toString(), Duration.ZERO,
+            Duration.ofHours(1), compactionMinBytes, new SimpleMeterRegistry());
+    }
+
+    private static List<UUID> ids(List<Source> sources) {
+        return sources.stream().map(Source::getId).sorted(Comparator.naturalOrder()).toList();
+    }
+
+    private static Source source(String description) {
+        User user = new User();
+        user.setId(42L);
+        Message message = new Message();
+        message.setFrom(user);
+        message.setDate(1700000000);
+        Source source = new Source();
+        source.setId(UUID.randomUUID());
+        source.setStatus(Status.REVIEW);
+        source.setWeight(10);
+        source.setMessage(message);
+        source.setDescription(description);
+        return source;
+    }
+}